@@ -0,0 +1,151 @@
+package net.cubespace.geSuit.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Groups accounts that have shared an IP, directly or through other accounts, using a union-find over accounts and
+ * IPs. Every set also keeps its members in a ring, so listing a cluster only walks that cluster.
+ */
+public class AccountClusters {
+    private final Map<UUID, Integer> accounts = new HashMap<>();
+    private final Map<String, Integer> ips = new HashMap<>();
+    // Indexed by node; IP nodes have no uuid
+    private UUID[] uuids = new UUID[1024];
+    private long[] lastSeen = new long[1024];
+    private int[] parent = new int[1024];
+    private int[] size = new int[1024];
+    private int[] next = new int[1024];
+    private int count;
+
+    /**
+     * Records that the account was seen on the IP, joining their clusters
+     */
+    public synchronized void link(UUID uuid, String ip, long seen) {
+        int account = accountNode(uuid);
+        lastSeen[account] = Math.max(lastSeen[account], seen);
+        if (ip != null && !ip.isEmpty()) {
+            union(account, ipNode(ip));
+        }
+    }
+
+    /**
+     * @return every account in the same cluster, the given one included, or an empty list if it is unknown
+     */
+    public synchronized List<UUID> getAccounts(UUID uuid) {
+        Integer node = accounts.get(uuid);
+        List<UUID> members = new ArrayList<>();
+        if (node != null) {
+            int n = node;
+            do {
+                if (uuids[n] != null) {
+                    members.add(uuids[n]);
+                }
+                n = next[n];
+            } while (n != node);
+        }
+        return members;
+    }
+
+    /**
+     * @return the most recently seen other account in the same cluster, or null if there is none
+     */
+    public synchronized UUID getLatestAlt(UUID uuid) {
+        Integer node = accounts.get(uuid);
+        if (node == null) {
+            return null;
+        }
+
+        int best = -1;
+        for (int n = next[node]; n != node; n = next[n]) {
+            if (uuids[n] != null && (best < 0 || lastSeen[n] > lastSeen[best])) {
+                best = n;
+            }
+        }
+        return (best < 0) ? null : uuids[best];
+    }
+
+    /**
+     * @return number of accounts known
+     */
+    public synchronized int size() {
+        return accounts.size();
+    }
+
+    public synchronized void clear() {
+        accounts.clear();
+        ips.clear();
+        count = 0;
+    }
+
+    private int accountNode(UUID uuid) {
+        Integer node = accounts.get(uuid);
+        if (node == null) {
+            node = newNode(uuid);
+            accounts.put(uuid, node);
+        }
+        return node;
+    }
+
+    private int ipNode(String ip) {
+        Integer node = ips.get(ip);
+        if (node == null) {
+            node = newNode(null);
+            ips.put(ip, node);
+        }
+        return node;
+    }
+
+    private int newNode(UUID uuid) {
+        if (count == parent.length) {
+            int capacity = count * 2;
+            uuids = Arrays.copyOf(uuids, capacity);
+            lastSeen = Arrays.copyOf(lastSeen, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            size = Arrays.copyOf(size, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+
+        int node = count++;
+        uuids[node] = uuid;
+        lastSeen[node] = 0;
+        parent[node] = node;
+        size[node] = 1;
+        next[node] = node;
+        return node;
+    }
+
+    private int find(int node) {
+        while (parent[node] != node) {
+            // Path halving
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    private void union(int a, int b) {
+        int ra = find(a);
+        int rb = find(b);
+        if (ra == rb) {
+            return;
+        }
+
+        if (size[ra] < size[rb]) {
+            int t = ra;
+            ra = rb;
+            rb = t;
+        }
+        parent[rb] = ra;
+        size[ra] += size[rb];
+
+        // Swapping the successors of one member of each ring joins the two rings
+        int t = next[a];
+        next[a] = next[b];
+        next[b] = t;
+    }
+}
@@ -0,0 +1,239 @@
+package net.cubespace.geSuit.cache;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import net.cubespace.geSuit.objects.Ban;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-memory copy of the active bans, keyed by UUID, lowercase name and IP. A Bloom filter in front of the maps
+ * answers the common "not banned" case without touching them. Range bans are kept in a {@link RangeBanTree}.
+ */
+public class BanIndex {
+    private volatile Index index = new Index(Collections.<Ban>emptyList());
+    private volatile boolean loaded;
+    // Bumped on every add/remove so a reconcile can tell it raced with one
+    private final AtomicLong modCount = new AtomicLong();
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        return index.ids.size();
+    }
+
+    /**
+     * Finds the active ban matching any of the given keys. Like the banInfo query, the first type in alphabetical
+     * order wins: ban, ipban, rangeban, tempban
+     */
+    public Ban find(String name, String uuid, String ip) {
+        Index current = index;
+        Ban best = null;
+        best = pick(best, current.lookup(current.byName, "n:", normalise(name)));
+        best = pick(best, current.lookup(current.byUuid, "u:", normalise(uuid)));
+        best = pick(best, current.lookup(current.byIp, "i:", ip));
+        best = pick(best, current.findRange(ip));
+        return best;
+    }
+
+    /**
+     * @return the range ban containing the IP, or null
+     */
+    public Ban findRange(String ip) {
+        return index.findRange(ip);
+    }
+
+    public synchronized void add(Ban ban) {
+        if (ban == null || ban.getId() < 0) {
+            return;
+        }
+
+        modCount.incrementAndGet();
+        index.add(ban, true);
+    }
+
+    public synchronized void remove(Ban ban) {
+        if (ban != null) {
+            remove(ban.getId());
+        }
+    }
+
+    public synchronized void remove(int id) {
+        modCount.incrementAndGet();
+        index.remove(id);
+    }
+
+    /**
+     * @return the active bans of the given type
+     */
+    public List<Ban> getBans(String type) {
+        List<Ban> bans = new ArrayList<>();
+        for (Ban ban : index.ids.values()) {
+            if (type.equals(ban.getType())) {
+                bans.add(ban);
+            }
+        }
+        return bans;
+    }
+
+    /**
+     * Replaces the index with the bans returned by the loader. If bans were added or removed while the loader ran,
+     * it is called again so those changes are not lost
+     *
+     * @param loader returns all active bans, or null if they could not be read
+     * @return false if the index was left as it was
+     */
+    public boolean reconcile(Supplier<Collection<Ban>> loader) {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            long seen = modCount.get();
+            Collection<Ban> bans = loader.get();
+            if (bans == null) {
+                return false;
+            }
+
+            Index rebuilt = new Index(bans);
+            synchronized (this) {
+                if (modCount.get() == seen) {
+                    index = rebuilt;
+                    loaded = true;
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static String normalise(String key) {
+        return (key == null) ? null : key.toLowerCase(Locale.ROOT);
+    }
+
+    private static Ban pick(Ban current, Ban candidate) {
+        if (candidate == null) {
+            return current;
+        }
+        if (current == null) {
+            return candidate;
+        }
+
+        int order = candidate.getType().compareTo(current.getType());
+        if (order < 0 || (order == 0 && candidate.getId() < current.getId())) {
+            return candidate;
+        }
+        return current;
+    }
+
+    private static class Index {
+        private final ConcurrentHashMap<Integer, Ban> ids = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, List<Ban>> byName = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, List<Ban>> byUuid = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, List<Ban>> byIp = new ConcurrentHashMap<>();
+        private final RangeBanTree ranges = new RangeBanTree();
+        private volatile BloomFilter<CharSequence> filter;
+
+        Index(Collection<Ban> bans) {
+            // Sized with headroom for bans added before the next reconcile
+            filter = BloomFilter.create(Funnels.stringFunnel(Charsets.UTF_8), Math.max(1024, bans.size() * 2), 0.01);
+            for (Ban ban : bans) {
+                add(ban, false);
+            }
+        }
+
+        Ban lookup(ConcurrentHashMap<String, List<Ban>> map, String prefix, String key) {
+            if (key == null || !filter.mightContain(prefix + key)) {
+                return null;
+            }
+
+            Ban best = null;
+            List<Ban> bans = map.get(key);
+            if (bans != null) {
+                for (Ban ban : bans) {
+                    best = pick(best, ban);
+                }
+            }
+            return best;
+        }
+
+        Ban findRange(String ip) {
+            if (ip == null || ranges.size() == 0) {
+                return null;
+            }
+            return ranges.find(IPRange.toBytes(ip));
+        }
+
+        void add(Ban ban, boolean published) {
+            ids.put(ban.getId(), ban);
+            if ("rangeban".equals(ban.getType())) {
+                IPRange range = IPRange.parse(ban.getIp());
+                if (range != null) {
+                    ranges.add(range, ban);
+                }
+                return;
+            }
+
+            String name = normalise(ban.getPlayer());
+            String uuid = normalise(ban.getUuid());
+            String ip = ban.getIp();
+            put(byName, name, ban);
+            put(byUuid, uuid, ban);
+            put(byIp, ip, ban);
+
+            // Readers may be using the filter, so a live index gets a modified copy
+            BloomFilter<CharSequence> target = published ? filter.copy() : filter;
+            if (name != null) target.put("n:" + name);
+            if (uuid != null) target.put("u:" + uuid);
+            if (ip != null) target.put("i:" + ip);
+            filter = target;
+        }
+
+        void remove(int id) {
+            // The filter keeps the keys; a false positive just falls through to the maps
+            Ban ban = ids.remove(id);
+            if (ban == null) {
+                return;
+            }
+            if ("rangeban".equals(ban.getType())) {
+                IPRange range = IPRange.parse(ban.getIp());
+                if (range != null) {
+                    ranges.remove(range, id);
+                }
+                return;
+            }
+            delete(byName, normalise(ban.getPlayer()), id);
+            delete(byUuid, normalise(ban.getUuid()), id);
+            delete(byIp, ban.getIp(), id);
+        }
+
+        private static void put(ConcurrentHashMap<String, List<Ban>> map, String key, Ban ban) {
+            if (key == null || key.isEmpty()) {
+                return;
+            }
+            map.compute(key, (k, bans) -> {
+                List<Ban> updated = (bans == null) ? new ArrayList<>(1) : new ArrayList<>(bans);
+                updated.add(ban);
+                return Collections.unmodifiableList(updated);
+            });
+        }
+
+        private static void delete(ConcurrentHashMap<String, List<Ban>> map, String key, int id) {
+            if (key == null || key.isEmpty()) {
+                return;
+            }
+            map.computeIfPresent(key, (k, bans) -> {
+                List<Ban> updated = new ArrayList<>(bans);
+                updated.removeIf(ban -> ban.getId() == id);
+                return updated.isEmpty() ? null : Collections.unmodifiableList(updated);
+            });
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package net.cubespace.geSuit.cache;
+
+import com.google.common.net.InetAddresses;
+
+import java.net.InetAddress;
+
+/**
+ * An IPv4 or IPv6 prefix in CIDR notation, e.g. 10.0.0.0/8 or 2001:db8::/32. Host bits are cleared, so every way
+ * of writing the same range ends up with the same {@link #toString()}
+ */
+public class IPRange {
+    private final byte[] address;
+    private final int prefixLength;
+
+    private IPRange(byte[] address, int prefixLength) {
+        this.address = address;
+        this.prefixLength = prefixLength;
+    }
+
+    /**
+     * @return the range, or null if the text is not a valid CIDR prefix
+     */
+    public static IPRange parse(String cidr) {
+        if (cidr == null) {
+            return null;
+        }
+
+        int slash = cidr.indexOf('/');
+        if (slash <= 0 || slash == cidr.length() - 1) {
+            return null;
+        }
+
+        byte[] address = toBytes(cidr.substring(0, slash));
+        if (address == null) {
+            return null;
+        }
+
+        int prefixLength;
+        try {
+            prefixLength = Integer.parseInt(cidr.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (prefixLength < 0 || prefixLength > address.length * 8) {
+            return null;
+        }
+
+        for (int bit = prefixLength; bit < address.length * 8; bit++) {
+            address[bit >> 3] &= ~(0x80 >>> (bit & 7));
+        }
+        return new IPRange(address, prefixLength);
+    }
+
+    public static boolean isIPRange(String cidr) {
+        return parse(cidr) != null;
+    }
+
+    /**
+     * @return the address bytes (4 for IPv4, 16 for IPv6), or null if the text is not an IP address
+     */
+    public static byte[] toBytes(String ip) {
+        if (ip == null || !InetAddresses.isInetAddress(ip)) {
+            return null;
+        }
+        return InetAddresses.forString(ip).getAddress();
+    }
+
+    public boolean contains(byte[] ip) {
+        if (ip == null || ip.length != address.length) {
+            return false;
+        }
+        for (int bit = 0; bit < prefixLength; bit++) {
+            if (RangeBanTree.bit(ip, bit) != RangeBanTree.bit(address, bit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean contains(InetAddress ip) {
+        return ip != null && contains(ip.getAddress());
+    }
+
+    byte[] getAddress() {
+        return address;
+    }
+
+    public int getPrefixLength() {
+        return prefixLength;
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return InetAddresses.toAddrString(InetAddress.getByAddress(address)) + "/" + prefixLength;
+        } catch (java.net.UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package net.cubespace.geSuit.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import net.cubespace.geSuit.objects.Kick;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Recent kicks per player UUID. Each player has a small ring buffer ordered by kick time, so dropping kicks that left
+ * the window only looks at its head. Deques are only changed inside the map's compute calls, which serialise work
+ * per player, and are locked for reading.
+ */
+public class KickWindows {
+    private final ConcurrentHashMap<String, ArrayDeque<Kick>> kicks = new ConcurrentHashMap<>();
+
+    /**
+     * Records the kick and drops the player's kicks older than the window
+     *
+     * @param capacity most kicks kept per player; older ones are dropped first
+     * @return the number of kicks the player has inside the window, this one included
+     */
+    public int add(Kick kick, long window, int capacity) {
+        final int[] count = new int[1];
+        kicks.compute(kick.getUuid(), (uuid, deque) -> {
+            if (deque == null) {
+                deque = new ArrayDeque<>(Math.max(1, capacity));
+            }
+            synchronized (deque) {
+                evict(deque, kick.getBannedOn() - window);
+                while (deque.size() >= Math.max(1, capacity)) {
+                    deque.pollFirst();
+                }
+                deque.addLast(kick);
+                count[0] = deque.size();
+            }
+            return deque;
+        });
+        return count[0];
+    }
+
+    public void clear(String uuid) {
+        kicks.remove(uuid);
+    }
+
+    /**
+     * @return when the player's oldest kick inside the window was made, or -1 if they have none
+     */
+    public long getOldest(String uuid) {
+        ArrayDeque<Kick> deque = kicks.get(uuid);
+        if (deque == null) {
+            return -1;
+        }
+        synchronized (deque) {
+            return deque.isEmpty() ? -1 : deque.peekFirst().getBannedOn();
+        }
+    }
+
+    /**
+     * Drops the player's kicks that are older than the window
+     */
+    public void expire(String uuid, long window) {
+        long oldest = System.currentTimeMillis() - window;
+        kicks.computeIfPresent(uuid, (k, deque) -> {
+            synchronized (deque) {
+                evict(deque, oldest);
+                return deque.isEmpty() ? null : deque;
+            }
+        });
+    }
+
+    public void expireAll(long window) {
+        for (String uuid : kicks.keySet()) {
+            expire(uuid, window);
+        }
+    }
+
+    private static void evict(ArrayDeque<Kick> deque, long oldest) {
+        while (!deque.isEmpty() && deque.peekFirst().getBannedOn() < oldest) {
+            deque.pollFirst();
+        }
+    }
+
+    /**
+     * Visits every kick, one player at a time
+     */
+    public void forEach(Consumer<Kick> action) {
+        for (ArrayDeque<Kick> deque : kicks.values()) {
+            synchronized (deque) {
+                deque.forEach(action);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return kicks.isEmpty();
+    }
+
+    /**
+     * Writes the kicks to a JSON file, replacing it in one step
+     */
+    public synchronized void save(File file) throws IOException {
+        List<Kick> all = new ArrayList<>();
+        forEach(all::add);
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+            new Gson().toJson(all, writer);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads kicks saved by {@link #save(File)}
+     *
+     * @return the kicks in the file, or an empty list if there is none
+     */
+    public static List<Kick> read(File file) throws IOException {
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            List<Kick> saved = new Gson().fromJson(reader, new TypeToken<List<Kick>>() {}.getType());
+            return (saved == null) ? new ArrayList<>() : saved;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package net.cubespace.geSuit.cache;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * The UUIDs of every player in the players table, in an open-addressing hash set over a flat long[] of
+ * {most, least significant bits} pairs. That is 16 bytes a slot instead of a UUID object and map entry per player,
+ * so a few million players fit in tens of megabytes.
+ */
+public class KnownPlayers {
+    private static final int MIN_CAPACITY = 1024;
+
+    // Slot i holds table[2i], table[2i+1]; an all-zero pair is empty, so the nil UUID is tracked on its own
+    private long[] table = new long[MIN_CAPACITY * 2];
+    private int size;
+    private boolean hasNil;
+
+    public synchronized boolean add(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        if (msb == 0 && lsb == 0) {
+            boolean added = !hasNil;
+            hasNil = true;
+            return added;
+        }
+
+        if ((size + 1) * 2 > capacity()) {
+            resize(capacity() * 2);
+        }
+        if (!insert(table, msb, lsb)) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    public synchronized void addAll(Collection<UUID> uuids) {
+        for (UUID uuid : uuids) {
+            add(uuid);
+        }
+    }
+
+    public synchronized boolean contains(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        if (msb == 0 && lsb == 0) {
+            return hasNil;
+        }
+
+        int mask = capacity() - 1;
+        for (int slot = hash(msb, lsb) & mask; ; slot = (slot + 1) & mask) {
+            long m = table[slot * 2];
+            long l = table[slot * 2 + 1];
+            if (m == 0 && l == 0) {
+                return false;
+            }
+            if (m == msb && l == lsb) {
+                return true;
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return size + (hasNil ? 1 : 0);
+    }
+
+    public synchronized void clear() {
+        table = new long[MIN_CAPACITY * 2];
+        size = 0;
+        hasNil = false;
+    }
+
+    private int capacity() {
+        return table.length / 2;
+    }
+
+    private void resize(int capacity) {
+        long[] resized = new long[capacity * 2];
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != 0 || table[i + 1] != 0) {
+                insert(resized, table[i], table[i + 1]);
+            }
+        }
+        table = resized;
+    }
+
+    /**
+     * @return false if the pair was already in the table
+     */
+    private static boolean insert(long[] table, long msb, long lsb) {
+        int mask = table.length / 2 - 1;
+        for (int slot = hash(msb, lsb) & mask; ; slot = (slot + 1) & mask) {
+            long m = table[slot * 2];
+            long l = table[slot * 2 + 1];
+            if (m == 0 && l == 0) {
+                table[slot * 2] = msb;
+                table[slot * 2 + 1] = lsb;
+                return true;
+            }
+            if (m == msb && l == lsb) {
+                return false;
+            }
+        }
+    }
+
+    // Offline-mode UUIDs are name hashes and online ones random, but mix anyway so linear probing stays short
+    private static int hash(long msb, long lsb) {
+        long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
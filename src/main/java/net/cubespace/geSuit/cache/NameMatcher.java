@@ -0,0 +1,234 @@
+package net.cubespace.geSuit.cache;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Finds values by a prefix or a substring of one of their names, ignoring case. Prefixes are looked up in a
+ * compressed trie, substrings through an index of every fragment of up to three characters of each name, so neither
+ * walks all the names. When several names match, the first in alphabetical order wins.
+ */
+public class NameMatcher<T> {
+    private static final int GRAM = 3;
+
+    private final Node<T> root = new Node<>("");
+    // Fragment to the lowercase names containing it
+    private final Map<String, Set<String>> grams = new HashMap<>();
+
+    public synchronized void add(String name, T value) {
+        String key = name.toLowerCase();
+        Node<T> node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node<T> child = node.children.get(key.charAt(i));
+            if (child == null) {
+                child = new Node<>(key.substring(i));
+                node.children.put(key.charAt(i), child);
+                node = child;
+                break;
+            }
+
+            int common = common(child.label, key, i);
+            if (common < child.label.length()) {
+                // Split the edge where the keys part
+                Node<T> split = new Node<>(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                split.children.put(child.label.charAt(0), child);
+                node.children.put(split.label.charAt(0), split);
+                child = split;
+            }
+            node = child;
+            i += common;
+        }
+
+        if (node.values.isEmpty()) {
+            for (String gram : grams(key)) {
+                grams.computeIfAbsent(gram, g -> new HashSet<>()).add(key);
+            }
+        }
+        node.values.add(value);
+    }
+
+    public synchronized void remove(String name, T value) {
+        String key = name.toLowerCase();
+        Deque<Node<T>> path = new ArrayDeque<>();
+        Node<T> node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node<T> child = node.children.get(key.charAt(i));
+            if (child == null || !key.startsWith(child.label, i)) {
+                return;
+            }
+            path.push(node);
+            node = child;
+            i += child.label.length();
+        }
+        if (!node.values.remove(value) || !node.values.isEmpty()) {
+            return;
+        }
+
+        for (String gram : grams(key)) {
+            Set<String> names = grams.get(gram);
+            if (names != null && names.remove(key) && names.isEmpty()) {
+                grams.remove(gram);
+            }
+        }
+
+        // Drop the emptied node and merge any node left with a single child and no values into that child
+        while (node != root && node.values.isEmpty() && node.children.size() <= 1) {
+            Node<T> parent = path.pop();
+            if (node.children.isEmpty()) {
+                parent.children.remove(node.label.charAt(0));
+            } else {
+                Node<T> only = node.children.values().iterator().next();
+                only.label = node.label + only.label;
+                parent.children.put(only.label.charAt(0), only);
+            }
+            node = parent;
+        }
+    }
+
+    /**
+     * @return a value with a name starting with the query, or null
+     */
+    public synchronized T matchPrefix(String query) {
+        Node<T> node = find(query.toLowerCase());
+        if (node == null) {
+            return null;
+        }
+        while (node.values.isEmpty()) {
+            if (node.children.isEmpty()) {
+                return null;
+            }
+            node = node.children.firstEntry().getValue();
+        }
+        return node.values.iterator().next();
+    }
+
+    /**
+     * @return a value with a name containing the query, or null
+     */
+    public synchronized T matchContains(String query) {
+        String q = query.toLowerCase();
+        String best = null;
+        for (String name : candidates(q)) {
+            if (name.contains(q) && (best == null || name.compareTo(best) < 0)) {
+                best = name;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        Node<T> node = find(best);
+        return (node == null || node.values.isEmpty()) ? null : node.values.iterator().next();
+    }
+
+    /**
+     * @return up to limit values with a name starting with the prefix, in name order, each once
+     */
+    public synchronized List<T> complete(String prefix, int limit) {
+        Set<T> values = new LinkedHashSet<>();
+        Node<T> node = find(prefix.toLowerCase());
+        if (node != null) {
+            collect(node, values, limit);
+        }
+        return new ArrayList<>(values);
+    }
+
+    private void collect(Node<T> node, Set<T> values, int limit) {
+        for (T value : node.values) {
+            if (values.size() >= limit) {
+                return;
+            }
+            values.add(value);
+        }
+        for (Node<T> child : node.children.values()) {
+            if (values.size() >= limit) {
+                return;
+            }
+            collect(child, values, limit);
+        }
+    }
+
+    /**
+     * @return the node holding every name starting with the key, or null
+     */
+    private Node<T> find(String key) {
+        Node<T> node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node<T> child = node.children.get(key.charAt(i));
+            if (child == null) {
+                return null;
+            }
+            int common = common(child.label, key, i);
+            if (i + common == key.length()) {
+                return child;
+            }
+            if (common < child.label.length()) {
+                return null;
+            }
+            node = child;
+            i += common;
+        }
+        return node;
+    }
+
+    // Short queries are fragments themselves; longer ones check the names holding their rarest fragment
+    private Set<String> candidates(String q) {
+        if (q.length() <= GRAM) {
+            Set<String> names = grams.get(q);
+            return (names == null) ? new HashSet<String>() : names;
+        }
+
+        Set<String> rarest = null;
+        for (int i = 0; i + GRAM <= q.length(); i++) {
+            Set<String> names = grams.get(q.substring(i, i + GRAM));
+            if (names == null) {
+                return new HashSet<>();
+            }
+            if (rarest == null || names.size() < rarest.size()) {
+                rarest = names;
+            }
+        }
+        return rarest;
+    }
+
+    private static Set<String> grams(String key) {
+        Set<String> result = new HashSet<>();
+        for (int length = 1; length <= GRAM; length++) {
+            for (int i = 0; i + length <= key.length(); i++) {
+                result.add(key.substring(i, i + length));
+            }
+        }
+        return result;
+    }
+
+    private static int common(String label, String key, int offset) {
+        int n = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < n && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static class Node<T> {
+        String label;
+        final TreeMap<Character, Node<T>> children = new TreeMap<>();
+        // Several values may share a name, and one value may be added under the same name twice
+        final List<T> values = new ArrayList<>(1);
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package net.cubespace.geSuit.cache;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Lifetime on-time of every player, ordered from most to least. Kept as a treap where each node knows the size of
+ * its subtree, so adding time, finding a player's rank and reading any page of the list all take O(log n).
+ * Names are not kept; resolve them for the page being shown.
+ */
+public class OnTimeLeaderboard {
+    private final Map<UUID, Node> players = new HashMap<>();
+    private final Random random = new Random();
+    private Node root;
+
+    /**
+     * Sets the player's total, as read from the database
+     */
+    public synchronized void set(UUID uuid, long seconds) {
+        Node node = players.get(uuid);
+        if (node != null) {
+            root = remove(root, node);
+            node.left = node.right = null;
+            node.size = 1;
+        } else {
+            node = new Node(uuid, random.nextInt());
+            players.put(uuid, node);
+        }
+        node.seconds = seconds;
+        root = insert(root, node);
+    }
+
+    /**
+     * Adds the seconds of a finished session to the player's total
+     */
+    public synchronized void add(UUID uuid, long seconds) {
+        Node node = players.get(uuid);
+        set(uuid, (node == null) ? seconds : node.seconds + seconds);
+    }
+
+    /**
+     * @return the player's position, 1 being the most time online, or 0 if they have no time recorded
+     */
+    public synchronized int getRank(UUID uuid) {
+        Node node = players.get(uuid);
+        if (node == null) {
+            return 0;
+        }
+
+        int rank = 0;
+        Node t = root;
+        while (t != node) {
+            if (before(node, t)) {
+                t = t.left;
+            } else {
+                rank += size(t.left) + 1;
+                t = t.right;
+            }
+        }
+        return rank + size(t.left) + 1;
+    }
+
+    /**
+     * @return the player's total in seconds, or 0 if they have none
+     */
+    public synchronized long getSeconds(UUID uuid) {
+        Node node = players.get(uuid);
+        return (node == null) ? 0 : node.seconds;
+    }
+
+    /**
+     * @param offset number of players to skip from the top
+     * @return up to count players in order, each as {uuid, seconds}
+     */
+    public synchronized List<Map.Entry<UUID, Long>> getPage(int offset, int count) {
+        List<Map.Entry<UUID, Long>> page = new ArrayList<>(Math.max(0, count));
+        for (int i = Math.max(0, offset); i < offset + count && i < size(root); i++) {
+            Node node = select(i);
+            page.add(new AbstractMap.SimpleImmutableEntry<>(node.uuid, node.seconds));
+        }
+        return page;
+    }
+
+    public synchronized int size() {
+        return size(root);
+    }
+
+    public synchronized void clear() {
+        players.clear();
+        root = null;
+    }
+
+    private Node select(int index) {
+        Node t = root;
+        while (true) {
+            int left = size(t.left);
+            if (index < left) {
+                t = t.left;
+            } else if (index == left) {
+                return t;
+            } else {
+                index -= left + 1;
+                t = t.right;
+            }
+        }
+    }
+
+    // Most time first, ties broken by uuid so every node has a distinct position
+    private static boolean before(Node a, Node b) {
+        if (a.seconds != b.seconds) {
+            return a.seconds > b.seconds;
+        }
+        return a.uuid.compareTo(b.uuid) < 0;
+    }
+
+    private static int size(Node t) {
+        return (t == null) ? 0 : t.size;
+    }
+
+    private static void update(Node t) {
+        t.size = size(t.left) + size(t.right) + 1;
+    }
+
+    private static Node insert(Node t, Node node) {
+        if (t == null) {
+            return node;
+        }
+        if (node.priority > t.priority) {
+            Node[] parts = split(t, node);
+            node.left = parts[0];
+            node.right = parts[1];
+            update(node);
+            return node;
+        }
+        if (before(node, t)) {
+            t.left = insert(t.left, node);
+        } else {
+            t.right = insert(t.right, node);
+        }
+        update(t);
+        return t;
+    }
+
+    private static Node remove(Node t, Node node) {
+        if (t == node) {
+            return merge(t.left, t.right);
+        }
+        if (before(node, t)) {
+            t.left = remove(t.left, node);
+        } else {
+            t.right = remove(t.right, node);
+        }
+        update(t);
+        return t;
+    }
+
+    /**
+     * @return the nodes ordered before the key, and the rest
+     */
+    private static Node[] split(Node t, Node key) {
+        if (t == null) {
+            return new Node[2];
+        }
+        if (before(t, key)) {
+            Node[] parts = split(t.right, key);
+            t.right = parts[0];
+            update(t);
+            parts[0] = t;
+            return parts;
+        } else {
+            Node[] parts = split(t.left, key);
+            t.left = parts[1];
+            update(t);
+            parts[1] = t;
+            return parts;
+        }
+    }
+
+    private static Node merge(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        } else {
+            b.left = merge(a, b.left);
+            update(b);
+            return b;
+        }
+    }
+
+    private static class Node {
+        final UUID uuid;
+        final int priority;
+        long seconds;
+        int size = 1;
+        Node left;
+        Node right;
+
+        Node(UUID uuid, int priority) {
+            this.uuid = uuid;
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package net.cubespace.geSuit.cache;
+
+import net.cubespace.geSuit.objects.GSPlayer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The players on this proxy. Players are cached by UUID from login and indexed by lowercase name, lowercase display
+ * name and IP once their join is confirmed. The indexes are concurrent maps changed in place by one writer at a time,
+ * so a join or quit costs the same however many players are online and exact lookups never wait for it. Prefix and
+ * substring matches go through a {@link NameMatcher}, which writers hold the lock of while they change it.
+ * <p>
+ * A join or quit is applied to one index after another, so a lookup running alongside it can see it in some indexes
+ * and not yet in others. Joins add the name index first and quits remove it last, so a player found by display name,
+ * IP or name match is always also found by {@link #getByName}, apart from a display name change or a rejoin under
+ * the same name in progress.
+ */
+public class PlayerRegistry {
+    private final Map<UUID, GSPlayer> cached = new ConcurrentHashMap<>();
+    private final Map<String, GSPlayer> byName = new ConcurrentHashMap<>();
+    private final Map<String, GSPlayer> byDisplayName = new ConcurrentHashMap<>();
+    // Lists are never changed once published; a change replaces the list
+    private final Map<String, List<GSPlayer>> byIp = new ConcurrentHashMap<>();
+    // Lowercase name to the {display name key, ip} it is indexed under. Only used by writers
+    private final Map<String, String[]> keys = new HashMap<>();
+    // Real and display names of online players, for prefix and substring matches
+    private final NameMatcher<GSPlayer> names = new NameMatcher<>();
+
+    /**
+     * Keeps a player loaded at login until they disconnect
+     */
+    public void cache(UUID uuid, GSPlayer player) {
+        cached.put(uuid, player);
+    }
+
+    /**
+     * @return the player that was cached, or null
+     */
+    public GSPlayer uncache(UUID uuid) {
+        return cached.remove(uuid);
+    }
+
+    /**
+     * Adds a player to the online indexes, replacing any earlier entry under the same name
+     */
+    public synchronized void online(GSPlayer player, String displayName) {
+        String name = player.getName().toLowerCase();
+        GSPlayer previous = byName.put(name, player);
+        if (previous != null) {
+            unindex(previous, name);
+        }
+        index(player, name, displayName);
+    }
+
+    /**
+     * Removes a player from the online indexes
+     *
+     * @return the player that was online under the name, or null
+     */
+    public synchronized GSPlayer offline(String playerName) {
+        String name = playerName.toLowerCase();
+        GSPlayer player = byName.get(name);
+        if (player == null) {
+            return null;
+        }
+
+        unindex(player, name);
+        byName.remove(name);
+        return player;
+    }
+
+    /**
+     * Re-indexes an online player under a new display name
+     */
+    public synchronized void setDisplayName(GSPlayer player, String displayName) {
+        String name = player.getName().toLowerCase();
+        String[] indexed = keys.get(name);
+        String key = (displayName == null) ? null : displayName.toLowerCase();
+        if (byName.get(name) != player || indexed == null || Objects.equals(key, indexed[0])) {
+            return;
+        }
+
+        if (indexed[0] != null) {
+            byDisplayName.remove(indexed[0], player);
+            names.remove(indexed[0], player);
+        }
+        if (key != null) {
+            byDisplayName.put(key, player);
+            names.add(displayName, player);
+        }
+        keys.put(name, new String[]{key, indexed[1]});
+    }
+
+    public GSPlayer getCached(UUID uuid) {
+        return cached.get(uuid);
+    }
+
+    public GSPlayer getByName(String name) {
+        return byName.get(name.toLowerCase());
+    }
+
+    public GSPlayer getByDisplayName(String displayName) {
+        return byDisplayName.get(displayName.toLowerCase());
+    }
+
+    /**
+     * @return an online player whose real or display name starts with the text, or null
+     */
+    public GSPlayer matchPrefix(String text) {
+        return names.matchPrefix(text);
+    }
+
+    /**
+     * @return an online player whose real or display name contains the text, or null
+     */
+    public GSPlayer matchContains(String text) {
+        return names.matchContains(text);
+    }
+
+    /**
+     * @return up to limit online players whose real or display name starts with the prefix, in name order
+     */
+    public List<GSPlayer> complete(String prefix, int limit) {
+        return names.complete(prefix, limit);
+    }
+
+    /**
+     * @return the online players connected from the IP, never null
+     */
+    public List<GSPlayer> getByIp(String ip) {
+        List<GSPlayer> players = byIp.get(ip);
+        return (players == null) ? Collections.<GSPlayer>emptyList() : players;
+    }
+
+    /**
+     * @return a live view of the online players, safe to iterate while players join and leave
+     */
+    public Collection<GSPlayer> getOnline() {
+        return Collections.unmodifiableCollection(byName.values());
+    }
+
+    /**
+     * @return a live view of the cached players, safe to iterate while players join and leave
+     */
+    public Map<UUID, GSPlayer> getCached() {
+        return Collections.unmodifiableMap(cached);
+    }
+
+    private void index(GSPlayer player, String name, String displayName) {
+        String key = (displayName == null) ? null : displayName.toLowerCase();
+        if (key != null) {
+            byDisplayName.put(key, player);
+        }
+        String ip = player.getIp();
+        if (ip != null) {
+            byIp.compute(ip, (k, players) -> {
+                List<GSPlayer> updated = (players == null) ? new ArrayList<GSPlayer>(1) : new ArrayList<>(players);
+                updated.add(player);
+                return Collections.unmodifiableList(updated);
+            });
+        }
+        keys.put(name, new String[]{key, ip});
+        names.add(player.getName(), player);
+        if (displayName != null) {
+            names.add(displayName, player);
+        }
+    }
+
+    private void unindex(GSPlayer player, String name) {
+        names.remove(name, player);
+        String[] indexed = keys.remove(name);
+        if (indexed == null) {
+            return;
+        }
+        if (indexed[0] != null) {
+            byDisplayName.remove(indexed[0], player);
+            names.remove(indexed[0], player);
+        }
+        if (indexed[1] != null) {
+            byIp.computeIfPresent(indexed[1], (k, players) -> {
+                List<GSPlayer> updated = new ArrayList<>(players);
+                updated.remove(player);
+                return updated.isEmpty() ? null : Collections.unmodifiableList(updated);
+            });
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package net.cubespace.geSuit.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.cubespace.geSuit.objects.GSPlayer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recently loaded offline players, by UUID and lowercase name, bounded in size and age. Entries are snapshots of the
+ * players row: every hit returns a fresh copy, so loading homes into it or renaming it never changes the cache.
+ */
+public class ProfileCache {
+    private final Cache<String, GSPlayer> byUuid;
+    // A name entry is only trusted while the profile it points to still has that name
+    private final Cache<String, String> uuidByName;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    // Bumped on every invalidation, so a load that raced with one is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public ProfileCache(long maxSize, long ttlSeconds) {
+        this.byUuid = CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(ttlSeconds, TimeUnit.SECONDS).build();
+        this.uuidByName = CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(ttlSeconds, TimeUnit.SECONDS).build();
+    }
+
+    /**
+     * @param player a name, or a uuid without dashes
+     * @return a copy of the cached profile, or null
+     */
+    public GSPlayer get(String player) {
+        String key = player.toLowerCase();
+        GSPlayer cached;
+        if (key.length() == 32) {
+            cached = byUuid.getIfPresent(key);
+        } else {
+            String uuid = uuidByName.getIfPresent(key);
+            cached = (uuid == null) ? null : byUuid.getIfPresent(uuid);
+            if (cached != null && !cached.getName().equalsIgnoreCase(key)) {
+                cached = null;
+            }
+        }
+
+        if (cached == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return copy(cached);
+    }
+
+    /**
+     * @return the value to pass to {@link #put} once the profile has been read
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Caches a copy of a profile read from the database, unless the cache was invalidated since the read started
+     */
+    public void put(GSPlayer player, long readGeneration) {
+        if (player.getUuid() == null || player.getName() == null || generation.get() != readGeneration) {
+            return;
+        }
+        String uuid = player.getUuid().toLowerCase();
+        byUuid.put(uuid, copy(player));
+        uuidByName.put(player.getName().toLowerCase(), uuid);
+    }
+
+    public void invalidate(String uuid) {
+        generation.incrementAndGet();
+        if (uuid != null) {
+            byUuid.invalidate(uuid.toLowerCase());
+        }
+    }
+
+    public void invalidateName(String name) {
+        generation.incrementAndGet();
+        if (name != null) {
+            String uuid = uuidByName.getIfPresent(name.toLowerCase());
+            if (uuid != null) {
+                byUuid.invalidate(uuid);
+            }
+            uuidByName.invalidate(name.toLowerCase());
+        }
+    }
+
+    public long size() {
+        return byUuid.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static GSPlayer copy(GSPlayer p) {
+        return new GSPlayer(p.getName(), p.getUuid(), p.acceptingTeleports(), p.isNewSpawn(), p.getIp(), p.getLastOnline(), p.getFirstOnline());
+    }
+}
@@ -0,0 +1,184 @@
+package net.cubespace.geSuit.cache;
+
+import net.cubespace.geSuit.objects.Ban;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compressed binary radix tree of range bans. Chains of single-child nodes are collapsed, so a lookup walks at most
+ * one node per branching bit and never more bits than the address has. IPv4 and IPv6 ranges live in separate roots.
+ */
+public class RangeBanTree {
+    private final Node ipv4 = new Node(new byte[4], 0);
+    private final Node ipv6 = new Node(new byte[16], 0);
+    private int size;
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void add(IPRange range, Ban ban) {
+        byte[] prefix = range.getAddress();
+        int length = range.getPrefixLength();
+        Node node = root(prefix);
+
+        while (true) {
+            if (node.length == length) {
+                node.bans.add(ban);
+                size++;
+                return;
+            }
+
+            int branch = bit(prefix, node.length);
+            Node child = node.children[branch];
+            if (child == null) {
+                Node leaf = new Node(prefix, length);
+                leaf.bans.add(ban);
+                node.children[branch] = leaf;
+                size++;
+                return;
+            }
+
+            int common = commonLength(child.prefix, prefix, node.length, Math.min(child.length, length));
+            if (common == child.length) {
+                node = child;
+                continue;
+            }
+
+            // The new range diverges part way along the child's edge, split it there
+            Node split = new Node(prefix, common);
+            split.children[bit(child.prefix, common)] = child;
+            node.children[branch] = split;
+            if (common == length) {
+                split.bans.add(ban);
+            } else {
+                Node leaf = new Node(prefix, length);
+                leaf.bans.add(ban);
+                split.children[bit(prefix, common)] = leaf;
+            }
+            size++;
+            return;
+        }
+    }
+
+    public synchronized boolean remove(IPRange range, int id) {
+        byte[] prefix = range.getAddress();
+        int length = range.getPrefixLength();
+        Node grandparent = null;
+        Node parent = null;
+        Node node = root(prefix);
+
+        while (node.length < length) {
+            Node child = node.children[bit(prefix, node.length)];
+            if (child == null || child.length > length || commonLength(child.prefix, prefix, node.length, child.length) < child.length) {
+                return false;
+            }
+            grandparent = parent;
+            parent = node;
+            node = child;
+        }
+
+        if (!node.bans.removeIf(ban -> ban.getId() == id)) {
+            return false;
+        }
+        size--;
+
+        // Keep the tree compressed: drop or bypass nodes left without bans, and a split node left with one child
+        if (parent != null && collapse(parent, node, prefix) && grandparent != null) {
+            collapse(grandparent, parent, prefix);
+        }
+        return true;
+    }
+
+    /**
+     * Unlinks the node from its parent if it holds no bans and has at most one child
+     *
+     * @return true if the node was unlinked
+     */
+    private static boolean collapse(Node parent, Node node, byte[] path) {
+        if (!node.bans.isEmpty() || (node.children[0] != null && node.children[1] != null)) {
+            return false;
+        }
+        parent.children[bit(path, parent.length)] = (node.children[0] != null) ? node.children[0] : node.children[1];
+        return true;
+    }
+
+    /**
+     * Finds the most specific range ban containing the address
+     *
+     * @param ip 4 or 16 address bytes
+     */
+    public synchronized Ban find(byte[] ip) {
+        if (ip == null || (ip.length != 4 && ip.length != 16)) {
+            return null;
+        }
+
+        Node node = root(ip);
+        int matched = 0;
+        Ban best = null;
+        while (node != null) {
+            if (commonLength(node.prefix, ip, matched, node.length) < node.length) {
+                break;
+            }
+            matched = node.length;
+            if (!node.bans.isEmpty()) {
+                best = node.bans.get(0);
+            }
+            if (matched == ip.length * 8) {
+                break;
+            }
+            node = node.children[bit(ip, matched)];
+        }
+        return best;
+    }
+
+    /**
+     * @return every ban in the tree
+     */
+    public synchronized List<Ban> getBans() {
+        List<Ban> bans = new ArrayList<>(size);
+        collect(ipv4, bans);
+        collect(ipv6, bans);
+        return Collections.unmodifiableList(bans);
+    }
+
+    private static void collect(Node node, List<Ban> bans) {
+        if (node == null) {
+            return;
+        }
+        bans.addAll(node.bans);
+        collect(node.children[0], bans);
+        collect(node.children[1], bans);
+    }
+
+    private Node root(byte[] address) {
+        return (address.length == 4) ? ipv4 : ipv6;
+    }
+
+    static int bit(byte[] address, int index) {
+        return (address[index >> 3] >>> (7 - (index & 7))) & 1;
+    }
+
+    private static int commonLength(byte[] a, byte[] b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bit(a, i) != bit(b, i)) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static class Node {
+        private final byte[] prefix;
+        private final int length;
+        private final List<Ban> bans = new ArrayList<>(1);
+        private final Node[] children = new Node[2];
+
+        Node(byte[] prefix, int length) {
+            this.prefix = prefix;
+            this.length = length;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package net.cubespace.geSuit.commands;
 
 import net.cubespace.geSuit.Utilities;
+import net.cubespace.geSuit.cache.IPRange;
 import net.cubespace.geSuit.managers.BansManager;
 import net.cubespace.geSuit.managers.ConfigManager;
 import net.cubespace.geSuit.managers.PlayerManager;
@@ -38,7 +39,7 @@ public class BanCommand extends Command {
             reason = builder.toString();
         }
         
-        if (Utilities.isIPAddress(args[0])) {
+        if (Utilities.isIPAddress(args[0]) || IPRange.isIPRange(args[0])) {
             BansManager.banIP(sender.getName(), args[0], reason);
         } else {
             if (reason.isEmpty()) {
@@ -1,7 +1,14 @@
 package net.cubespace.geSuit.commands;
 
+import net.cubespace.geSuit.cache.ProfileCache;
+import net.cubespace.geSuit.database.ConnectionPool;
+import net.cubespace.geSuit.database.LatencyHistogram;
+import net.cubespace.geSuit.database.LoginGate;
+import net.cubespace.geSuit.database.ReplicaRouter;
 import net.cubespace.geSuit.geSuit;
+import net.cubespace.geSuit.managers.BansManager;
 import net.cubespace.geSuit.managers.ConfigManager;
+import net.cubespace.geSuit.managers.DatabaseManager;
 import net.cubespace.geSuit.managers.PlayerManager;
 import net.cubespace.geSuit.objects.GSPlayer;
 import net.md_5.bungee.api.ChatColor;
@@ -10,6 +17,7 @@ import net.md_5.bungee.api.connection.ProxiedPlayer;
 import net.md_5.bungee.api.connection.Server;
 import net.md_5.bungee.api.plugin.Command;
 
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -44,12 +52,15 @@ public class DebugCommand extends Command
 					PlayerManager.sendMessageToTarget(sender, ChatColor.GREEN + "geSuit Debug Commands:");
 					PlayerManager.sendMessageToTarget(sender, ChatColor.YELLOW + "/gsdebug onlineplayers" + ChatColor.WHITE + " - Dump online player list");
 					PlayerManager.sendMessageToTarget(sender, ChatColor.YELLOW + "/gsdebug cachedplayers" + ChatColor.WHITE + " - Dump cached player list");
+					PlayerManager.sendMessageToTarget(sender, ChatColor.YELLOW + "/gsdebug database" + ChatColor.WHITE + " - Show database pool statistics");
+					PlayerManager.sendMessageToTarget(sender, ChatColor.YELLOW + "/gsdebug bans" + ChatColor.WHITE + " - Show ban index and pending expirations");
+					PlayerManager.sendMessageToTarget(sender, ChatColor.YELLOW + "/gsdebug logins" + ChatColor.WHITE + " - Show the login queue and login latencies");
 					break;
 				case "onlineplayers":
 					// Useful for troubleshooting issues with the onlinePlayers map
 					PlayerManager.sendMessageToTarget(sender, "List of entries in onlinePlayers:");
-					for (String player : PlayerManager.onlinePlayers.keySet()) {
-						GSPlayer gs = PlayerManager.onlinePlayers.get(player);
+					for (GSPlayer gs : PlayerManager.getPlayers()) {
+						String player = gs.getName().toLowerCase();
 						Boolean gsvalid = false;
 						Boolean ppvalid = false;
 						String sname = "";
@@ -74,8 +85,9 @@ public class DebugCommand extends Command
 				case "cachedplayers":
 					// Useful for troubleshooting issues with the onlinePlayers map
 					PlayerManager.sendMessageToTarget(sender, "List of entries in cachedplayers:");
-					for (UUID uuid : PlayerManager.cachedPlayers.keySet()) {
-						GSPlayer gs = PlayerManager.cachedPlayers.get(uuid);
+					for (Map.Entry<UUID, GSPlayer> entry : PlayerManager.cachedPlayers().entrySet()) {
+						UUID uuid = entry.getKey();
+						GSPlayer gs = entry.getValue();
 						Boolean gsvalid = false;
 						Boolean ppvalid = false;
 						String sname = "";
@@ -97,6 +109,47 @@ public class DebugCommand extends Command
 								ChatColor.WHITE + " / SRV:" + (!sname.isEmpty() ? ChatColor.GREEN + sname : ChatColor.RED + "none"));
 					}
 					break;
+				case "database":
+					ConnectionPool pool = DatabaseManager.connectionPool;
+					long hits = pool.getStatementCacheHits();
+					long misses = pool.getStatementCacheMisses();
+					PlayerManager.sendMessageToTarget(sender, ChatColor.GREEN + "Database pool:");
+					PlayerManager.sendMessageToTarget(sender, "  " + ChatColor.AQUA + "Connections: " + ChatColor.WHITE + pool.getOpenConnections() + " open, " +
+							pool.getIdleConnections() + " idle, " + pool.getWaitingThreads() + " waiting");
+					PlayerManager.sendMessageToTarget(sender, "  " + ChatColor.AQUA + "Queued tasks: " + ChatColor.WHITE + pool.getQueuedTasks() +
+							", queued writes: " + DatabaseManager.writeBehind.getQueueDepth());
+					PlayerManager.sendMessageToTarget(sender, "  " + ChatColor.AQUA + "Statement cache: " + ChatColor.WHITE + hits + " hits, " + misses + " misses" +
+							((hits + misses) > 0 ? " (" + (hits * 100 / (hits + misses)) + "% hit rate)" : ""));
+					ProfileCache profiles = DatabaseManager.players.getProfileCache();
+					long profileHits = profiles.getHits();
+					long profileMisses = profiles.getMisses();
+					PlayerManager.sendMessageToTarget(sender, "  " + ChatColor.AQUA + "Profile cache: " + ChatColor.WHITE + profiles.size() + " players, " + profileHits + " hits, " + profileMisses + " misses" +
+							((profileHits + profileMisses) > 0 ? " (" + (profileHits * 100 / (profileHits + profileMisses)) + "% hit rate)" : ""));
+					ReplicaRouter reports = DatabaseManager.reports;
+					if (reports.isEnabled()) {
+						PlayerManager.sendMessageToTarget(sender, "  " + ChatColor.AQUA + "Read replica: " + (reports.isHealthy() ? ChatColor.GREEN + "in use" : ChatColor.RED + "not in use") +
+								ChatColor.WHITE + ", lag " + (reports.getLag() < 0 ? "unknown" : reports.getLag() + "s") + ", " + reports.getReplica().getOpenConnections() + " connections open");
+					}
+					break;
+				case "bans":
+					PlayerManager.sendMessageToTarget(sender, ChatColor.GREEN + "Bans:");
+					PlayerManager.sendMessageToTarget(sender, "  " + ChatColor.AQUA + "Active bans in memory: " + ChatColor.WHITE + BansManager.getBanIndexSize());
+					PlayerManager.sendMessageToTarget(sender, "  " + ChatColor.AQUA + "Pending expirations: " + ChatColor.WHITE + BansManager.getPendingTempBanExpiries() + " temp bans, " +
+							BansManager.getPendingKickExpiries() + " kicks");
+					break;
+				case "logins":
+					LoginGate logins = DatabaseManager.logins;
+					PlayerManager.sendMessageToTarget(sender, ChatColor.GREEN + "Logins:");
+					PlayerManager.sendMessageToTarget(sender, "  " + ChatColor.AQUA + "Loading: " + ChatColor.WHITE + logins.getActive() + "/" + logins.getLimit() +
+							", queued: " + logins.getQueued() + ", turned away: " + logins.getRejected());
+					int known = PlayerManager.getKnownPlayerCount();
+					PlayerManager.sendMessageToTarget(sender, "  " + ChatColor.AQUA + "Known players: " + ChatColor.WHITE + (known < 0 ? "not loaded" : known));
+					for (LoginGate.Stage stage : LoginGate.Stage.values()) {
+						LatencyHistogram latency = logins.getLatency(stage);
+						PlayerManager.sendMessageToTarget(sender, "  " + ChatColor.AQUA + stage.name().toLowerCase() + ": " + ChatColor.WHITE + latency.getCount() + " timed, p50 " +
+								latency.getPercentile(50) + "ms, p99 " + latency.getPercentile(99) + "ms, max " + latency.getMax() + "ms");
+					}
+					break;
 				default:
 					PlayerManager.sendMessageToTarget(sender, "ERROR: Invalid debug action");
 					break;
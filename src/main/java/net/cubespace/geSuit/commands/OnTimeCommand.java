@@ -31,10 +31,10 @@ public class OnTimeCommand extends Command {
                     PlayerManager.sendMessageToTarget(sender, "You specified an invalid page number.");
                     return;
                 }
-                BansManager.displayOnTimeTop(sender.getName(), page);
-            } else {
-                BansManager.displayPlayerOnTime(sender.getName(), args[0]);
             }
+            BansManager.displayOnTimeTop(sender.getName(), page);
+        } else {
+            BansManager.displayPlayerOnTime(sender.getName(), args[0]);
         }
     }
 }
@@ -4,6 +4,9 @@ import net.cubespace.geSuit.managers.ConfigManager;
 import net.cubespace.geSuit.managers.PlayerManager;
 import net.md_5.bungee.api.CommandSender;
 import net.md_5.bungee.api.plugin.Command;
+import net.md_5.bungee.api.plugin.TabExecutor;
+
+import java.util.Collections;
 
 /**
  * Command: /seen
@@ -11,7 +14,7 @@ import net.md_5.bungee.api.plugin.Command;
  * Arguments: none
  * What does it do: Displays @link{GSPlayer} last online time
  */
-public class SeenCommand extends Command {
+public class SeenCommand extends Command implements TabExecutor {
     public SeenCommand() {
         super("seen");
     }
@@ -29,6 +32,15 @@ public class SeenCommand extends Command {
             return;
         }
 
-        PlayerManager.sendMessageToTarget(sender, PlayerManager.getLastSeeninfos(args[0], sender.hasPermission("gesuit.seen.extra"), sender.hasPermission("gesuit.seen.vanish")));
+        PlayerManager.getLastSeeninfos(args[0], sender.hasPermission("gesuit.seen.extra"), sender.hasPermission("gesuit.seen.vanish"))
+                .thenAccept(message -> PlayerManager.sendMessageToTarget(sender, message));
+    }
+
+    @Override
+    public Iterable<String> onTabComplete(CommandSender sender, String[] args) {
+        if (args.length != 1 || !(sender.hasPermission("gesuit.seen") || sender.hasPermission("gesuit.admin"))) {
+            return Collections.emptyList();
+        }
+        return PlayerManager.completePlayerName(args[0]);
     }
 }
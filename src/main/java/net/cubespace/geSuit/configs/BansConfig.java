@@ -30,6 +30,7 @@ public class BansConfig extends YamlConfig {
     public int KickLimit = 0; // if 0 temp banning after kicks is off.
     public long KicksTimeOut = 600000; //time in ms that kicks are considered active
     public long TempBanTime = 300000; // Time in ms that a player is autobanned for
+    public int BanIndexReconcileInterval = 300; // Seconds between reloads of the in-memory ban list from the database
 
     // List of strings to look for in ban reasons for the purposes of ignoring the ban when counting kicks
     public List<String> KickReasonIgnoreList = new ArrayList<>(Arrays.asList("AutoKick: Anti-AFK"));
@@ -19,6 +19,11 @@ public class MainConfig extends YamlConfig {
         CONFIG_MODE = ConfigMode.PATH_BY_UNDERSCORE;
     }
     public Database Database = new Database();
+    @Comment("Send history and report lookups (/where, /ontime top, /warnhistory, /names, /lastlogins) to a read replica of the database above")
+    public Boolean UseReadReplica = false;
+    public Database ReadReplica = new Database();
+    @Comment("Seconds the replica may fall behind before those lookups go back to the main database")
+    public Integer ReadReplicaMaxLag = 30;
 
     @Comment("This can be used if you have multiple Proxies to seperate the Homes in it")
     public String Table_Homes = "homes";
@@ -34,8 +39,30 @@ public class MainConfig extends YamlConfig {
     public String Table_Spawns = "spawns";
     @Comment("This can be used if you have multiple Proxies to seperate the Tracking in it")
     public String Table_Tracking = "tracking";
+    @Comment("Every IP seen in Table_Tracking, numbered for the association table")
+    public String Table_TrackingIPs = "tracking_ips";
+    @Comment("Which accounts have used which IP, kept up to date from Table_Tracking")
+    public String Table_TrackingEdges = "tracking_edges";
+    @Comment("Tracking rows older than TrackingRetentionDays are moved here")
+    public String Table_TrackingArchive = "tracking_archive";
     @Comment("This can be used if you have multiple Proxies to seperate the Ontime in it")
     public String Table_OnTime = "ontime";
+    @Comment("Daily on-time totals per player, kept up to date from Table_OnTime")
+    public String Table_OnTimeDaily = "ontime_daily";
+    @Comment("Monthly on-time totals per player, kept up to date from Table_OnTime")
+    public String Table_OnTimeMonthly = "ontime_monthly";
+    @Comment("Lifetime on-time per player, used for /ontime top")
+    public String Table_OnTimeTotal = "ontime_total";
+    @Comment("Records which schema migrations have been applied")
+    public String Table_SchemaVersion = "schema_version";
+
+    @Comment("Tracking rows not seen for this many days are moved to the archive table, 0 keeps them all")
+    public Integer TrackingRetentionDays = 0;
+    @Comment("Minutes between tracking compaction runs, 0 turns compaction off")
+    public Integer TrackingCompactionInterval = 60;
+    @Comment("Rows changed per transaction by tracking compaction, and milliseconds to wait between transactions")
+    public Integer TrackingCompactionChunk = 500;
+    public Integer TrackingCompactionPause = 250;
 
     public Boolean ConvertFromBungeeSuite = false;
     public Database BungeeSuiteDatabase = new Database();
@@ -59,7 +86,7 @@ public class MainConfig extends YamlConfig {
     public Boolean Inited = false;
 
     @Comment("Stored version informations. If you alter this you can damage your Database")
-    public Integer Version_Database_Ban = 3;
+    public Integer Version_Database_Ban = 4;
     @Comment("Stored version informations. If you alter this you can damage your Database")
     public Integer Version_Database_Homes = 2;
     @Comment("Stored version informations. If you alter this you can damage your Database")
@@ -164,6 +164,7 @@ public class Messages extends YamlConfig {
     public String ONTIME_TIME_YEAR = "&6This year:&f {diff}";
     public String ONTIME_TIME_TOTAL = "&6Total ontime:&f {diff}";
     public String ONTIME_TIME_TOP = "&e{num}: &b{time}&a {player}";
+    public String ONTIME_RANK = "&6Rank:&f #{rank} of {players}";
 
     //LastLogin messages
     public String BUNGEE_COMMAND_LASTLOGINS_USAGE = "&c" + "Usage: !lastlogins <player> <num>";
@@ -171,5 +172,7 @@ public class Messages extends YamlConfig {
 
     //Lockdown messages
     public String LOCKDOWN_MESSAGE = "&c" + "Server is in maintenance. {message}";
+    public String LOGIN_FAILED = "&c" + "Your player data could not be loaded. Please try again in a moment.";
+    public String LOGIN_BUSY = "&c" + "Too many players are connecting right now. Please try again in a moment.";
     public String LOCKDOWN_USAGE = "&c" + "Usage: !lockdown end|status|<time> <msg>  (time format like 1h5m10s)";
 }
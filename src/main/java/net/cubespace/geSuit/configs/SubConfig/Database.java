@@ -1,5 +1,6 @@
 package net.cubespace.geSuit.configs.SubConfig;
 
+import net.cubespace.Yamler.Config.Comment;
 import net.cubespace.Yamler.Config.YamlConfig;
 
 /**
@@ -11,6 +12,29 @@ public class Database extends YamlConfig {
     public String Port = "3306";
     public String Username = "username";
     public String Password = "password";
+    @Comment("Number of connections opened when the plugin starts and kept open while idle")
     public Integer Threads = 5;
+    @Comment("Hard limit on open connections. Callers wait for a free connection once this is reached")
+    public Integer MaxConnections = 10;
+    @Comment("Time in ms to wait for a free connection before giving up")
+    public Integer BorrowTimeout = 5000;
+    @Comment("Connections idle for longer than this many ms are checked before they are handed out")
+    public Integer ValidateAfterIdle = 5000;
+    @Comment("Prepared statements kept open per connection. Statements are prepared the first time they are used")
+    public Integer StatementCacheSize = 48;
+    @Comment("Seconds between flushes of queued player, tracking and ontime updates")
+    public Integer WriteBehindInterval = 5;
+    @Comment("Flush queued updates early once this many players are waiting")
+    public Integer WriteBehindBatchSize = 500;
+    @Comment("Offline players kept in memory for lookups by name or uuid, such as /seen and offline bans")
+    public Integer ProfileCacheSize = 2000;
+    @Comment("Seconds a cached offline player is trusted before it is read again")
+    public Integer ProfileCacheTTL = 300;
+    @Comment("Logins loading their data at once. 0 uses a third of MaxConnections, as each login runs up to three queries")
+    public Integer LoginConcurrency = 0;
+    @Comment("Logins that may wait for a free slot. Any more are turned away with the LOGIN_BUSY message")
+    public Integer LoginQueueSize = 250;
+    @Comment("Seconds a login may wait in the queue before it is turned away")
+    public Integer LoginQueueTimeout = 15;
     public Boolean useSSL = false;
 }
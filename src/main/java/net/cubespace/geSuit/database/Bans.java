@@ -11,7 +11,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -25,28 +27,28 @@ public class Bans implements IRepository {
     }
 
     public boolean isPlayerBanned(String player, String uuid, String ip) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-
         try {
-            PreparedStatement isPlayerBanned = connectionHandler.getPreparedStatement("isPlayerBanned");
-            isPlayerBanned.setString(1, player);
-            isPlayerBanned.setString(2, uuid);
-            isPlayerBanned.setString(3, ip);
-
-            return isPlayerBanned.executeQuery().next();
+            return DatabaseManager.connectionPool.read(connectionHandler -> {
+                PreparedStatement isPlayerBanned = connectionHandler.getPreparedStatement("isPlayerBanned");
+                isPlayerBanned.setString(1, player);
+                isPlayerBanned.setString(2, uuid);
+                isPlayerBanned.setString(3, ip);
+
+                return isPlayerBanned.executeQuery().next();
+            });
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
 
         return false;
     }
 
-    public int banPlayer(String banned_playername, String banned_uuid, String banned_ip, String bannedBy, String reason, String type) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
+    public CompletableFuture<Boolean> isPlayerBannedAsync(String player, String uuid, String ip) {
+        return DatabaseManager.connectionPool.supplyAsync(() -> isPlayerBanned(player, uuid, ip));
+    }
 
-        try {
+    public int banPlayer(String banned_playername, String banned_uuid, String banned_ip, String bannedBy, String reason, String type) {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
             PreparedStatement banPlayer = connectionHandler.getPreparedStatement("banPlayer");
             banPlayer.setString(1, banned_playername);
             banPlayer.setString(2, banned_uuid);
@@ -62,17 +64,13 @@ public class Bans implements IRepository {
             }
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
 
         return -1;
     }
 
     public int warnPlayer(String banned_playername, String banned_uuid, String bannedBy, String reason) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-
-        try {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
             PreparedStatement banPlayer = connectionHandler.getPreparedStatement("warnPlayer");
             banPlayer.setString(1, banned_playername);
             banPlayer.setString(2, banned_uuid);
@@ -86,17 +84,13 @@ public class Bans implements IRepository {
             }
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
 
         return -1;
     }
 
     public int kickPlayer(String banned_playername, String banned_uuid, String bannedBy, String reason) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-
-        try {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
             PreparedStatement banPlayer = connectionHandler.getPreparedStatement("kickPlayer");
             banPlayer.setString(1, banned_playername);
             banPlayer.setString(2, banned_uuid);
@@ -110,17 +104,13 @@ public class Bans implements IRepository {
             }
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
 
         return -1;
     }
 
-    public void tempBanPlayer(String banned_playername, String banned_uuid, String banned_by, String reason, String till) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-
-        try {
+    public int tempBanPlayer(String banned_playername, String banned_uuid, String banned_by, String reason, String till) {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
             PreparedStatement tempBanPlayer = connectionHandler.getPreparedStatement("tempBanPlayer");
             tempBanPlayer.setString(1, banned_playername);
             tempBanPlayer.setString(2, banned_uuid);
@@ -129,18 +119,21 @@ public class Bans implements IRepository {
             tempBanPlayer.setString(5, till);
 
             tempBanPlayer.executeUpdate();
+            ResultSet rs = tempBanPlayer.getGeneratedKeys();
+            if (rs != null && rs.next()) {
+                return rs.getInt(1);
+            }
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
+
+        return -1;
     }
 
     public List<Ban> getBanHistory(String lookup) {
         List<Ban> bans = new ArrayList<>();
 
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-        try {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
             PreparedStatement banInfo = connectionHandler.getPreparedStatement("banHistory");
             banInfo.setString(1, lookup);
             banInfo.setString(2, lookup);
@@ -154,42 +147,53 @@ public class Bans implements IRepository {
             res.close();
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
 
         return bans;
     }
 
+    /**
+     * Warning history for display. Read from the replica when there is one, so it can lag behind the latest warning
+     */
     public List<Ban> getWarnHistory(String player, String uuid) {
-        List<Ban> bans = new ArrayList<>();
+        try {
+            return DatabaseManager.reports.read(connectionHandler -> readWarnHistory(connectionHandler, player, uuid));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
 
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
+    /**
+     * Warning history from the primary, including a warning that was just written
+     */
+    public List<Ban> getCurrentWarnHistory(String player, String uuid) {
         try {
-            PreparedStatement banInfo = connectionHandler.getPreparedStatement("warnHistory");
-            banInfo.setString(1, player);
-            banInfo.setString(2, uuid);
+            return DatabaseManager.connectionPool.read(connectionHandler -> readWarnHistory(connectionHandler, player, uuid));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
 
-            ResultSet res = banInfo.executeQuery();
+    private List<Ban> readWarnHistory(ConnectionHandler connectionHandler, String player, String uuid) throws SQLException {
+        List<Ban> bans = new ArrayList<>();
+        PreparedStatement banInfo = connectionHandler.getPreparedStatement("warnHistory");
+        banInfo.setString(1, player);
+        banInfo.setString(2, uuid);
+
+        try (ResultSet res = banInfo.executeQuery()) {
             while (res.next()) {
                 bans.add(new Ban(res.getInt("id"), res.getString("banned_playername"), res.getString("banned_uuid"), res.getString("banned_ip"), res.getString("banned_by"), res.getString("reason"), res.getString("type"), res.getInt("active"), res.getTimestamp("banned_on"), res.getTimestamp("banned_until")));
             }
-
-            res.close();
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
-
         return bans;
     }
 
     public List<Ban> getKickHistory(String player, String uuid) {
         List<Ban> bans = new ArrayList<>();
 
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-        try {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
             PreparedStatement banInfo = connectionHandler.getPreparedStatement("kickHistory");
             banInfo.setString(1, player);
             banInfo.setString(2, uuid);
@@ -202,8 +206,6 @@ public class Bans implements IRepository {
             res.close();
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
 
         return bans;
@@ -212,8 +214,7 @@ public class Bans implements IRepository {
     public List<Ban> getKickWarnHistory(String player, String uuid) {
         List<Ban> bans = new ArrayList<>();
 
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-        try {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
             PreparedStatement banInfo = connectionHandler.getPreparedStatement("kickwarnHistory");
             banInfo.setString(1, player);
             banInfo.setString(2, uuid);
@@ -226,8 +227,6 @@ public class Bans implements IRepository {
             res.close();
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
 
         return bans;
@@ -238,49 +237,121 @@ public class Bans implements IRepository {
     }
 
     public Ban getBanInfo(String player, String uuid, String ip) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
+        try {
+            return DatabaseManager.connectionPool.read(connectionHandler -> getBanInfo(connectionHandler, player, uuid, ip));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
 
+    /**
+     * Looks up the active ban on a connection the caller already holds
+     */
+    public Ban getBanInfo(ConnectionHandler connectionHandler, String player, String uuid, String ip) throws SQLException {
         Ban b = null;
+        PreparedStatement banInfo = connectionHandler.getPreparedStatement("banInfo");
+        banInfo.setString(1, player);
+        banInfo.setString(2, uuid);
+        banInfo.setString(3, ip);
+
+        ResultSet res = banInfo.executeQuery();
+        if (res.next()) {
+            b = new Ban(res.getInt("id"), res.getString("banned_playername"), res.getString("banned_uuid"), res.getString("banned_ip"), res.getString("banned_by"), res.getString("reason"), res.getString("type"), res.getInt("active"), res.getTimestamp("banned_on"), res.getTimestamp("banned_until"));
+        }
+
+        res.close();
+        return b;
+    }
 
+    /**
+     * Reads every active ban, for the in-memory ban index
+     *
+     * @return the bans, or null if they could not be read
+     */
+    public List<Ban> getActiveBans() {
         try {
-            PreparedStatement banInfo = connectionHandler.getPreparedStatement("banInfo");
-            banInfo.setString(1, player);
-            banInfo.setString(2, uuid);
-            banInfo.setString(3, ip);
+            return DatabaseManager.connectionPool.read(connectionHandler -> {
+                List<Ban> bans = new ArrayList<>();
+                PreparedStatement activeBans = connectionHandler.getPreparedStatement("activeBans");
 
-            ResultSet res = banInfo.executeQuery();
-            if (res.next()) {
-                b = new Ban(res.getInt("id"), res.getString("banned_playername"), res.getString("banned_uuid"), res.getString("banned_ip"), res.getString("banned_by"), res.getString("reason"), res.getString("type"), res.getInt("active"), res.getTimestamp("banned_on"), res.getTimestamp("banned_until"));
-            }
+                ResultSet res = activeBans.executeQuery();
+                while (res.next()) {
+                    bans.add(new Ban(res.getInt("id"), res.getString("banned_playername"), res.getString("banned_uuid"), res.getString("banned_ip"), res.getString("banned_by"), res.getString("reason"), res.getString("type"), res.getInt("active"), res.getTimestamp("banned_on"), res.getTimestamp("banned_until")));
+                }
 
-            res.close();
+                res.close();
+                return bans;
+            });
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
 
-        return b;
+        return null;
     }
 
-    public void unbanPlayer(int id) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-
+    /**
+     * @param cidr the range as written by {@link net.cubespace.geSuit.cache.IPRange#toString()}
+     */
+    public Ban getRangeBan(String cidr) {
         try {
+            return DatabaseManager.connectionPool.read(connectionHandler -> {
+                Ban b = null;
+                PreparedStatement rangeBanInfo = connectionHandler.getPreparedStatement("rangeBanInfo");
+                rangeBanInfo.setString(1, cidr);
+
+                ResultSet res = rangeBanInfo.executeQuery();
+                if (res.next()) {
+                    b = new Ban(res.getInt("id"), res.getString("banned_playername"), res.getString("banned_uuid"), res.getString("banned_ip"), res.getString("banned_by"), res.getString("reason"), res.getString("type"), res.getInt("active"), res.getTimestamp("banned_on"), res.getTimestamp("banned_until"));
+                }
+
+                res.close();
+                return b;
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    public CompletableFuture<Ban> getBanInfoAsync(String player, String uuid, String ip) {
+        return DatabaseManager.connectionPool.supplyAsync(() -> getBanInfo(player, uuid, ip));
+    }
+
+    public void unbanPlayer(int id) {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
             PreparedStatement unbanPlayer = connectionHandler.getPreparedStatement("unbanPlayer");
             unbanPlayer.setInt(1, id);
             unbanPlayer.executeUpdate();
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
     }
 
-    public void insertBanConvert(String bannedBy, String player, String uuid, String ip, String reason, String type, int active, Date bannedOn, Date bannedUntil) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
+    /**
+     * Deactivates several bans in one batch
+     */
+    public void unbanPlayers(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
 
-        try {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
+            PreparedStatement unbanPlayer = connectionHandler.getPreparedStatement("unbanPlayer");
+            for (int id : ids) {
+                unbanPlayer.setInt(1, id);
+                unbanPlayer.addBatch();
+            }
+            unbanPlayer.executeBatch();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void insertBanConvert(String bannedBy, String player, String uuid, String ip, String reason, String type, int active, Date bannedOn, Date bannedUntil) {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
             PreparedStatement insertBanConvert = connectionHandler.getPreparedStatement("insertBanConvert");
             insertBanConvert.setString(1, player); //playerName
             insertBanConvert.setString(2, uuid); //UUID
@@ -295,8 +366,6 @@ public class Bans implements IRepository {
             insertBanConvert.executeUpdate();
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
     }
 
@@ -305,7 +374,7 @@ public class Bans implements IRepository {
         return new String[]{ConfigManager.main.Table_Bans, "id INT(11) NOT NULL AUTO_INCREMENT,"
                 + "banned_playername VARCHAR(100), "
                 + "banned_uuid VARCHAR(100), "
-                + "banned_ip VARCHAR(15), "
+                + "banned_ip VARCHAR(45), "
                 + "banned_by VARCHAR(100), "
                 + "reason VARCHAR(255), "
                 + "type VARCHAR(100), "
@@ -316,26 +385,29 @@ public class Bans implements IRepository {
     }
 
     @Override
-    public void registerPreparedStatements(ConnectionHandler connection) {
-        connection.addPreparedStatement("isPlayerBanned", "SELECT id FROM "+ ConfigManager.main.Table_Bans +" WHERE (banned_playername = ? OR banned_uuid = ? OR banned_ip = ?) AND type in ('ban', 'ipban', 'tempban') AND active = 1");
-        connection.addPreparedStatement("banPlayer", "INSERT INTO "+ ConfigManager.main.Table_Bans +" (banned_playername,banned_uuid,banned_ip,banned_by,reason,type,active,banned_on) VALUES (?,?,?,?,?,?,1,NOW());", PreparedStatement.RETURN_GENERATED_KEYS);
-        connection.addPreparedStatement("warnPlayer", "INSERT INTO "+ ConfigManager.main.Table_Bans +" (banned_playername,banned_uuid,banned_by,reason,type,active,banned_on) VALUES (?,?,?,?,'warn',0,NOW());", PreparedStatement.RETURN_GENERATED_KEYS);
-        connection.addPreparedStatement("kickPlayer", "INSERT INTO " + ConfigManager.main.Table_Bans + " (banned_playername,banned_uuid,banned_by,reason,type,active,banned_on) VALUES (?,?,?,?,'kick',0,NOW());", PreparedStatement.RETURN_GENERATED_KEYS);
-        connection.addPreparedStatement("unbanPlayer", "UPDATE "+ ConfigManager.main.Table_Bans +" SET active = 0 WHERE id = ?");
-        connection.addPreparedStatement("banInfo", "SELECT * FROM "+ ConfigManager.main.Table_Bans +" WHERE (banned_playername = ? OR banned_uuid = ? OR banned_ip = ?) AND type in ('ban', 'ipban', 'tempban') AND active = 1 ORDER BY type");
-        connection.addPreparedStatement("banHistory", "SELECT * FROM "+ ConfigManager.main.Table_Bans +" WHERE (banned_playername = ? OR banned_uuid = ? OR banned_ip = ?) AND type in ('ban', 'ipban', 'tempban') ORDER BY id ASC");
-        connection.addPreparedStatement("warnHistory", "SELECT * FROM "+ ConfigManager.main.Table_Bans +" WHERE (banned_playername = ? OR banned_uuid = ? ) AND type = 'warn' ORDER BY id ASC");
-        connection.addPreparedStatement("kickHistory", "SELECT * FROM " + ConfigManager.main.Table_Bans + " WHERE (banned_playername = ? OR banned_uuid = ? ) AND type = 'kick' ORDER BY id ASC");
-        connection.addPreparedStatement("kickwarnHistory", "SELECT * FROM " + ConfigManager.main.Table_Bans + " WHERE (banned_playername = ? OR banned_uuid = ? ) AND type in ('kick','warn') ORDER BY id ASC");
-
-        connection.addPreparedStatement("tempBanPlayer", "INSERT INTO "+ ConfigManager.main.Table_Bans +" (banned_playername,banned_uuid,banned_by,reason,type,active,banned_on,banned_until) VALUES(?,?,?,?,'tempban',1,NOW(),?)", PreparedStatement.RETURN_GENERATED_KEYS);
-        connection.addPreparedStatement("insertBanConvert", "INSERT INTO "+ ConfigManager.main.Table_Bans +" (banned_playername,banned_uuid,banned_ip,banned_by,reason,type,active,banned_on,banned_until) VALUES(?,?,?,?,?,?,?,?,?)", PreparedStatement.RETURN_GENERATED_KEYS);
-        connection.addPreparedStatement("getBans", "SELECT * FROM "+ ConfigManager.main.Table_Bans);
-        connection.addPreparedStatement("updateRowUUID", "UPDATE "+ ConfigManager.main.Table_Bans +" SET banned_uuid = ? WHERE id = ?");
-        connection.addPreparedStatement("updateToUUID", "UPDATE "+ ConfigManager.main.Table_Bans +" SET banned_uuid = ? WHERE id = ?");
-        connection.addPreparedStatement("updateToVersion3-part1", "ALTER TABLE `"+ ConfigManager.main.Table_Bans +"` CHANGE `display` `banned_playername` VARCHAR( 100 );  ");
-        connection.addPreparedStatement("updateToVersion3-part2", "ALTER TABLE `"+ ConfigManager.main.Table_Bans +"` CHANGE `banned_entity` `banned_uuid` VARCHAR( 100 );  ");
-        connection.addPreparedStatement("updateToVersion3-part3", "ALTER TABLE `"+ ConfigManager.main.Table_Bans +"` ADD `banned_ip` VARCHAR( 15 ) NULL AFTER `banned_uuid`  ");
+    public void registerPreparedStatements(StatementRegistry statements) {
+        statements.addPreparedStatement("isPlayerBanned", "SELECT id FROM "+ ConfigManager.main.Table_Bans +" WHERE (banned_playername = ? OR banned_uuid = ? OR banned_ip = ?) AND type in ('ban', 'ipban', 'tempban') AND active = 1");
+        statements.addPreparedStatement("banPlayer", "INSERT INTO "+ ConfigManager.main.Table_Bans +" (banned_playername,banned_uuid,banned_ip,banned_by,reason,type,active,banned_on) VALUES (?,?,?,?,?,?,1,NOW());", PreparedStatement.RETURN_GENERATED_KEYS);
+        statements.addPreparedStatement("warnPlayer", "INSERT INTO "+ ConfigManager.main.Table_Bans +" (banned_playername,banned_uuid,banned_by,reason,type,active,banned_on) VALUES (?,?,?,?,'warn',0,NOW());", PreparedStatement.RETURN_GENERATED_KEYS);
+        statements.addPreparedStatement("kickPlayer", "INSERT INTO " + ConfigManager.main.Table_Bans + " (banned_playername,banned_uuid,banned_by,reason,type,active,banned_on) VALUES (?,?,?,?,'kick',0,NOW());", PreparedStatement.RETURN_GENERATED_KEYS);
+        statements.addPreparedStatement("unbanPlayer", "UPDATE "+ ConfigManager.main.Table_Bans +" SET active = 0 WHERE id = ?");
+        statements.addPreparedStatement("banInfo", "SELECT * FROM "+ ConfigManager.main.Table_Bans +" WHERE (banned_playername = ? OR banned_uuid = ? OR banned_ip = ?) AND type in ('ban', 'ipban', 'tempban') AND active = 1 ORDER BY type");
+        statements.addPreparedStatement("activeBans", "SELECT * FROM "+ ConfigManager.main.Table_Bans +" WHERE type in ('ban', 'ipban', 'rangeban', 'tempban') AND active = 1");
+        statements.addPreparedStatement("rangeBanInfo", "SELECT * FROM "+ ConfigManager.main.Table_Bans +" WHERE banned_ip = ? AND type = 'rangeban' AND active = 1");
+        statements.addPreparedStatement("banHistory", "SELECT * FROM "+ ConfigManager.main.Table_Bans +" WHERE (banned_playername = ? OR banned_uuid = ? OR banned_ip = ?) AND type in ('ban', 'ipban', 'tempban') ORDER BY id ASC");
+        statements.addPreparedStatement("warnHistory", "SELECT * FROM "+ ConfigManager.main.Table_Bans +" WHERE (banned_playername = ? OR banned_uuid = ? ) AND type = 'warn' ORDER BY id ASC");
+        statements.addPreparedStatement("kickHistory", "SELECT * FROM " + ConfigManager.main.Table_Bans + " WHERE (banned_playername = ? OR banned_uuid = ? ) AND type = 'kick' ORDER BY id ASC");
+        statements.addPreparedStatement("kickwarnHistory", "SELECT * FROM " + ConfigManager.main.Table_Bans + " WHERE (banned_playername = ? OR banned_uuid = ? ) AND type in ('kick','warn') ORDER BY id ASC");
+
+        statements.addPreparedStatement("tempBanPlayer", "INSERT INTO "+ ConfigManager.main.Table_Bans +" (banned_playername,banned_uuid,banned_by,reason,type,active,banned_on,banned_until) VALUES(?,?,?,?,'tempban',1,NOW(),?)", PreparedStatement.RETURN_GENERATED_KEYS);
+        statements.addPreparedStatement("insertBanConvert", "INSERT INTO "+ ConfigManager.main.Table_Bans +" (banned_playername,banned_uuid,banned_ip,banned_by,reason,type,active,banned_on,banned_until) VALUES(?,?,?,?,?,?,?,?,?)", PreparedStatement.RETURN_GENERATED_KEYS);
+        statements.addPreparedStatement("getBans", "SELECT * FROM "+ ConfigManager.main.Table_Bans);
+        statements.addPreparedStatement("updateRowUUID", "UPDATE "+ ConfigManager.main.Table_Bans +" SET banned_uuid = ? WHERE id = ?");
+        statements.addPreparedStatement("updateToUUID", "UPDATE "+ ConfigManager.main.Table_Bans +" SET banned_uuid = ? WHERE id = ?");
+        statements.addPreparedStatement("updateToVersion3-part1", "ALTER TABLE `"+ ConfigManager.main.Table_Bans +"` CHANGE `display` `banned_playername` VARCHAR( 100 );  ");
+        statements.addPreparedStatement("updateToVersion3-part2", "ALTER TABLE `"+ ConfigManager.main.Table_Bans +"` CHANGE `banned_entity` `banned_uuid` VARCHAR( 100 );  ");
+        statements.addPreparedStatement("updateToVersion3-part3", "ALTER TABLE `"+ ConfigManager.main.Table_Bans +"` ADD `banned_ip` VARCHAR( 15 ) NULL AFTER `banned_uuid`  ");
+        statements.addPreparedStatement("updateToVersion4", "ALTER TABLE `"+ ConfigManager.main.Table_Bans +"` MODIFY `banned_ip` VARCHAR( 45 ) NULL");
     }
 
     @Override
@@ -347,11 +419,9 @@ public class Bans implements IRepository {
 
         if (installedVersion < 2) {
             // Version 2 adds UUIDs as Field
-            ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-
             // Convert all Names to UUIDs
-            PreparedStatement getBans = connectionHandler.getPreparedStatement("getBans");
-            try {
+            try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
+                PreparedStatement getBans = connectionHandler.getPreparedStatement("getBans");
                 ResultSet res = getBans.executeQuery();
                 while (res.next()) {
                     String bannedEntity = res.getString("banned_uuid");
@@ -360,9 +430,7 @@ public class Bans implements IRepository {
                         String uuid = Utilities.getUUID(bannedEntity);
 
                         if (uuid != null) {
-                            ConnectionHandler connectionHandler1 = DatabaseManager.connectionPool.getConnection();
-
-                            try {
+                            try (ConnectionHandler connectionHandler1 = DatabaseManager.connectionPool.borrowConnection()) {
                                 PreparedStatement updateToUUID = connectionHandler1.getPreparedStatement("updateToUUID");
                                 updateToUUID.setString(1, uuid);
                                 updateToUUID.setInt(2, res.getInt("id"));
@@ -370,8 +438,6 @@ public class Bans implements IRepository {
                             } catch (SQLException e) {
                                 System.out.println("Could not update Ban for update to version 2");
                                 e.printStackTrace();
-                            } finally {
-                                connectionHandler1.release();
                             }
                         }
                     }
@@ -380,16 +446,12 @@ public class Bans implements IRepository {
                 System.out.println("Could not get Bans for update to version 2");
                 e.printStackTrace();
                 return;
-            } finally {
-                connectionHandler.release();
             }
         }
 
         if (installedVersion < 3) { //dimensionZ aggressive+freedom-of-ban update
-            ConnectionHandler connectionHandler = null;
             boolean updateCompleted = false;
-            try {
-                connectionHandler = DatabaseManager.connectionPool.getConnection();
+            try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
                 PreparedStatement updateToVersion3 = connectionHandler.getPreparedStatement("updateToVersion3-part1");
                 updateToVersion3.executeUpdate();
                 updateToVersion3 = connectionHandler.getPreparedStatement("updateToVersion3-part2");
@@ -401,10 +463,6 @@ public class Bans implements IRepository {
             } catch (SQLException ex) {
                 System.out.println("Could not get Bans for update to version 3");
                 Logger.getLogger(Bans.class.getName()).log(Level.SEVERE, null, ex);
-            } finally {
-                if (connectionHandler != null) {
-                    connectionHandler.release();
-                }
             }
             if (!updateCompleted) {
                 return;
@@ -417,5 +475,22 @@ public class Bans implements IRepository {
             }
         }
 
+        if (installedVersion < 4) { // Version 4 widens banned_ip for IPv6 addresses and CIDR range bans
+            try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
+                connectionHandler.getPreparedStatement("updateToVersion4").executeUpdate();
+                System.out.println("Updated Bans to version 4!");
+            } catch (SQLException ex) {
+                System.out.println("Could not update Bans to version 4");
+                Logger.getLogger(Bans.class.getName()).log(Level.SEVERE, null, ex);
+                return;
+            }
+            ConfigManager.main.Version_Database_Ban = 4;
+            try {
+                ConfigManager.main.save();
+            } catch (InvalidConfigurationException e) {
+                e.printStackTrace();
+            }
+        }
+
     }
 }
@@ -0,0 +1,76 @@
+package net.cubespace.geSuit.database;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Runs {@code IN (?, ?, ...)} lookups for any number of keys with a handful of statements. Keys are split into
+ * chunks of at most {@link #MAX_ARITY}, and each chunk is padded up to the next power of two by repeating its last
+ * key, so only statements with 1, 2, 4 ... 64 parameters are ever prepared and cached.
+ */
+public class BatchedLookup {
+    public static final int MAX_ARITY = 64;
+
+    /**
+     * Registers one statement per arity, named {@code name-1}, {@code name-2} ...
+     *
+     * @param query the query with {in} where the parameter list goes, e.g. {@code SELECT ... WHERE uuid IN {in}}
+     */
+    public static void register(StatementRegistry statements, String name, String query) {
+        for (int arity = 1; arity <= MAX_ARITY; arity <<= 1) {
+            statements.addPreparedStatement(name + "-" + arity, query.replace("{in}", placeholders(arity)));
+        }
+    }
+
+    /**
+     * Looks up the keys chunk by chunk and hands every row to the handler
+     */
+    public static void query(ConnectionHandler connectionHandler, String name, Collection<String> keys, RowHandler handler) throws SQLException {
+        for (List<String> chunk : chunks(keys)) {
+            PreparedStatement statement = connectionHandler.getPreparedStatement(name + "-" + chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                statement.setString(i + 1, chunk.get(i));
+            }
+
+            try (ResultSet res = statement.executeQuery()) {
+                while (res.next()) {
+                    handler.row(res);
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits the distinct keys into chunks whose sizes are powers of two, padding the last one
+     */
+    public static List<List<String>> chunks(Collection<String> keys) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        List<List<String>> chunks = new ArrayList<>();
+        for (int start = 0; start < distinct.size(); start += MAX_ARITY) {
+            List<String> chunk = new ArrayList<>(distinct.subList(start, Math.min(distinct.size(), start + MAX_ARITY)));
+            int arity = Integer.highestOneBit(chunk.size());
+            if (arity < chunk.size()) {
+                arity <<= 1;
+            }
+            String last = chunk.get(chunk.size() - 1);
+            while (chunk.size() < arity) {
+                chunk.add(last);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    public static String placeholders(int arity) {
+        StringBuilder builder = new StringBuilder("(");
+        for (int i = 0; i < arity; i++) {
+            builder.append(i == 0 ? "?" : ",?");
+        }
+        return builder.append(')').toString();
+    }
+}
@@ -1,66 +1,195 @@
 package net.cubespace.geSuit.database;
 
+import net.cubespace.geSuit.geSuit;
+
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public class ConnectionHandler {
-    private Connection connection;
-    private boolean used;
-    private long lastUsed;
-    private LinkedHashMap<String, PreparedStatement> preparedStatements = new LinkedHashMap<>();
+/**
+ * A pooled connection. Obtain one with {@link ConnectionPool#borrowConnection()} and hand it back with
+ * {@link #release()}, or lease it in a try-with-resources block so it is returned even if the work throws.
+ */
+public class ConnectionHandler implements AutoCloseable {
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final AtomicBoolean used = new AtomicBoolean(false);
+    private volatile long lastUsed = System.currentTimeMillis();
+    private volatile boolean broken;
+    private final LinkedHashMap<String, PreparedStatement> preparedStatements;
 
-    public ConnectionHandler(Connection connection) {
+    ConnectionHandler(ConnectionPool pool, Connection connection, final int statementCacheSize) {
+        this.pool = pool;
         this.connection = connection;
+        // Access ordered, so the least recently used statement is evicted (and closed) first
+        this.preparedStatements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= statementCacheSize) {
+                    return false;
+                }
+
+                try {
+                    eldest.getValue().close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+                return true;
+            }
+        };
     }
 
     public Connection getConnection() {
         this.lastUsed = System.currentTimeMillis();
-        this.used = true;
         return connection;
     }
 
     public boolean isOldConnection() {
-        return (System.currentTimeMillis() - lastUsed) > 30000;
+        return getIdleTime() > 30000;
+    }
+
+    long getIdleTime() {
+        return System.currentTimeMillis() - lastUsed;
     }
 
-    public void addPreparedStatement(String name, String query, int mode) {
+    void touch() {
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Pings the server
+     *
+     * @param timeout Seconds to wait for the server to answer
+     */
+    boolean isValid(int timeout) {
         try {
-            preparedStatements.put(name, connection.prepareStatement(query, mode));
+            return !broken && connection.isValid(timeout);
         } catch (SQLException e) {
-            e.printStackTrace();
+            return false;
         }
     }
 
-    public void addPreparedStatement(String name, String query) {
+    /**
+     * Marks the connection as unusable. It is closed instead of going back to the pool when released
+     */
+    public void invalidate() {
+        this.broken = true;
+    }
+
+    public boolean isBroken() {
+        return broken;
+    }
+
+    /**
+     * Returns the named statement, preparing it on this connection if it is not cached yet
+     *
+     * @return the statement, or null if the name is unknown or the statement could not be prepared
+     */
+    public PreparedStatement getPreparedStatement(String name) {
+        this.lastUsed = System.currentTimeMillis();
+
+        PreparedStatement statement = preparedStatements.get(name);
+        if (statement != null) {
+            pool.statementCacheHit();
+            return statement;
+        }
+
+        pool.statementCacheMiss();
+        StatementRegistry.Definition definition = pool.getStatements().get(name);
+        if (definition == null) {
+            geSuit.instance.getLogger().severe("Unknown prepared statement " + name);
+            return null;
+        }
+
         try {
-            preparedStatements.put(name, connection.prepareStatement(query));
+            if (definition.mode == null) {
+                statement = connection.prepareStatement(definition.query);
+            } else {
+                statement = connection.prepareStatement(definition.query, definition.mode);
+            }
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
         }
+
+        preparedStatements.put(name, statement);
+        return statement;
     }
 
-    public PreparedStatement getPreparedStatement(String name) {
-        this.used = true;
-        return preparedStatements.get(name);
+    /**
+     * Runs the named query with a streaming result set and hands each row to the handler, so a whole table can be
+     * read in constant memory. The statement is not cached, and this connection cannot run anything else until the
+     * stream is done, so the handler must do its own work on another connection
+     */
+    public void stream(String name, RowHandler handler, Object... params) throws SQLException {
+        this.lastUsed = System.currentTimeMillis();
+
+        StatementRegistry.Definition definition = pool.getStatements().get(name);
+        if (definition == null) {
+            throw new SQLException("Unknown prepared statement " + name);
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(definition.query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Tells MySQL Connector/J to stream rows instead of buffering the whole result
+            statement.setFetchSize(Integer.MIN_VALUE);
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+
+            try (ResultSet res = statement.executeQuery()) {
+                while (res.next()) {
+                    handler.row(res);
+                }
+            }
+        }
     }
 
+    /**
+     * Marks this connection as leased. Only the pool calls this
+     *
+     * @return false if the connection was already leased
+     */
+    boolean lease() {
+        if (used.compareAndSet(false, true)) {
+            this.lastUsed = System.currentTimeMillis();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the connection to its pool. Calling this more than once is harmless
+     */
     public void release() {
-        this.used = false;
+        if (used.compareAndSet(true, false)) {
+            this.lastUsed = System.currentTimeMillis();
+            pool.returnConnection(this);
+        }
+    }
+
+    /**
+     * Same as {@link #release()}; the underlying JDBC connection stays open for the next borrower
+     */
+    @Override
+    public void close() {
+        release();
     }
 
     public boolean isUsed() {
-        return used;
+        return used.get();
     }
 
     public void closeConnection() {
-        this.used = true;
+        this.used.set(true);
         if (connection != null) {
             try {
                 connection.close();
             } catch (SQLException e) {
-                // TODO Auto-generated catch block
                 e.printStackTrace();
             }
         }
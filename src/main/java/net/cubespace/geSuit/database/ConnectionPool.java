@@ -1,5 +1,6 @@
 package net.cubespace.geSuit.database;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import net.cubespace.Yamler.Config.InvalidConfigurationException;
 import net.cubespace.geSuit.configs.SubConfig.Database;
 import net.cubespace.geSuit.geSuit;
@@ -11,55 +12,47 @@ import java.sql.*;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Properties;
+import java.util.function.Supplier;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ConnectionPool {
     private Database dbConfig;
     private ArrayList<IRepository> repositories = new ArrayList<>();
-    private ArrayList<ConnectionHandler> connections = new ArrayList<>();
+    private final StatementRegistry statements = new StatementRegistry();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final ConcurrentLinkedDeque<ConnectionHandler> idleConnections = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private Semaphore leases;
+    private long borrowTimeout;
+    private int minConnections;
+    private long validateAfterIdle;
+    private volatile boolean closed;
+    private boolean readOnly;
+    private ThreadPoolExecutor executor;
+    // Last write queued for each key by runInOrder, until it has run
+    private final ConcurrentHashMap<Object, CompletableFuture<Void>> ordered = new ConcurrentHashMap<>();
+
+    // Seconds to wait for a server ping
+    private static final int VALIDATION_TIMEOUT = 2;
 
     public void addRepository(IRepository repository) {
         repositories.add(repository);
     }
     
     public boolean initialiseConnections(Database database) throws IllegalStateException {
-        this.dbConfig = database;
-
-        for (int i = 0; i < database.Threads; i++) {
-            ConnectionHandler ch = null;
-            try {
-                Class.forName("com.mysql.jdbc.Driver");
-                Properties props = new Properties();
-                props.put("user", (database.Username == null) ? "" : database.Username);
-                props.put("password", (database.Password == null) ? "" : database.Password);
-                props.put("useSSL", (database.useSSL == null) ? "false" : database.useSSL.toString());
-                Connection connection = DriverManager.getConnection("jdbc:mysql://" + database.Host + ":" + database.Port + "/" + database.Database, props);
-                for (IRepository repository : repositories) {
-                    ch = new ConnectionHandler(connection);
-                    repository.registerPreparedStatements(ch);
+        open(database);
 
-                }
-                connections.add(ch);
-            } catch (SQLException | ClassNotFoundException ex) {
-                System.out.println(ChatColor.DARK_RED + "SQL is unable to conect");
-                ex.printStackTrace();
-                throw new IllegalStateException(ex.getMessage());
-            }
-        }
-    
-        ProxyServer.getInstance().getScheduler().schedule(geSuit.instance, () -> {
-            Iterator<ConnectionHandler> cons = connections.iterator();
-            while (cons.hasNext()) {
-                ConnectionHandler con = cons.next();
-            
-                if (!con.isUsed() && con.isOldConnection()) {
-                    con.closeConnection();
-                    cons.remove();
-                }
-            }
-        }, 10, 10, TimeUnit.SECONDS);
-
-        if (!ConfigManager.main.Inited) {
+        boolean fresh = !ConfigManager.main.Inited;
+        if (fresh) {
             for(IRepository repository : repositories) {
                 String[] tableInformation = repository.getTable();
 
@@ -80,45 +73,285 @@ public class ConnectionPool {
             } catch (InvalidConfigurationException ignored) {
 
             }
-        } else {
-            for(IRepository repository : repositories) {
-                repository.checkUpdate();
-            }
+        }
+
+        SchemaMigrator migrator = new SchemaMigrator(this, ConfigManager.main.Table_SchemaVersion);
+        Migrations.register(migrator, this, repositories, fresh);
+        if (!migrator.migrate()) {
+            // Write-behind, the rollups and compaction all need the migrated tables
+            throw new IllegalStateException("Schema migrations did not complete");
         }
 
         return true;
     }
 
     /**
-     * @return Returns a free connection from the pool of connections. Creates a new connection if there are none available
+     * Opens a pool for reading only, such as a read replica or the database being converted from. Repositories get
+     * their prepared statements, but the connections are read-only and no tables are created or migrated
      */
-    public synchronized ConnectionHandler getConnection() {
-        for (ConnectionHandler c : connections) {
-            if (!c.isUsed()) {
-                return c;
-            }
+    public void initialiseReadOnly(Database database) throws IllegalStateException {
+        this.readOnly = true;
+        open(database);
+    }
+
+    private void open(Database database) throws IllegalStateException {
+        this.dbConfig = database;
+        int maxConnections = Math.max(1, (database.MaxConnections == null) ? database.Threads : database.MaxConnections);
+        this.minConnections = Math.min(database.Threads, maxConnections);
+        this.borrowTimeout = (database.BorrowTimeout == null) ? 5000 : database.BorrowTimeout;
+        this.validateAfterIdle = (database.ValidateAfterIdle == null) ? 5000 : database.ValidateAfterIdle;
+        this.leases = new Semaphore(maxConnections, true);
+        // One worker per connection; more would only queue up on the semaphore
+        this.executor = new ThreadPoolExecutor(maxConnections, maxConnections, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat(readOnly ? "geSuit-DB-ReadOnly-%d" : "geSuit-DB-%d").setDaemon(true).build());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        for (IRepository repository : repositories) {
+            repository.registerPreparedStatements(statements);
         }
 
-        // create a new connection as none are free
-        ConnectionHandler ch;
+        for (int i = 0; i < minConnections; i++) {
+            try {
+                idleConnections.offerLast(createConnection());
+            } catch (SQLException ex) {
+                System.out.println(ChatColor.DARK_RED + "SQL is unable to conect");
+                ex.printStackTrace();
+                throw new IllegalStateException(ex.getMessage());
+            }
+        }
+    
+        ProxyServer.getInstance().getScheduler().schedule(geSuit.instance, this::maintainConnections, 10, 10, TimeUnit.SECONDS);
+    }
 
+    /**
+     * Opens a new connection. Statements are prepared on it lazily, see {@link ConnectionHandler#getPreparedStatement(String)}
+     */
+    private ConnectionHandler createConnection() throws SQLException {
         try {
             Class.forName("com.mysql.jdbc.Driver");
-            Connection connection = DriverManager.getConnection("jdbc:mysql://" + dbConfig.Host + ":" + dbConfig.Port + "/" + dbConfig.Database, dbConfig.Username, dbConfig.Password);
+        } catch (ClassNotFoundException ex) {
+            throw new SQLException("MySQL driver not found", ex);
+        }
 
-            ch = new ConnectionHandler(connection);
-            for(IRepository repository : repositories) {
-                repository.registerPreparedStatements(ch);
+        Properties props = new Properties();
+        props.put("user", (dbConfig.Username == null) ? "" : dbConfig.Username);
+        props.put("password", (dbConfig.Password == null) ? "" : dbConfig.Password);
+        props.put("useSSL", (dbConfig.useSSL == null) ? "false" : dbConfig.useSSL.toString());
+        // Lets the driver send executeBatch() inserts as multi-row statements
+        props.put("rewriteBatchedStatements", "true");
+        Connection connection = DriverManager.getConnection("jdbc:mysql://" + dbConfig.Host + ":" + dbConfig.Port + "/" + dbConfig.Database, props);
+        if (readOnly) {
+            connection.setReadOnly(true);
+        }
+
+        int statementCacheSize = (dbConfig.StatementCacheSize == null) ? 48 : dbConfig.StatementCacheSize;
+        ConnectionHandler ch = new ConnectionHandler(this, connection, Math.max(8, statementCacheSize));
+
+        openConnections.incrementAndGet();
+        return ch;
+    }
+
+    private void discardConnection(ConnectionHandler ch) {
+        openConnections.decrementAndGet();
+        ch.closeConnection();
+    }
+
+    /**
+     * Leases a connection from the pool. Waits up to BorrowTimeout ms when MaxConnections are already in use.
+     * The returned connection must be released, preferably with try-with-resources
+     *
+     * @throws SQLTransientConnectionException if no connection became free in time
+     */
+    public ConnectionHandler borrowConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        try {
+            if (!leases.tryAcquire(borrowTimeout, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Timed out after " + borrowTimeout + "ms waiting for a database connection");
             }
-        } catch (SQLException | ClassNotFoundException ex) {
-            System.out.println(ChatColor.DARK_RED + "SQL is unable to conect");
-            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
         }
 
-        connections.add(ch);
+        ConnectionHandler ch;
+        while ((ch = idleConnections.pollFirst()) != null) {
+            // Connections that sat idle for a while may have been dropped by wait_timeout or a failover
+            if (ch.getIdleTime() < validateAfterIdle || ch.isValid(VALIDATION_TIMEOUT)) {
+                break;
+            }
+
+            discardConnection(ch);
+        }
+
+        if (ch == null) {
+            // Holding a lease guarantees we stay within MaxConnections
+            try {
+                ch = createConnection();
+            } catch (SQLException ex) {
+                leases.release();
+                throw ex;
+            }
+        }
 
+        ch.lease();
         return ch;
+    }
+
+    /**
+     * Runs the task on the database executor. Use this instead of blocking a Bungee IO or command thread on MySQL
+     */
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+
+    public CompletableFuture<Void> runAsync(Runnable task) {
+        return CompletableFuture.runAsync(task, executor);
+    }
+
+    /**
+     * Runs the task on the database executor once every earlier task queued under the same key has finished, so
+     * writes to one row land in the order they were made. Tasks under different keys still run in parallel
+     */
+    public CompletableFuture<Void> runInOrder(Object key, Runnable task) {
+        CompletableFuture<Void> next = ordered.compute(key, (k, previous) -> (previous == null)
+                ? CompletableFuture.runAsync(task, executor)
+                : previous.handle((v, ex) -> null).thenRunAsync(task, executor));
+        next.whenComplete((v, ex) -> ordered.remove(key, next));
+        return next;
+    }
 
+    public int getQueuedTasks() {
+        return (executor == null) ? 0 : executor.getQueue().size();
+    }
+
+    /**
+     * Runs an idempotent read. If it fails because the connection was lost, the connection is thrown away and the
+     * read is retried once on a fresh one
+     */
+    public <T> T read(SQLFunction<T> reader) throws SQLException {
+        try (ConnectionHandler ch = borrowConnection()) {
+            try {
+                return reader.apply(ch);
+            } catch (SQLException e) {
+                if (!isConnectionError(e)) {
+                    throw e;
+                }
+
+                ch.invalidate();
+                geSuit.instance.getLogger().warning("Lost database connection (" + e.getMessage() + "), retrying on a new one");
+            }
+        }
+
+        try (ConnectionHandler ch = borrowConnection()) {
+            return reader.apply(ch);
+        }
+    }
+
+    /**
+     * @return true if the exception means the connection itself is gone rather than the statement being wrong
+     */
+    public static boolean isConnectionError(SQLException e) {
+        if (e instanceof SQLRecoverableException || e instanceof SQLNonTransientConnectionException) {
+            return true;
+        }
+
+        String state = e.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+
+    /**
+     * @return Returns a free connection from the pool of connections, or null if none became free within the borrow timeout
+     * Prefer {@link #borrowConnection()}, which reports why no connection could be had
+     */
+    public ConnectionHandler getConnection() {
+        try {
+            return borrowConnection();
+        } catch (SQLException ex) {
+            System.out.println(ChatColor.DARK_RED + "SQL is unable to conect: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Called by {@link ConnectionHandler#release()}
+     */
+    void returnConnection(ConnectionHandler ch) {
+        if (closed || ch.isBroken()) {
+            discardConnection(ch);
+        } else {
+            idleConnections.offerFirst(ch);
+        }
+
+        leases.release();
+    }
+
+    /**
+     * Pings idle connections so they survive wait_timeout, drops the ones that fail or are surplus, and tops the pool
+     * back up to Threads connections
+     */
+    private void maintainConnections() {
+        // Least recently used connections sit at the tail of the deque
+        Iterator<ConnectionHandler> cons = idleConnections.descendingIterator();
+        while (cons.hasNext()) {
+            ConnectionHandler con = cons.next();
+
+            if (!con.isOldConnection() || !idleConnections.remove(con)) {
+                continue;
+            }
+
+            if (openConnections.get() > minConnections || !con.isValid(VALIDATION_TIMEOUT)) {
+                discardConnection(con);
+            } else {
+                con.touch();
+                idleConnections.offerLast(con);
+            }
+        }
+
+        while (!closed && openConnections.get() < minConnections && leases.tryAcquire()) {
+            try {
+                idleConnections.offerLast(createConnection());
+            } catch (SQLException e) {
+                geSuit.instance.getLogger().warning("Could not reopen database connection: " + e.getMessage());
+                break;
+            } finally {
+                leases.release();
+            }
+        }
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    public int getIdleConnections() {
+        return idleConnections.size();
+    }
+
+    public int getWaitingThreads() {
+        return leases.getQueueLength();
+    }
+
+    StatementRegistry getStatements() {
+        return statements;
+    }
+
+    void statementCacheHit() {
+        statementCacheHits.incrementAndGet();
+    }
+
+    void statementCacheMiss() {
+        statementCacheMisses.incrementAndGet();
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
     }
 
     /*
@@ -127,16 +360,17 @@ public class ConnectionPool {
      */
     public void AddStringColumnIfMissing(String table, String column, int length) {
 
-        ConnectionHandler ch = getConnection();
+        try (ConnectionHandler ch = borrowConnection()) {
+            Boolean columnExists = doesTableHaveColumn(ch, table, column);
 
-        Boolean columnExists = doesTableHaveColumn(ch, table, column);
-
-        if (!columnExists) {
-            addStringColumnToTable(ch, table, column, length);
+            if (!columnExists) {
+                addStringColumnToTable(ch, table, column, length);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new IllegalStateException(e.getMessage());
         }
 
-        ch.release();
-
     }
 
     private void addStringColumnToTable(ConnectionHandler ch, String table, String column, int length) {
@@ -158,21 +392,19 @@ public class ConnectionPool {
     }
 
     private void standardQuery(String query) throws SQLException {
-        ConnectionHandler ch = getConnection();
-
-        Statement statement = ch.getConnection().createStatement();
-        statement.executeUpdate(query);
-        statement.close();
-
-        ch.release();
+        try (ConnectionHandler ch = borrowConnection();
+             Statement statement = ch.getConnection().createStatement()) {
+            statement.executeUpdate(query);
+        }
     }
 
     private boolean doesTableExist(String table) {
-        ConnectionHandler ch = getConnection();
-        boolean check = checkTable(table, ch.getConnection());
-        ch.release();
-
-        return check;
+        try (ConnectionHandler ch = borrowConnection()) {
+            return checkTable(table, ch.getConnection());
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new IllegalStateException(e.getMessage());
+        }
     }
 
     private Boolean doesTableHaveColumn(ConnectionHandler ch, String table, String column) {
@@ -230,9 +462,26 @@ public class ConnectionPool {
         return check;
     }
 
+    /**
+     * Closes every idle connection. Connections still leased are closed as soon as they are released
+     */
     public void closeConnections() {
-        for (ConnectionHandler c : connections) {
-            c.closeConnection();
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    geSuit.instance.getLogger().warning("Database tasks still running at shutdown: " + executor.shutdownNow().size() + " dropped");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        closed = true;
+
+        ConnectionHandler c;
+        while ((c = idleConnections.pollFirst()) != null) {
+            discardConnection(c);
         }
     }
 }
\ No newline at end of file
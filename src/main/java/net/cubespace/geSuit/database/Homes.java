@@ -81,26 +81,37 @@ public class Homes implements IRepository {
     }
 
     public List<Home> getHomesForPlayer(GSPlayer player) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
+        List<Home> homes = getHomesForPlayer((player.getUuid() != null) ? player.getUuid() : player.getName());
+        if (homes != null) {
+            for (Home home : homes) {
+                home.owner = player;
+            }
+        }
+
+        return homes;
+    }
+
+    /**
+     * Loads the homes of a player that is not loaded yet. The owner of the returned homes is left unset
+     */
+    public List<Home> getHomesForPlayer(String owner) {
         List<Home> homes = new ArrayList<>();
 
-        try {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
             PreparedStatement getAllHomesForPlayer = connectionHandler.getPreparedStatement("getAllHomesForPlayer");
-            getAllHomesForPlayer.setString(1, (player.getUuid() != null) ? player.getUuid() : player.getName());
+            getAllHomesForPlayer.setString(1, owner);
 
             ResultSet res = getAllHomesForPlayer.executeQuery();
             while (res.next()) {
                 String server = res.getString("server");
                 Location l = new Location(server, res.getString("world"), res.getDouble("x"), res.getDouble("y"), res.getDouble("z"), res.getFloat("yaw"), res.getFloat("pitch"));
-                homes.add(new Home(player, res.getString("home_name"), l));
+                homes.add(new Home(null, res.getString("home_name"), l));
             }
             res.close();
 
             return homes;
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
 
         return null;
@@ -122,13 +133,13 @@ public class Homes implements IRepository {
     }
 
     @Override
-    public void registerPreparedStatements(ConnectionHandler connection) {
-        connection.addPreparedStatement("addHome", "INSERT INTO "+ ConfigManager.main.Table_Homes +" (player,home_name,server,world,x,y,z,yaw,pitch) VALUES(?,?,?,?,?,?,?,?,?)");
-        connection.addPreparedStatement("updateHome", "UPDATE "+ ConfigManager.main.Table_Homes +" SET server = ?, world = ?, x = ?, y = ?, z = ?, yaw = ?, pitch = ? WHERE player = ? AND home_name = ?");
-        connection.addPreparedStatement("getAllHomesForPlayer", "SELECT * FROM "+ ConfigManager.main.Table_Homes +" WHERE player = ?");
-        connection.addPreparedStatement("deleteHome", "DELETE FROM "+ ConfigManager.main.Table_Homes +" WHERE home_name = ? AND player = ?");
-        connection.addPreparedStatement("getHomes", "SELECT * FROM "+ ConfigManager.main.Table_Homes);
-        connection.addPreparedStatement("updateHomesToUUID", "UPDATE "+ ConfigManager.main.Table_Homes +" SET player = ? WHERE player = ?");
+    public void registerPreparedStatements(StatementRegistry statements) {
+        statements.addPreparedStatement("addHome", "INSERT INTO "+ ConfigManager.main.Table_Homes +" (player,home_name,server,world,x,y,z,yaw,pitch) VALUES(?,?,?,?,?,?,?,?,?)");
+        statements.addPreparedStatement("updateHome", "UPDATE "+ ConfigManager.main.Table_Homes +" SET server = ?, world = ?, x = ?, y = ?, z = ?, yaw = ?, pitch = ? WHERE player = ? AND home_name = ?");
+        statements.addPreparedStatement("getAllHomesForPlayer", "SELECT * FROM "+ ConfigManager.main.Table_Homes +" WHERE player = ?");
+        statements.addPreparedStatement("deleteHome", "DELETE FROM "+ ConfigManager.main.Table_Homes +" WHERE home_name = ? AND player = ?");
+        statements.addPreparedStatement("getHomes", "SELECT * FROM "+ ConfigManager.main.Table_Homes);
+        statements.addPreparedStatement("updateHomesToUUID", "UPDATE "+ ConfigManager.main.Table_Homes +" SET player = ? WHERE player = ?");
     }
 
     @Override
@@ -0,0 +1,84 @@
+package net.cubespace.geSuit.database;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits a session into the local-time hours it covers, as stored in the ontime table. The zone offset is looked up
+ * once and reused until the next daylight saving transition, so splitting a session is plain arithmetic.
+ */
+public class HourlySlots {
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private final ZoneRules rules;
+    private volatile OffsetWindow window;
+
+    public HourlySlots(ZoneId zone) {
+        this.rules = zone.getRules();
+        this.window = lookup(System.currentTimeMillis());
+    }
+
+    /**
+     * Calls the consumer once for every hour from start to end, with the start of that hour (epoch ms) and the
+     * whole seconds spent in it. Hours with less than a second are skipped
+     */
+    public void split(long start, long end, SlotConsumer consumer) {
+        long from = start;
+        while (from < end) {
+            long slot = slotStart(from);
+            long to = Math.min(end, slot + HOUR);
+            long seconds = (to - from) / 1000;
+            if (seconds > 0) {
+                consumer.slot(slot, seconds);
+            }
+            from = to;
+        }
+    }
+
+    /**
+     * @return the start of the local hour the instant falls in, in epoch ms
+     */
+    public long slotStart(long epochMillis) {
+        OffsetWindow w = window;
+        if (epochMillis < w.from || epochMillis >= w.until) {
+            w = lookup(epochMillis);
+            // Keep the latest window cached, lookups for older sessions are rare
+            if (w.until >= window.until) {
+                window = w;
+            }
+        }
+
+        long local = epochMillis + w.offset;
+        return local - Math.floorMod(local, HOUR) - w.offset;
+    }
+
+    private OffsetWindow lookup(long epochMillis) {
+        Instant instant = Instant.ofEpochMilli(epochMillis);
+        long offset = rules.getOffset(instant).getTotalSeconds() * 1000L;
+
+        ZoneOffsetTransition previous = rules.previousTransition(instant.plusMillis(1));
+        ZoneOffsetTransition next = rules.nextTransition(instant);
+        long from = (previous == null) ? Long.MIN_VALUE : previous.toEpochSecond() * 1000;
+        long until = (next == null) ? Long.MAX_VALUE : next.toEpochSecond() * 1000;
+        return new OffsetWindow(from, until, offset);
+    }
+
+    public interface SlotConsumer {
+        void slot(long slotStart, long seconds);
+    }
+
+    private static class OffsetWindow {
+        final long from;
+        final long until;
+        final long offset;
+
+        OffsetWindow(long from, long until, long offset) {
+            this.from = from;
+            this.until = until;
+            this.offset = offset;
+        }
+    }
+}
@@ -6,7 +6,11 @@ package net.cubespace.geSuit.database;
 public interface IRepository {
     String[] getTable();
 
-    void registerPreparedStatements(ConnectionHandler connection);
+    void registerPreparedStatements(StatementRegistry statements);
 
+    /**
+     * Pre-migration schema updates, run once for databases created before the schema version table.
+     * New schema changes belong in {@link Migrations}
+     */
     void checkUpdate();
 }
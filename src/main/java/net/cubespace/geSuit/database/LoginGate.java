@@ -0,0 +1,154 @@
+package net.cubespace.geSuit.database;
+
+import net.cubespace.geSuit.configs.SubConfig.Database;
+import net.cubespace.geSuit.objects.LoginData;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for logins. Only a limited number of logins load their data at once, so a login storm after a
+ * restart cannot take every database connection. Further logins wait in a bounded queue, and are turned away with a
+ * {@link RejectedExecutionException} once it is full or they have waited too long.
+ */
+public class LoginGate {
+    public enum Stage {
+        QUEUE, LOCKDOWN, BAN, LOAD, NAME_CHANGE, TOTAL
+    }
+
+    private final ArrayDeque<Pending> waiting = new ArrayDeque<>();
+    private final Map<Stage, LatencyHistogram> latencies = new EnumMap<>(Stage.class);
+    private final AtomicLong rejected = new AtomicLong();
+    private int active;
+    private int limit = 3;
+    private int queueSize = 250;
+    private long queueTimeout = TimeUnit.SECONDS.toNanos(15);
+
+    public LoginGate() {
+        for (Stage stage : Stage.values()) {
+            latencies.put(stage, new LatencyHistogram());
+        }
+    }
+
+    public void start(Database database) {
+        int maxConnections = Math.max(1, (database.MaxConnections == null) ? database.Threads : database.MaxConnections);
+        // Each login runs up to three queries at once
+        int concurrency = (database.LoginConcurrency == null) ? 0 : database.LoginConcurrency;
+        this.limit = (concurrency > 0) ? concurrency : Math.max(1, maxConnections / 3);
+        this.queueSize = (database.LoginQueueSize == null) ? 250 : Math.max(0, database.LoginQueueSize);
+        this.queueTimeout = TimeUnit.SECONDS.toNanos((database.LoginQueueTimeout == null) ? 15 : Math.max(1, database.LoginQueueTimeout));
+    }
+
+    /**
+     * Starts the login now if there is room, or queues it
+     *
+     * @return the login's data, or a {@link RejectedExecutionException} if the server is too busy to take it
+     */
+    public CompletableFuture<LoginData> submit(Supplier<CompletableFuture<LoginData>> login) {
+        Pending pending = new Pending(login);
+        synchronized (this) {
+            if (active >= limit) {
+                if (waiting.size() >= queueSize) {
+                    rejected.incrementAndGet();
+                    pending.result.completeExceptionally(new RejectedExecutionException("Login queue is full"));
+                } else {
+                    waiting.addLast(pending);
+                }
+                return pending.result;
+            }
+            active++;
+        }
+
+        run(pending);
+        return pending.result;
+    }
+
+    private void run(Pending pending) {
+        record(Stage.QUEUE, pending.queued);
+        CompletableFuture<LoginData> load;
+        try {
+            load = pending.login.get();
+        } catch (Exception e) {
+            load = new CompletableFuture<>();
+            load.completeExceptionally(e);
+        }
+
+        load.whenComplete((data, ex) -> {
+            record(Stage.TOTAL, pending.queued);
+            next();
+            if (ex != null) {
+                pending.result.completeExceptionally(ex);
+            } else {
+                pending.result.complete(data);
+            }
+        });
+    }
+
+    // Hands the finished login's slot to the next one still worth starting
+    private void next() {
+        long now = System.nanoTime();
+        List<Pending> expired = new ArrayList<>();
+        Pending pending;
+        synchronized (this) {
+            while ((pending = waiting.pollFirst()) != null && now - pending.queued > queueTimeout) {
+                expired.add(pending);
+            }
+            if (pending == null) {
+                active--;
+            }
+        }
+
+        for (Pending p : expired) {
+            rejected.incrementAndGet();
+            p.result.completeExceptionally(new RejectedExecutionException("Login waited too long in the queue"));
+        }
+        if (pending != null) {
+            run(pending);
+        }
+    }
+
+    /**
+     * Records the time a login spent in a stage, since a {@link System#nanoTime()} reading
+     */
+    public void record(Stage stage, long startNanos) {
+        latencies.get(stage).since(startNanos);
+    }
+
+    public LatencyHistogram getLatency(Stage stage) {
+        return latencies.get(stage);
+    }
+
+    public synchronized int getActive() {
+        return active;
+    }
+
+    public synchronized int getQueued() {
+        return waiting.size();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    private static class Pending {
+        final Supplier<CompletableFuture<LoginData>> login;
+        final CompletableFuture<LoginData> result = new CompletableFuture<>();
+        final long queued = System.nanoTime();
+
+        Pending(Supplier<CompletableFuture<LoginData>> login) {
+            this.login = login;
+        }
+    }
+}
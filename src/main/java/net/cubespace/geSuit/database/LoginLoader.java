@@ -0,0 +1,57 @@
+package net.cubespace.geSuit.database;
+
+import net.cubespace.geSuit.managers.BansManager;
+import net.cubespace.geSuit.managers.DatabaseManager;
+import net.cubespace.geSuit.objects.Ban;
+import net.cubespace.geSuit.objects.GSPlayer;
+import net.cubespace.geSuit.objects.Home;
+import net.cubespace.geSuit.objects.LoginData;
+import net.cubespace.geSuit.objects.Track;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Loads the data for a login with parallel queries on the database executor, so the login waits for roughly one
+ * round-trip instead of one per query
+ */
+public class LoginLoader {
+
+    /**
+     * @param loadHomes false when the player is still cached and their homes are already in memory
+     */
+    public static CompletableFuture<LoginData> load(final String name, final UUID id, final String ip, boolean loadHomes) {
+        final String uuid = id.toString().replace("-", "");
+        ConnectionPool pool = DatabaseManager.connectionPool;
+        LoginGate gate = DatabaseManager.logins;
+        long start = System.nanoTime();
+
+        CompletableFuture<GSPlayer> player = pool.supplyAsync(() -> {
+            // A queued update from their last session has to land before we read the row back
+            DatabaseManager.writeBehind.flushPlayer(uuid);
+            try {
+                return DatabaseManager.players.readPlayer(uuid);
+            } catch (SQLException e) {
+                // Failing the login beats treating a known player as a first join
+                throw new CompletionException(e);
+            }
+        });
+        player.whenComplete((p, ex) -> gate.record(LoginGate.Stage.LOAD, start));
+        // Served from the in-memory ban index; the query is only a fallback until it has loaded
+        CompletableFuture<Ban> ban = BansManager.isBanIndexLoaded()
+                ? CompletableFuture.completedFuture(BansManager.getActiveBan(name, uuid, ip))
+                : pool.supplyAsync(() -> DatabaseManager.bans.getBanInfo(name, uuid, ip));
+        ban.whenComplete((b, ex) -> gate.record(LoginGate.Stage.BAN, start));
+        CompletableFuture<Track> nameChange = pool.supplyAsync(() -> DatabaseManager.tracking.checkNameChange(id, name));
+        nameChange.whenComplete((t, ex) -> gate.record(LoginGate.Stage.NAME_CHANGE, start));
+        CompletableFuture<List<Home>> homes = loadHomes
+                ? pool.supplyAsync(() -> DatabaseManager.homes.getHomesForPlayer(uuid))
+                : CompletableFuture.<List<Home>>completedFuture(null);
+
+        return CompletableFuture.allOf(player, ban, nameChange, homes)
+                .thenApply(v -> new LoginData(player.join(), ban.join(), nameChange.join(), homes.join()));
+    }
+}
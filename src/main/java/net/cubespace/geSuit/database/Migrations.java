@@ -0,0 +1,111 @@
+package net.cubespace.geSuit.database;
+
+import net.cubespace.geSuit.database.SchemaMigrator.Migration;
+import net.cubespace.geSuit.managers.ConfigManager;
+
+import java.util.List;
+
+/**
+ * Every schema change, in order. Append new migrations at the end and never edit one that has shipped; its checksum
+ * is stored when it runs.
+ */
+public class Migrations {
+
+    static void register(SchemaMigrator migrator, final ConnectionPool pool, final List<IRepository> repositories, final boolean fresh) {
+        migrator.table("players", ConfigManager.main.Table_Players)
+                .table("bans", ConfigManager.main.Table_Bans)
+                .table("tracking", ConfigManager.main.Table_Tracking)
+                .table("tracking_ips", ConfigManager.main.Table_TrackingIPs)
+                .table("tracking_edges", ConfigManager.main.Table_TrackingEdges)
+                .table("tracking_archive", ConfigManager.main.Table_TrackingArchive)
+                .table("ontime", ConfigManager.main.Table_OnTime)
+                .table("ontime_daily", ConfigManager.main.Table_OnTimeDaily)
+                .table("ontime_monthly", ConfigManager.main.Table_OnTimeMonthly)
+                .table("ontime_total", ConfigManager.main.Table_OnTimeTotal)
+                .table("warps", ConfigManager.main.Table_Warps);
+
+        // Databases from before the schema version table still run the old per-repository checks, once
+        migrator.add(Migration.task(1, "Legacy repository updates", () -> {
+            if (fresh) {
+                return;
+            }
+            for (IRepository repository : repositories) {
+                repository.checkUpdate();
+            }
+            pool.AddStringColumnIfMissing(ConfigManager.main.Table_Warps, "description", 128);
+        }));
+
+        // Players: lookups by name, alt lookups by IP newest first, recent logins
+        migrator.add(Migration.sql(2, "Player indexes",
+                "ALTER TABLE `{players}` ADD INDEX idx_players_playername (playername)",
+                "ALTER TABLE `{players}` ADD INDEX idx_players_ipaddress (ipaddress, lastonline)",
+                "ALTER TABLE `{players}` ADD INDEX idx_players_lastonline (lastonline)"));
+
+        // Bans: the name/uuid/ip OR in banInfo becomes an index merge, the ban index reload reads active rows
+        migrator.add(Migration.sql(3, "Ban indexes",
+                "ALTER TABLE `{bans}` ADD INDEX idx_bans_playername (banned_playername, active)",
+                "ALTER TABLE `{bans}` ADD INDEX idx_bans_uuid (banned_uuid, active)",
+                "ALTER TABLE `{bans}` ADD INDEX idx_bans_ip (banned_ip, active)",
+                "ALTER TABLE `{bans}` ADD INDEX idx_bans_active (active, type)"));
+
+        // Tracking: the unique key only covers lookups by player
+        migrator.add(Migration.sql(4, "Tracking indexes",
+                "ALTER TABLE `{tracking}` ADD INDEX idx_tracking_uuid (uuid, player)",
+                "ALTER TABLE `{tracking}` ADD INDEX idx_tracking_ip (ip)"));
+
+        // OnTime: top lists and period totals scan by timeslot
+        migrator.add(Migration.sql(5, "OnTime indexes",
+                "ALTER TABLE `{ontime}` ADD INDEX idx_ontime_timeslot (timeslot)"));
+
+        // OnTime rollups, written alongside every slot so /ontime never sums hourly rows
+        migrator.add(Migration.sql(6, "OnTime rollup tables",
+                "CREATE TABLE IF NOT EXISTS `{ontime_daily}` (uuid VARCHAR(32) NOT NULL, day DATE NOT NULL, time INT(10) UNSIGNED NOT NULL, "
+                        + "PRIMARY KEY (uuid, day))",
+                "CREATE TABLE IF NOT EXISTS `{ontime_monthly}` (uuid VARCHAR(32) NOT NULL, month DATE NOT NULL, time INT(10) UNSIGNED NOT NULL, "
+                        + "PRIMARY KEY (uuid, month))",
+                "CREATE TABLE IF NOT EXISTS `{ontime_total}` (uuid VARCHAR(32) NOT NULL, time BIGINT UNSIGNED NOT NULL, "
+                        + "PRIMARY KEY (uuid), INDEX idx_ontime_total_time (time))"));
+
+        // One-shot backfill of the rollups from existing history. Runs before the write-behind queue starts, so no
+        // slot is counted twice; rerunning it after a failure overwrites rather than adds
+        migrator.add(Migration.sql(7, "OnTime rollup backfill",
+                "INSERT INTO `{ontime_daily}` (uuid, day, time) SELECT uuid, DATE(timeslot), SUM(time) FROM `{ontime}` "
+                        + "GROUP BY uuid, DATE(timeslot) ON DUPLICATE KEY UPDATE time = VALUES(time)",
+                "INSERT INTO `{ontime_monthly}` (uuid, month, time) SELECT uuid, DATE_FORMAT(day, '%Y-%m-01'), SUM(time) FROM `{ontime_daily}` "
+                        + "GROUP BY uuid, DATE_FORMAT(day, '%Y-%m-01') ON DUPLICATE KEY UPDATE time = VALUES(time)",
+                "INSERT INTO `{ontime_total}` (uuid, time) SELECT uuid, SUM(time) FROM `{ontime_monthly}` "
+                        + "GROUP BY uuid ON DUPLICATE KEY UPDATE time = VALUES(time)"));
+
+        // Account/IP association, written alongside every tracking row so alt lookups never self-join tracking
+        migrator.add(Migration.sql(8, "Tracking association tables",
+                "CREATE TABLE IF NOT EXISTS `{tracking_ips}` (id INT UNSIGNED NOT NULL AUTO_INCREMENT, ip VARCHAR(15) NOT NULL, "
+                        + "PRIMARY KEY (id), UNIQUE KEY idx_tracking_ips_ip (ip))",
+                "CREATE TABLE IF NOT EXISTS `{tracking_edges}` (ip_id INT UNSIGNED NOT NULL, uuid VARCHAR(32) NOT NULL, "
+                        + "firstseen DATETIME NOT NULL, lastseen DATETIME NOT NULL, "
+                        + "PRIMARY KEY (ip_id, uuid), INDEX idx_tracking_edges_uuid (uuid, ip_id))"));
+
+        // One-shot backfill from existing tracking rows, before the write-behind queue starts
+        migrator.add(Migration.sql(9, "Tracking association backfill",
+                "INSERT IGNORE INTO `{tracking_ips}` (ip) SELECT DISTINCT ip FROM `{tracking}` WHERE ip != ''",
+                "INSERT INTO `{tracking_edges}` (ip_id, uuid, firstseen, lastseen) SELECT i.id, t.uuid, MIN(t.firstseen), MAX(t.lastseen) "
+                        + "FROM `{tracking}` t JOIN `{tracking_ips}` i ON i.ip = t.ip GROUP BY i.id, t.uuid "
+                        + "ON DUPLICATE KEY UPDATE firstseen = LEAST(firstseen, VALUES(firstseen)), lastseen = GREATEST(lastseen, VALUES(lastseen))"));
+
+        // Tracking retention: expired rows are found by lastseen and moved to an archive of the same shape
+        migrator.add(Migration.sql(10, "Tracking archive",
+                "ALTER TABLE `{tracking}` ADD INDEX idx_tracking_lastseen (lastseen)",
+                "CREATE TABLE IF NOT EXISTS `{tracking_archive}` (player VARCHAR(20) NOT NULL, uuid VARCHAR(32) NOT NULL, "
+                        + "ip VARCHAR(15) NOT NULL, firstseen DATETIME NOT NULL, lastseen DATETIME NOT NULL, "
+                        + "UNIQUE KEY player (player, uuid, ip), INDEX idx_tracking_archive_uuid (uuid))"));
+
+        // IPv6 addresses are up to 45 characters. Widened here rather than in 8 and 10, which have shipped
+        migrator.add(Migration.sql(11, "Tracking IPv6 addresses",
+                "ALTER TABLE `{tracking}` MODIFY ip VARCHAR(45) NOT NULL",
+                "ALTER TABLE `{tracking_ips}` MODIFY ip VARCHAR(45) NOT NULL",
+                "ALTER TABLE `{tracking_archive}` MODIFY ip VARCHAR(45) NOT NULL"));
+
+        // Tracking compaction groups by (uuid, ip) in uuid order, which the earlier indexes cannot serve
+        migrator.add(Migration.sql(12, "Tracking compaction index",
+                "ALTER TABLE `{tracking}` ADD INDEX idx_tracking_uuid_ip (uuid, ip)"));
+    }
+}
@@ -1,227 +1,242 @@
 package net.cubespace.geSuit.database;
 
-import net.cubespace.geSuit.geSuit;
+import net.cubespace.geSuit.Utilities;
 import net.cubespace.geSuit.managers.ConfigManager;
 import net.cubespace.geSuit.managers.DatabaseManager;
-import net.cubespace.geSuit.managers.LoggingManager;
 import net.cubespace.geSuit.objects.TimeRecord;
-import net.md_5.bungee.api.ChatColor;
 
 import java.sql.*;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
 
 /**
  * @author geNAZt (fabian.fassbender42@googlemail.com)
  */
 public class OnTime implements IRepository {
 
-    public void updatePlayerOnTime(String player, String uuid, long tsStart, long tsEnd) {
-        SimpleDateFormat sdf=new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        
-        // Get start/end in calendar objects (required to handle day/month/year changes properly)
-        Calendar start = Calendar.getInstance();
-        start.setTimeInMillis(tsStart);
-        Calendar end = Calendar.getInstance();
-        end.setTimeInMillis(tsEnd);
-        
-        if (geSuit.instance.isDebugEnabled())
-        	geSuit.instance.DebugMsg("OnTime (" +player+ "): " + sdf.format(new Date(start.getTimeInMillis())) + " -> " + sdf.format(new Date(end.getTimeInMillis())));
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final HourlySlots hourlySlots = new HourlySlots(zone);
 
-        // Set up the initial slots
-        Calendar slot = Calendar.getInstance();
-        Calendar next   = Calendar.getInstance();
-        slot.setTimeInMillis(tsStart);
-        slot.set(Calendar.MINUTE, 0);
-        slot.set(Calendar.SECOND, 0);
-        slot.set(Calendar.MILLISECOND, 0);
-        next.setTimeInMillis(slot.getTimeInMillis());
-        next.add(Calendar.HOUR, 1);
-
-        int loop = 0;
-        List<String> values = new ArrayList<>();
-
-        // Loop through all the hourly time slots that the player was online
-        while ((loop == 0) || (end.after(next))) {
-        	long time, from, to;
-        	if (loop == 0) {
-        		from = start.getTimeInMillis();  // On the first loop, measure from the start time, not the beginning of the slot
-        	} else {
-        		slot.setTimeInMillis(next.getTimeInMillis());
-                next.add(Calendar.HOUR, 1);
-        		from = slot.getTimeInMillis();  // Every other loop iteration, we measure from the beginning of the slot
-        	}
-
-        	if (end.after(next)) {
-        		to = next.getTimeInMillis();
-        		time = (to - from);  // This is not the last slot, measure time to the end of this slot
-        	} else {
-        		to = end.getTimeInMillis();
-        		time = (to - from);   // This is the last slot, measure time to the "end" time (not the end of the slot)
-        	}
-
-        	// Only record positive online times  
-        	if (time > 0) {
-        		time = (time / 1000);  // Convert from milliseconds to seconds
+    public void updatePlayerOnTime(String uuid, long tsStart, long tsEnd) {
+        Map<Long, Long> slots = new HashMap<>();
+        addTimeSlots(slots, tsStart, tsEnd);
+        addOnTime(Collections.singletonMap(uuid, slots));
+    }
 
-                if (geSuit.instance.isDebugEnabled())
-                	geSuit.instance.DebugMsg("   " +
-	        			"Row " + loop + ": " +
-	        			"Slot: " + sdf.format(new Date(slot.getTimeInMillis())) + " = " +
-	        			sdf.format(new Date(from)) + " -> " +
-	        			sdf.format(new Date(to)) + ": " +
-	        			time + " secs"
-	        	);
-	
-	        	values.add("('" +uuid+ "', '" +sdf.format(slot.getTimeInMillis())+ "', " +time+ ")");
-        	}
+    /**
+     * Adds the seconds of a session to the hourly slots it covers
+     *
+     * @param slots seconds online keyed by the start of each slot (epoch ms)
+     */
+    public void addTimeSlots(Map<Long, Long> slots, long tsStart, long tsEnd) {
+        hourlySlots.split(tsStart, tsEnd, (slot, seconds) -> slots.merge(slot, seconds, Long::sum));
+    }
 
-        	loop++;
+    /**
+     * @return the seconds a session adds to the ontime table, counted per hourly slot as the table stores them
+     */
+    public long countSeconds(long tsStart, long tsEnd) {
+        final long[] total = new long[1];
+        hourlySlots.split(tsStart, tsEnd, (slot, seconds) -> total[0] += seconds);
+        return total[0];
+    }
 
-        	if (loop == 100) {
-        		LoggingManager.log(ChatColor.RED + "WARNING! OnTime slot checking exceeded 100 loops for " +player+ ", this should never hapen!");
-        		break;
-        	}
+    /**
+     * Streams every player's lifetime total
+     *
+     * @return false if the totals could not be read
+     */
+    public boolean forEachTotal(BiConsumer<UUID, Long> consumer) {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
+            connectionHandler.stream("getOnTimeTotals", res -> {
+                try {
+                    consumer.accept(Utilities.makeUUID(res.getString("uuid")), res.getLong("time"));
+                } catch (IllegalArgumentException e) {
+                    // Skip malformed uuids rather than abandon the whole list
+                }
+            });
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
         }
-        
-        StringBuilder sqlvalues = new StringBuilder();
-        for (int x = 0; x < values.size(); x++) {
-        	if (x > 0)
-        		sqlvalues.append(", ");
+    }
 
-        	sqlvalues.append(values.get(x));
+    /**
+     * Adds online seconds to the hourly slots of several players in a single batch, and to their daily, monthly and
+     * lifetime rollups in the same transaction
+     *
+     * @param slots seconds keyed by slot start (epoch ms), keyed by uuid
+     * @return false if the batch could not be written, in which case none of it was
+     */
+    public boolean addOnTime(Map<String, Map<Long, Long>> slots) {
+        if (slots.isEmpty()) {
+            return true;
         }
 
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-        Statement stmt = null;
-        try {
-        	// Sadly, we can't use prepared statements here because the statement is dynamic
-            stmt = connectionHandler.getConnection().createStatement();
-        	stmt.executeUpdate("INSERT DELAYED INTO "+ ConfigManager.main.Table_OnTime + " " +
-        			"(uuid,timeslot,time) VALUES " + sqlvalues + " " +
-        			"ON DUPLICATE KEY UPDATE time=time+VALUES(time)"
-        	);
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
+            PreparedStatement addOnTime = connectionHandler.getPreparedStatement("addOnTime");
+            PreparedStatement addDaily = connectionHandler.getPreparedStatement("addOnTimeDaily");
+            PreparedStatement addMonthly = connectionHandler.getPreparedStatement("addOnTimeMonthly");
+            PreparedStatement addTotal = connectionHandler.getPreparedStatement("addOnTimeTotal");
+            PreparedStatement[] perSlot = {addOnTime, addDaily, addMonthly};
+            for (Map.Entry<String, Map<Long, Long>> player : slots.entrySet()) {
+                long total = 0;
+                for (Map.Entry<Long, Long> slot : player.getValue().entrySet()) {
+                    Timestamp timeslot = new Timestamp(slot.getKey());
+                    for (PreparedStatement statement : perSlot) {
+                        statement.setString(1, player.getKey());
+                        statement.setTimestamp(2, timeslot);
+                        statement.setLong(3, slot.getValue());
+                        statement.addBatch();
+                    }
+                    total += slot.getValue();
+                }
+                addTotal.setString(1, player.getKey());
+                addTotal.setLong(2, total);
+                addTotal.addBatch();
+            }
+
+            Connection connection = connectionHandler.getConnection();
+            connection.setAutoCommit(false);
+            try {
+                addOnTime.executeBatch();
+                addDaily.executeBatch();
+                addMonthly.executeBatch();
+                addTotal.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            return true;
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-			try {
-				if (stmt != null) { stmt.close(); stmt = null; }
-			} catch (SQLException e) {
-				System.out.println("ERROR: Failed to close SQL Statement!");
-				e.printStackTrace();
-			}
-    		connectionHandler.release();
         }
+
+        return false;
     }
 
+    /**
+     * Reads today, this week, month and year and the lifetime total in one query. Sessions that ended but are still
+     * waiting in the write-behind queue are split into hourly slots, and each slot is added to the periods it falls in
+     */
     public TimeRecord getPlayerOnTime(String uuid) {
         TimeRecord trec = new TimeRecord(uuid);
 
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
         try {
-            PreparedStatement timeInfo;
-            ResultSet res;
-
-            // Time today
-            timeInfo = connectionHandler.getPreparedStatement("getOnTimeToday");
-            timeInfo.setString(1, uuid);
-            res = timeInfo.executeQuery();
-            if (res.next()) trec.setTimeToday(res.getLong(1) * 1000);
-            res.close();
-
-        	// Time this week
-        	timeInfo = connectionHandler.getPreparedStatement("getOnTimeWeek");
-            timeInfo.setString(1, uuid);
-            res = timeInfo.executeQuery();
-            if (res.next()) trec.setTimeWeek(res.getLong(1) * 1000);
-            res.close();
-
-        	// Time this month
-        	timeInfo = connectionHandler.getPreparedStatement("getOnTimeMonth");
-            timeInfo.setString(1, uuid);
-            res = timeInfo.executeQuery();
-            if (res.next()) trec.setTimeMonth(res.getLong(1) * 1000);
-            res.close();
-
-        	// Time this year
-        	timeInfo = connectionHandler.getPreparedStatement("getOnTimeYear");
-            timeInfo.setString(1, uuid);
-            res = timeInfo.executeQuery();
-            if (res.next()) trec.setTimeYear(res.getLong(1) * 1000);
-            res.close();
-
-        	// Total time
-        	timeInfo = connectionHandler.getPreparedStatement("getOnTimeTotal");
-            timeInfo.setString(1, uuid);
-            res = timeInfo.executeQuery();
-            if (res.next()) trec.setTimeTotal(res.getLong(1) * 1000);
-            res.close();
+            DatabaseManager.connectionPool.read(connectionHandler -> {
+                PreparedStatement timeInfo = connectionHandler.getPreparedStatement("getOnTimeSummary");
+                timeInfo.setString(1, uuid);
+                timeInfo.setString(2, uuid);
+                try (ResultSet res = timeInfo.executeQuery()) {
+                    if (res.next()) {
+                        trec.setTimeToday(res.getLong("today") * 1000);
+                        trec.setTimeWeek(res.getLong("week") * 1000);
+                        trec.setTimeMonth(res.getLong("month") * 1000);
+                        trec.setTimeYear(res.getLong("year") * 1000);
+                        trec.setTimeTotal(res.getLong("total") * 1000);
+                    }
+                }
+                return trec;
+            });
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
 
+        Map<Long, Long> pending = new HashMap<>();
+        for (long[] session : DatabaseManager.writeBehind.getPendingOnTime(uuid)) {
+            addTimeSlots(pending, session[0], session[1]);
+        }
+        addPendingSlots(trec, pending, LocalDate.now(zone), zone);
+
         return trec;
-    }    
+    }
+
+    /**
+     * Adds hourly slots to the periods of a record the way getOnTimeSummary counts them, with weeks starting on Sunday
+     *
+     * @param slots seconds online keyed by the start of each slot (epoch ms)
+     */
+    static void addPendingSlots(TimeRecord trec, Map<Long, Long> slots, LocalDate today, ZoneId zone) {
+        long dayStart = today.atStartOfDay(zone).toInstant().toEpochMilli();
+        long weekStart = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.SUNDAY)).atStartOfDay(zone).toInstant().toEpochMilli();
+        long monthStart = today.withDayOfMonth(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        long yearStart = today.withDayOfYear(1).atStartOfDay(zone).toInstant().toEpochMilli();
+
+        for (Map.Entry<Long, Long> slot : slots.entrySet()) {
+            long start = slot.getKey();
+            long time = slot.getValue() * 1000;
+            if (start >= dayStart) {
+                trec.setTimeToday(trec.getTimeToday() + time);
+            }
+            if (start >= weekStart) {
+                trec.setTimeWeek(trec.getTimeWeek() + time);
+            }
+            if (start >= monthStart) {
+                trec.setTimeMonth(trec.getTimeMonth() + time);
+            }
+            if (start >= yearStart) {
+                trec.setTimeYear(trec.getTimeYear() + time);
+            }
+            trec.setTimeTotal(trec.getTimeTotal() + time);
+        }
+    }
 
     public Map<String, Long> getOnTimeTop(int pagenum) {
-        LinkedHashMap<String, Long> results = null;
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
         try {
-            PreparedStatement top;
-            ResultSet res;
-            top = connectionHandler.getPreparedStatement("getOnTimeTop");
+            return DatabaseManager.reports.read(connectionHandler -> {
+                LinkedHashMap<String, Long> results = new LinkedHashMap<>();
+                PreparedStatement top = connectionHandler.getPreparedStatement("getOnTimeTop");
+                int offset = (pagenum < 1) ? 0 : (pagenum - 1) * 10;	// Offset = Page number x 10 (but starts at 0 and no less than 0
+                top.setInt(1, offset);
 
-            results = new LinkedHashMap<>();
-            int offset = (pagenum < 1) ? 0 : (pagenum - 1) * 10;	// Offset = Page number x 10 (but starts at 0 and no less than 0
-            top.setInt(1, offset);
-            res = top.executeQuery();
-
-            // Build current page of results
-            while (res.next()) {
-                String name = res.getString("pname");
-                Long time = res.getLong("totaltime");
-                results.put(name, time);
-            }
-            res.close();
+                // Build current page of results
+                try (ResultSet res = top.executeQuery()) {
+                    while (res.next()) {
+                        String name = res.getString("pname");
+                        Long time = res.getLong("totaltime");
+                        results.put(name, time);
+                    }
+                }
+                return results;
+            });
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
+            return null;
         }
-
-        return results;
     }
 
     public Map<Timestamp, Long> getLastLogins(String uuid, int num){
-        LinkedHashMap<Timestamp, Long> results = null;
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-        try{
-            PreparedStatement lastLogins;
-            ResultSet res;
-            lastLogins = connectionHandler.getPreparedStatement("getLastLogins");
-            lastLogins.setString(1,uuid);
-            lastLogins.setInt(2,num);
-            results = new LinkedHashMap<>();
-            res = lastLogins.executeQuery();
-            while (res.next()) {
-                Timestamp lastlogin = res.getTimestamp("logintime");
-                Long ontime = res.getLong("ontime");
-                results.put(lastlogin, ontime);
-            }
-            res.close();
+        try {
+            return DatabaseManager.reports.read(connectionHandler -> {
+                LinkedHashMap<Timestamp, Long> results = new LinkedHashMap<>();
+                PreparedStatement lastLogins = connectionHandler.getPreparedStatement("getLastLogins");
+                lastLogins.setString(1,uuid);
+                lastLogins.setInt(2,num);
+                try (ResultSet res = lastLogins.executeQuery()) {
+                    while (res.next()) {
+                        Timestamp lastlogin = res.getTimestamp("logintime");
+                        Long ontime = res.getLong("ontime");
+                        results.put(lastlogin, ontime);
+                    }
+                }
+                return results;
+            });
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
+            return null;
         }
-        return results;
     }
 
 
@@ -235,20 +250,32 @@ public class OnTime implements IRepository {
     }
 
     @Override
-    public void registerPreparedStatements(ConnectionHandler connection) {
-        connection.addPreparedStatement("getOnTimeToday", "SELECT SUM(time) FROM "+ ConfigManager.main.Table_OnTime +" ontime WHERE uuid=? AND timeslot >= CURRENT_DATE()");
-        connection.addPreparedStatement("getOnTimeWeek",  "SELECT SUM(time) FROM "+ ConfigManager.main.Table_OnTime +" ontime WHERE uuid=? AND timeslot >= STR_TO_DATE(CONCAT(YEARWEEK(NOW()), ' Sunday'), '%X%V %W')");
-        connection.addPreparedStatement("getOnTimeMonth", "SELECT SUM(time) FROM "+ ConfigManager.main.Table_OnTime +" ontime WHERE uuid=? AND timeslot >= DATE_FORMAT(NOW(), '%Y-%m-01')");
-        connection.addPreparedStatement("getOnTimeYear",  "SELECT SUM(time) FROM "+ ConfigManager.main.Table_OnTime +" ontime WHERE uuid=? AND timeslot > DATE_FORMAT(NOW(), '%Y-01-01')");
-        connection.addPreparedStatement("getOnTimeTotal", "SELECT SUM(time) FROM "+ ConfigManager.main.Table_OnTime +" ontime WHERE uuid=?");
-        connection.addPreparedStatement("getOnTimeTop",   "SELECT "+ ConfigManager.main.Table_Players +".playername AS pname, "
-                 + ConfigManager.main.Table_OnTime +".uuid AS puuid, SUM(time) AS totaltime FROM "
-                 + ConfigManager.main.Table_OnTime +" JOIN "+ ConfigManager.main.Table_Players +" ON "
-                 + ConfigManager.main.Table_OnTime +".uuid="+ ConfigManager.main.Table_Players +".uuid GROUP BY "
-                 + ConfigManager.main.Table_OnTime +".uuid ORDER BY totaltime DESC LIMIT 10 OFFSET ?");
-        connection.addPreparedStatement("getLastLogins", "SELECT DATE(timeslot) AS logintime, SUM(time) AS ontime FROM "
-                 + ConfigManager.main.Table_OnTime +" WHERE uuid = ? GROUP BY DATE(`ontime`.timeslot) ORDER BY timeslot DESC LIMIT ?;");
-       }
+    public void registerPreparedStatements(StatementRegistry statements) {
+        String daily = ConfigManager.main.Table_OnTimeDaily;
+        String monthly = ConfigManager.main.Table_OnTimeMonthly;
+        String total = ConfigManager.main.Table_OnTimeTotal;
+        statements.addPreparedStatement("addOnTime", "INSERT INTO "+ ConfigManager.main.Table_OnTime +" (uuid,timeslot,time) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE time=time+VALUES(time)");
+        statements.addPreparedStatement("addOnTimeDaily", "INSERT INTO "+ daily +" (uuid,day,time) VALUES (?, DATE(?), ?) ON DUPLICATE KEY UPDATE time=time+VALUES(time)");
+        statements.addPreparedStatement("addOnTimeMonthly", "INSERT INTO "+ monthly +" (uuid,month,time) VALUES (?, DATE_FORMAT(?, '%Y-%m-01'), ?) ON DUPLICATE KEY UPDATE time=time+VALUES(time)");
+        statements.addPreparedStatement("addOnTimeTotal", "INSERT INTO "+ total +" (uuid,time) VALUES (?, ?) ON DUPLICATE KEY UPDATE time=time+VALUES(time)");
+        String weekStart = "STR_TO_DATE(CONCAT(YEARWEEK(NOW()), ' Sunday'), '%X%V %W')";
+        String yearStart = "DATE_FORMAT(NOW(), '%Y-01-01')";
+        // The week can start in the previous year, so read back to whichever is earlier
+        statements.addPreparedStatement("getOnTimeSummary", "SELECT "
+                 + "COALESCE(SUM(CASE WHEN day = CURRENT_DATE() THEN time END), 0) AS today, "
+                 + "COALESCE(SUM(CASE WHEN day >= "+ weekStart +" THEN time END), 0) AS week, "
+                 + "COALESCE(SUM(CASE WHEN day >= DATE_FORMAT(NOW(), '%Y-%m-01') THEN time END), 0) AS month, "
+                 + "COALESCE(SUM(CASE WHEN day >= "+ yearStart +" THEN time END), 0) AS year, "
+                 + "COALESCE((SELECT time FROM "+ total +" WHERE uuid=?), 0) AS total "
+                 + "FROM "+ daily +" WHERE uuid=? AND day >= LEAST("+ weekStart +", "+ yearStart +")");
+        statements.addPreparedStatement("getOnTimeTotals", "SELECT uuid, time FROM "+ total);
+        statements.addPreparedStatement("getOnTimeTop",   "SELECT "+ ConfigManager.main.Table_Players +".playername AS pname, "
+                 + total +".uuid AS puuid, "+ total +".time AS totaltime FROM "
+                 + total +" JOIN "+ ConfigManager.main.Table_Players +" ON "
+                 + total +".uuid="+ ConfigManager.main.Table_Players +".uuid ORDER BY totaltime DESC LIMIT 10 OFFSET ?");
+        statements.addPreparedStatement("getLastLogins", "SELECT day AS logintime, time AS ontime FROM "
+                 + daily +" WHERE uuid = ? ORDER BY day DESC LIMIT ?");
+    }
 
 	@Override
 	public void checkUpdate() {
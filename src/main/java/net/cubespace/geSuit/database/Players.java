@@ -3,79 +3,111 @@ package net.cubespace.geSuit.database;
 import com.google.common.collect.Maps;
 import net.cubespace.Yamler.Config.InvalidConfigurationException;
 import net.cubespace.geSuit.Utilities;
+import net.cubespace.geSuit.cache.ProfileCache;
+import net.cubespace.geSuit.configs.SubConfig.Database;
 import net.cubespace.geSuit.geSuit;
+import net.cubespace.geSuit.managers.BansManager;
 import net.cubespace.geSuit.managers.ConfigManager;
 import net.cubespace.geSuit.managers.DatabaseManager;
+import net.cubespace.geSuit.managers.PlayerManager;
 import net.cubespace.geSuit.objects.GSPlayer;
 
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * @author geNAZt (fabian.fassbender42@googlemail.com)
  */
 public class Players implements IRepository {
+    private static final int UUID_PAGE_SIZE = 500;
+    // Offline lookups from commands; logins always read the row
+    private final ProfileCache profiles;
+
+    public Players() {
+        Database database = ConfigManager.main.Database;
+        this.profiles = new ProfileCache(
+                (database.ProfileCacheSize == null) ? 2000 : Math.max(0, database.ProfileCacheSize),
+                (database.ProfileCacheTTL == null) ? 300 : Math.max(0, database.ProfileCacheTTL));
+    }
 
     public boolean playerExists(String player) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-
         try {
-            PreparedStatement playerExists = connectionHandler.getPreparedStatement("playerExists");
-            playerExists.setString(1, player);
-            playerExists.setString(2, player);
+            return DatabaseManager.connectionPool.read(connectionHandler -> {
+                PreparedStatement playerExists = connectionHandler.getPreparedStatement("playerExists");
+                playerExists.setString(1, player);
+                playerExists.setString(2, player);
 
-            return playerExists.executeQuery().next();
+                return playerExists.executeQuery().next();
+            });
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
 
         return true;
     }
     
-    public List<UUID> getUUIDs(String start, String end) {
-        List<UUID> results = new ArrayList<>();
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-        try {
-            PreparedStatement getUUIDs = connectionHandler.getPreparedStatement("getUUIDS");
-            getUUIDs.setString(1, start);
-            getUUIDs.setString(2, end);
-            ResultSet res = getUUIDs.executeQuery();
-            while (res.next()) {
-                results.add(Utilities.makeUUID(res.getString("uuid")));
-            }
-            connectionHandler.release();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            connectionHandler.release();
-        }
-        return results;
+    public CompletableFuture<Boolean> playerExistsAsync(String player) {
+        return DatabaseManager.connectionPool.supplyAsync(() -> playerExists(player));
     }
-    
-    public List<UUID> getAllUUIDs() {
-        List<UUID> results = new ArrayList<>();
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-        try {
-            PreparedStatement getUUIDs = connectionHandler.getPreparedStatement("getAllUUIDS");
-            ResultSet res = getUUIDs.executeQuery();
-            while (res.next()) {
-                results.add(Utilities.makeUUID(res.getString("uuid")));
+
+    /**
+     * Walks the players table in UUID order, a page at a time, so it never has to be held in memory. Each page is
+     * read with a short keyset query and handed over before the next one is read, so the consumer can take as long
+     * as it likes without keeping a connection or cursor open
+     *
+     * @param start lowest UUID to include
+     * @param end   highest UUID to include, or null for no limit
+     * @return false if a page could not be read
+     */
+    public boolean forEachUUIDPage(String start, String end, Consumer<List<UUID>> consumer) {
+        String from = (start == null) ? "" : start;
+        boolean first = true;
+        while (true) {
+            final String after = from;
+            final boolean inclusive = first;
+            List<String> page;
+            try {
+                page = DatabaseManager.connectionPool.read(connectionHandler -> {
+                    PreparedStatement getUUIDs = connectionHandler.getPreparedStatement(inclusive ? "getUUIDPageFrom" : "getUUIDPageAfter");
+                    getUUIDs.setString(1, after);
+                    getUUIDs.setString(2, end);
+                    getUUIDs.setString(3, end);
+                    getUUIDs.setInt(4, UUID_PAGE_SIZE);
+                    List<String> uuids = new ArrayList<>(UUID_PAGE_SIZE);
+                    try (ResultSet res = getUUIDs.executeQuery()) {
+                        while (res.next()) {
+                            uuids.add(res.getString("uuid"));
+                        }
+                    }
+                    return uuids;
+                });
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return false;
             }
-            connectionHandler.release();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            connectionHandler.release();
+
+            if (page.isEmpty()) {
+                return true;
+            }
+
+            List<UUID> ids = new ArrayList<>(page.size());
+            for (String uuid : page) {
+                ids.add(Utilities.makeUUID(uuid));
+            }
+            consumer.accept(ids);
+
+            if (page.size() < UUID_PAGE_SIZE) {
+                return true;
+            }
+            from = page.get(page.size() - 1);
+            first = false;
         }
-        return results;
     }
 
     public String getPlayerIP(String player) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-
-        try {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
             PreparedStatement getPlayerIP = connectionHandler.getPreparedStatement("getPlayerIP");
             getPlayerIP.setString(1, player);
             getPlayerIP.setString(2, player);
@@ -90,17 +122,13 @@ public class Players implements IRepository {
             return ip;
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
 
         return null;
     }
 
     public boolean getPlayerTPS(String player) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-
-        try {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
             PreparedStatement getPlayerTPS = connectionHandler.getPreparedStatement("getPlayerTPS");
             getPlayerTPS.setString(1, player);
             getPlayerTPS.setString(2, player);
@@ -115,17 +143,26 @@ public class Players implements IRepository {
             return tps;
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
 
         return true;
     }
 
+    /**
+     * @return name and uuid of the most recent other account associated with the player, or null. Served from the
+     * account clusters when they are loaded, otherwise from the last IP of each player
+     */
     public String[] getAltPlayer(String uuid, String ip, boolean ignoreSelf) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
+        if (BansManager.isAccountClustersLoaded()) {
+            String altuuid = BansManager.getLatestAlt(uuid, ip);
+            if (altuuid == null) {
+                return null;
+            }
+            String altname = resolveUUIDs(Collections.singletonList(Utilities.makeUUID(altuuid))).get(Utilities.makeUUID(altuuid));
+            return (altname == null) ? null : new String[]{altname, altuuid};
+        }
 
-        try {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
             PreparedStatement getAltPlayer = connectionHandler.getPreparedStatement("getAltPlayer");
             getAltPlayer.setString(1, ip);
             
@@ -152,33 +189,32 @@ public class Players implements IRepository {
             }
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
 
         return null;
     }
 
-    public void insertPlayer(GSPlayer player, String ip) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
+    public CompletableFuture<String[]> getAltPlayerAsync(String uuid, String ip, boolean ignoreSelf) {
+        return DatabaseManager.connectionPool.supplyAsync(() -> getAltPlayer(uuid, ip, ignoreSelf));
+    }
 
-        try {
+    public void insertPlayer(GSPlayer player, String ip) {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
             PreparedStatement insertPlayer = connectionHandler.getPreparedStatement("insertPlayer");
             insertPlayer.setString(1, player.getName());
             insertPlayer.setString(2, player.getUuid());
             insertPlayer.setString(3, ip);
 
             insertPlayer.executeUpdate();
+            profiles.invalidateName(player.getName());
+            PlayerManager.addKnownPlayer(player.getUuid());
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
     }
 
     public void insertPlayerConvert(String player, String uuid, Timestamp lastonline, String ip, boolean tps) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-        try {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
             PreparedStatement insertPlayerConvert = connectionHandler.getPreparedStatement("insertPlayerConvert");
             insertPlayerConvert.setString(1, player);
             insertPlayerConvert.setString(2, uuid);
@@ -188,17 +224,19 @@ public class Players implements IRepository {
             insertPlayerConvert.setBoolean(6, tps);
 
             insertPlayerConvert.executeUpdate();
+            profiles.invalidateName(player);
+            PlayerManager.addKnownPlayer(uuid);
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
     }
 
-    public void updatePlayer(GSPlayer gsPlayer) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
+    public CompletableFuture<Void> updatePlayerAsync(GSPlayer gsPlayer) {
+        return DatabaseManager.connectionPool.runAsync(() -> updatePlayer(gsPlayer));
+    }
 
-        try {
+    public void updatePlayer(GSPlayer gsPlayer) {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
             PreparedStatement updatePlayer = connectionHandler.getPreparedStatement("updatePlayerByUUID");
             updatePlayer.setString(1, gsPlayer.getName());
             updatePlayer.setString(2, gsPlayer.getIp());
@@ -206,36 +244,97 @@ public class Players implements IRepository {
             updatePlayer.setBoolean(4, gsPlayer.isNewSpawn());
             updatePlayer.setString(5, gsPlayer.getUuid());
 
-            int result = updatePlayer.executeUpdate();
-            if (result > 1) {
-                geSuit.instance.getLogger().warning("PLAYER HAS MULTIPLE UUID ENTRIES WHICH HAVE BEEN UPDATED: " + gsPlayer.getName());
+            checkUpdateResult(connectionHandler, gsPlayer, updatePlayer.executeUpdate());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes several player records in a single batch
+     *
+     * @return false if the batch could not be written
+     */
+    public boolean updatePlayers(List<GSPlayer> gsPlayers) {
+        if (gsPlayers.isEmpty()) {
+            return true;
+        }
+
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
+            PreparedStatement updatePlayer = connectionHandler.getPreparedStatement("updatePlayerByUUID");
+            for (GSPlayer gsPlayer : gsPlayers) {
+                updatePlayer.setString(1, gsPlayer.getName());
+                updatePlayer.setString(2, gsPlayer.getIp());
+                updatePlayer.setBoolean(3, gsPlayer.acceptingTeleports());
+                updatePlayer.setBoolean(4, gsPlayer.isNewSpawn());
+                updatePlayer.setString(5, gsPlayer.getUuid());
+                updatePlayer.addBatch();
             }
-            if (result == 0) {
-                geSuit.instance.getLogger().warning("PLAYER IS BEING UPDATED BY NAME: " + gsPlayer.getName());
-
-                PreparedStatement updatePlayerbyName = connectionHandler.getPreparedStatement("updatePlayerbyName");
-                updatePlayerbyName.setString(1, gsPlayer.getUuid());
-                updatePlayerbyName.setString(2, gsPlayer.getIp());
-                updatePlayerbyName.setBoolean(3, gsPlayer.acceptingTeleports());
-                updatePlayerbyName.setBoolean(4, gsPlayer.isNewSpawn());
-                updatePlayerbyName.setString(5, gsPlayer.getName());
-                if (updatePlayerbyName.executeUpdate() != 1) {
-                    geSuit.instance.getLogger().warning("PLAYER COULD NOT BE UPDATED: " + gsPlayer.getName());
 
-                }
+            int[] results = updatePlayer.executeBatch();
+            for (int i = 0; i < results.length; i++) {
+                checkUpdateResult(connectionHandler, gsPlayers.get(i), results[i]);
             }
+            return true;
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
+
+        return false;
     }
 
+    private void checkUpdateResult(ConnectionHandler connectionHandler, GSPlayer gsPlayer, int result) throws SQLException {
+        profiles.invalidate(gsPlayer.getUuid());
+        profiles.invalidateName(gsPlayer.getName());
+        if (result > 1) {
+            geSuit.instance.getLogger().warning("PLAYER HAS MULTIPLE UUID ENTRIES WHICH HAVE BEEN UPDATED: " + gsPlayer.getName());
+        }
+        if (result == 0) {
+            geSuit.instance.getLogger().warning("PLAYER IS BEING UPDATED BY NAME: " + gsPlayer.getName());
+
+            PreparedStatement updatePlayerbyName = connectionHandler.getPreparedStatement("updatePlayerByName");
+            updatePlayerbyName.setString(1, gsPlayer.getUuid());
+            updatePlayerbyName.setString(2, gsPlayer.getIp());
+            updatePlayerbyName.setBoolean(3, gsPlayer.acceptingTeleports());
+            updatePlayerbyName.setBoolean(4, gsPlayer.isNewSpawn());
+            updatePlayerbyName.setString(5, gsPlayer.getName());
+            if (updatePlayerbyName.executeUpdate() != 1) {
+                geSuit.instance.getLogger().warning("PLAYER COULD NOT BE UPDATED: " + gsPlayer.getName());
+
+            }
+        }
+    }
+
+    /**
+     * Loads a player by name or uuid, from the profile cache when it has them. The result is the caller's own copy
+     */
     public GSPlayer loadPlayer(String player) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
+        GSPlayer cached = profiles.get(player);
+        return (cached != null) ? cached : loadPlayerFresh(player);
+    }
 
-        GSPlayer player1 = null;
+    /**
+     * Reads the player's row, skipping the profile cache, and caches what it finds
+     */
+    public GSPlayer loadPlayerFresh(String player) {
         try {
+            return readPlayer(player);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Like {@link #loadPlayerFresh(String)}, but a failed read throws instead of looking like a player with no row
+     *
+     * @return the player, or null if they have no row
+     */
+    public GSPlayer readPlayer(String player) throws SQLException {
+        long generation = profiles.getGeneration();
+        GSPlayer loaded = DatabaseManager.connectionPool.read(connectionHandler -> {
+            GSPlayer player1 = null;
             PreparedStatement getPlayer = connectionHandler.getPreparedStatement("getPlayer");
             getPlayer.setString(1, player);
             getPlayer.setString(2, player);
@@ -246,20 +345,26 @@ public class Players implements IRepository {
             }
 
             res.close();
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            connectionHandler.release();
+            return player1;
+        });
+        if (loaded != null) {
+            profiles.put(loaded, generation);
         }
+        return loaded;
+    }
 
-        return player1;
+    public ProfileCache getProfileCache() {
+        return profiles;
     }
 
-    public List<String> matchPlayers(String player) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
+    public CompletableFuture<GSPlayer> loadPlayerAsync(String player) {
+        return DatabaseManager.connectionPool.supplyAsync(() -> loadPlayer(player));
+    }
 
+    public List<String> matchPlayers(String player) {
         List<String> players = new ArrayList<>();
-        try {
+
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
             PreparedStatement getPlayer = connectionHandler.getPreparedStatement("matchPlayers");
             getPlayer.setString(1, "%" + player + "%");     // Player Name
             getPlayer.setString(2, player);                 // UUID
@@ -272,61 +377,22 @@ public class Players implements IRepository {
             res.close();
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
 
         return players;
     }
     
     public Map<String, UUID> resolvePlayerNames(Collection<String> names) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-
-        Map<String, UUID> resolved = Maps.newHashMapWithExpectedSize(names.size());
         try {
-            int maxBatch = 40;
-            int count = 0;
-            StringBuilder builder = new StringBuilder();
-            for (String name : names) {
-                ++count;
-                if (builder.length() != 0) {
-                    builder.append(",");
-                }
-                
-                builder.append(name);
-                
-                if (count >= maxBatch) {
-                    PreparedStatement statement = connectionHandler.getPreparedStatement("resolvePlayerName");
-                    statement.setString(1, builder.toString());
-                    
-                    ResultSet results = statement.executeQuery();
-                    while(results.next()) {
-                        resolved.put(results.getString("playername"), Utilities.makeUUID(results.getString("uuid")));
-                    }
-                    results.close();
-                    
-                    builder.setLength(0);
-                    count = 0;
-                }
-            }
-            
-            if (count > 0) {
-                PreparedStatement statement = connectionHandler.getPreparedStatement("resolvePlayerName");
-                statement.setString(1, builder.toString());
-                
-                ResultSet results = statement.executeQuery();
-                while(results.next()) {
-                    resolved.put(results.getString("playername"), Utilities.makeUUID(results.getString("uuid")));
-                }
-                results.close();
-            }
-            
-            return resolved;
+            return DatabaseManager.connectionPool.read(connectionHandler -> {
+                Map<String, UUID> resolved = Maps.newHashMapWithExpectedSize(names.size());
+                BatchedLookup.query(connectionHandler, "resolvePlayerName", names,
+                        results -> resolved.put(results.getString("playername"), Utilities.makeUUID(results.getString("uuid"))));
+                return resolved;
+            });
         } catch (Exception e) {
             e.printStackTrace();
             return Collections.emptyMap();
-        } finally {
-            connectionHandler.release();
         }
     }
     
@@ -336,104 +402,35 @@ public class Players implements IRepository {
      * @return Map
      */
     public Map<String, UUID> resolvePlayerNamesHistoric(Collection<String> names) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-
-        Map<String, UUID> resolved = Maps.newHashMapWithExpectedSize(names.size());
         try {
-            int maxBatch = 40;
-            int count = 0;
-            StringBuilder builder = new StringBuilder();
-            for (String name : names) {
-                ++count;
-                if (builder.length() != 0) {
-                    builder.append(",");
-                }
-                
-                builder.append(name);
-                
-                if (count >= maxBatch) {
-                    PreparedStatement statement = connectionHandler.getPreparedStatement("resolveOldPlayerName");
-                    statement.setString(1, builder.toString());
-                    
-                    ResultSet results = statement.executeQuery();
-                    while(results.next()) {
-                        resolved.put(results.getString("player"), Utilities.makeUUID(results.getString("uuid")));
-                    }
-                    results.close();
-                    
-                    builder.setLength(0);
-                    count = 0;
-                }
-            }
-            
-            if (count > 0) {
-                PreparedStatement statement = connectionHandler.getPreparedStatement("resolveOldPlayerName");
-                statement.setString(1, builder.toString());
-                
-                ResultSet results = statement.executeQuery();
-                while(results.next()) {
-                    resolved.put(results.getString("player"), Utilities.makeUUID(results.getString("uuid")));
-                }
-                results.close();
-            }
-            
-            return resolved;
+            return DatabaseManager.connectionPool.read(connectionHandler -> {
+                Map<String, UUID> resolved = Maps.newHashMapWithExpectedSize(names.size());
+                BatchedLookup.query(connectionHandler, "resolveOldPlayerName", names,
+                        results -> resolved.put(results.getString("player"), Utilities.makeUUID(results.getString("uuid"))));
+                return resolved;
+            });
         } catch (Exception e) {
             e.printStackTrace();
             return Collections.emptyMap();
-        } finally {
-            connectionHandler.release();
         }
     }
     
     public Map<UUID, String> resolveUUIDs(Collection<UUID> ids) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
+        List<String> uuids = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            uuids.add(id.toString().replace("-", ""));
+        }
 
-        Map<UUID, String> resolved = Maps.newHashMapWithExpectedSize(ids.size());
         try {
-            int maxBatch = 40;
-            int count = 0;
-            StringBuilder builder = new StringBuilder();
-            for (UUID id : ids) {
-                ++count;
-                if (builder.length() != 0) {
-                    builder.append(",");
-                }
-                
-                builder.append(id.toString().replace("-", ""));
-                
-                if (count >= maxBatch) {
-                    PreparedStatement statement = connectionHandler.getPreparedStatement("resolveUUID");
-                    statement.setString(1, builder.toString());
-                    
-                    ResultSet results = statement.executeQuery();
-                    while(results.next()) {
-                        resolved.put(Utilities.makeUUID(results.getString("uuid")), results.getString("playername"));
-                    }
-                    results.close();
-                    
-                    builder.setLength(0);
-                    count = 0;
-                }
-            }
-            
-            if (count > 0) {
-                PreparedStatement statement = connectionHandler.getPreparedStatement("resolveUUID");
-                statement.setString(1, builder.toString());
-                
-                ResultSet results = statement.executeQuery();
-                while(results.next()) {
-                    resolved.put(Utilities.makeUUID(results.getString("uuid")), results.getString("playername"));
-                }
-                results.close();
-            }
-            
-            return resolved;
+            return DatabaseManager.connectionPool.read(connectionHandler -> {
+                Map<UUID, String> resolved = Maps.newHashMapWithExpectedSize(ids.size());
+                BatchedLookup.query(connectionHandler, "resolveUUID", uuids,
+                        results -> resolved.put(Utilities.makeUUID(results.getString("uuid")), results.getString("playername")));
+                return resolved;
+            });
         } catch (Exception e) {
             e.printStackTrace();
             return Collections.emptyMap();
-        } finally {
-            connectionHandler.release();
         }
     }
 
@@ -450,26 +447,27 @@ public class Players implements IRepository {
     }
 
     @Override
-    public void registerPreparedStatements(ConnectionHandler connection) {
-        connection.addPreparedStatement("getPlayerIP", "SELECT ipaddress FROM "+ ConfigManager.main.Table_Players +" WHERE playername = ? OR uuid = ?");
-        connection.addPreparedStatement("playerExists", "SELECT playername FROM "+ ConfigManager.main.Table_Players +" WHERE playername = ? OR uuid = ?");
-        connection.addPreparedStatement("getPlayerTPS", "SELECT tps FROM "+ ConfigManager.main.Table_Players +" WHERE playername = ? OR uuid = ?");
-        connection.addPreparedStatement("getPlayer", "SELECT * FROM "+ ConfigManager.main.Table_Players +" WHERE playername = ? OR uuid = ?");
-        connection.addPreparedStatement("getAltPlayer", "SELECT playername, uuid FROM "+ ConfigManager.main.Table_Players +" WHERE ipaddress = ? ORDER BY lastonline DESC LIMIT 2");
+    public void registerPreparedStatements(StatementRegistry statements) {
+        statements.addPreparedStatement("getPlayerIP", "SELECT ipaddress FROM "+ ConfigManager.main.Table_Players +" WHERE playername = ? OR uuid = ?");
+        statements.addPreparedStatement("playerExists", "SELECT playername FROM "+ ConfigManager.main.Table_Players +" WHERE playername = ? OR uuid = ?");
+        statements.addPreparedStatement("getPlayerTPS", "SELECT tps FROM "+ ConfigManager.main.Table_Players +" WHERE playername = ? OR uuid = ?");
+        statements.addPreparedStatement("getPlayer", "SELECT * FROM "+ ConfigManager.main.Table_Players +" WHERE playername = ? OR uuid = ?");
+        statements.addPreparedStatement("getAltPlayer", "SELECT playername, uuid FROM "+ ConfigManager.main.Table_Players +" WHERE ipaddress = ? ORDER BY lastonline DESC LIMIT 2");
         // Show the 20 most recent players whose name matches the search string
-        connection.addPreparedStatement("matchPlayers", "SELECT playername,uuid FROM (SELECT playername,uuid,lastonline FROM "+ ConfigManager.main.Table_Players +" WHERE playername like ? OR uuid like ? ORDER BY lastonline desc LIMIT 20) AS FilterQ ORDER BY lastonline");
-        connection.addPreparedStatement("insertPlayer", "INSERT INTO "+ ConfigManager.main.Table_Players +" (playername,uuid,firstonline,lastonline,ipaddress) VALUES (?, ?, NOW(), NOW(), ?)");
-        connection.addPreparedStatement("insertPlayerConvert", "INSERT INTO "+ ConfigManager.main.Table_Players +" (playername,uuid,firstonline,lastonline,ipaddress,tps) VALUES (?, ?, ?, ?, ?, ?)");
-        connection.addPreparedStatement("getPlayers", "SELECT * FROM "+ ConfigManager.main.Table_Players);
-        connection.addPreparedStatement("setUUID", "UPDATE "+ ConfigManager.main.Table_Players +" SET uuid = ? WHERE playername = ?");
-        connection.addPreparedStatement("updatePlayerByUUID", "UPDATE " + ConfigManager.main.Table_Players + " SET playername = ?, lastonline = NOW(), ipaddress = ?, tps = ?, newspawn = ? WHERE uuid = ?");
-        connection.addPreparedStatement("updatePlayerByName", "UPDATE " + ConfigManager.main.Table_Players + " SET uuid = ?, lastonline = NOW(), ipaddress = ?, tps = ?, newspawn = ? WHERE playername = ?");
-        connection.addPreparedStatement("resolvePlayerName", "SELECT playername,uuid FROM "+ ConfigManager.main.Table_Players +" WHERE FIND_IN_SET(playername, ?)");
-        connection.addPreparedStatement("resolveOldPlayerName", "SELECT player,uuid FROM "+ ConfigManager.main.Table_Tracking +" WHERE FIND_IN_SET(player, ?) GROUP BY player");
-        connection.addPreparedStatement("resolveUUID", "SELECT playername,uuid FROM "+ ConfigManager.main.Table_Players +" WHERE FIND_IN_SET(uuid, ?)");
-        connection.addPreparedStatement("getAllUUIDS", "SELECT uuid FROM " + ConfigManager.main.Table_Players);
-        connection.addPreparedStatement("getUUIDS", "SELECT uuid FROM " + ConfigManager.main.Table_Players + " WHERE " +
-                "uuid BETWEEN ? and ?");
+        statements.addPreparedStatement("matchPlayers", "SELECT playername,uuid FROM (SELECT playername,uuid,lastonline FROM "+ ConfigManager.main.Table_Players +" WHERE playername like ? OR uuid like ? ORDER BY lastonline desc LIMIT 20) AS FilterQ ORDER BY lastonline");
+        statements.addPreparedStatement("insertPlayer", "INSERT INTO "+ ConfigManager.main.Table_Players +" (playername,uuid,firstonline,lastonline,ipaddress) VALUES (?, ?, NOW(), NOW(), ?)");
+        statements.addPreparedStatement("insertPlayerConvert", "INSERT INTO "+ ConfigManager.main.Table_Players +" (playername,uuid,firstonline,lastonline,ipaddress,tps) VALUES (?, ?, ?, ?, ?, ?)");
+        statements.addPreparedStatement("getPlayers", "SELECT * FROM "+ ConfigManager.main.Table_Players);
+        statements.addPreparedStatement("setUUID", "UPDATE "+ ConfigManager.main.Table_Players +" SET uuid = ? WHERE playername = ?");
+        statements.addPreparedStatement("updatePlayerByUUID", "UPDATE " + ConfigManager.main.Table_Players + " SET playername = ?, lastonline = NOW(), ipaddress = ?, tps = ?, newspawn = ? WHERE uuid = ?");
+        statements.addPreparedStatement("updatePlayerByName", "UPDATE " + ConfigManager.main.Table_Players + " SET uuid = ?, lastonline = NOW(), ipaddress = ?, tps = ?, newspawn = ? WHERE playername = ?");
+        BatchedLookup.register(statements, "resolvePlayerName", "SELECT playername,uuid FROM "+ ConfigManager.main.Table_Players +" WHERE playername IN {in}");
+        BatchedLookup.register(statements, "resolveOldPlayerName", "SELECT player,uuid FROM "+ ConfigManager.main.Table_Tracking +" WHERE player IN {in} GROUP BY player");
+        BatchedLookup.register(statements, "resolveUUID", "SELECT playername,uuid FROM "+ ConfigManager.main.Table_Players +" WHERE uuid IN {in}");
+        statements.addPreparedStatement("getUUIDPageFrom", "SELECT uuid FROM " + ConfigManager.main.Table_Players + " WHERE " +
+                "uuid >= ? AND (? IS NULL OR uuid <= ?) ORDER BY uuid LIMIT ?");
+        statements.addPreparedStatement("getUUIDPageAfter", "SELECT uuid FROM " + ConfigManager.main.Table_Players + " WHERE " +
+                "uuid > ? AND (? IS NULL OR uuid <= ?) ORDER BY uuid LIMIT ?");
     }
 
     @Override
@@ -480,32 +478,24 @@ public class Players implements IRepository {
 
         if (installedVersion < 2) {
             // Version 2 adds UUIDs as Field
-            ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-
-            try {
+            try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
                 connectionHandler.getConnection().createStatement().execute("ALTER TABLE `"+ ConfigManager.main.Table_Players +"` ADD `uuid` VARCHAR(100) NULL AFTER `playername`, ADD UNIQUE (`uuid`) ;");
             } catch (SQLException e) {
                 System.out.println("Could not update the Player Database to version 2");
                 e.printStackTrace();
                 return;
-            } finally {
-                connectionHandler.release();
             }
 
-            connectionHandler = DatabaseManager.connectionPool.getConnection();
-
             // Convert all Names to UUIDs
-            PreparedStatement getPlayers = connectionHandler.getPreparedStatement("getPlayers");
-            try {
+            try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
+                PreparedStatement getPlayers = connectionHandler.getPreparedStatement("getPlayers");
                 ResultSet res = getPlayers.executeQuery();
                 while (res.next()) {
                     String playername = res.getString("playername");
                     String uuid = Utilities.getUUID(playername);
 
                     if (uuid != null) {
-                        ConnectionHandler connectionHandler1 = DatabaseManager.connectionPool.getConnection();
-
-                        try {
+                        try (ConnectionHandler connectionHandler1 = DatabaseManager.connectionPool.borrowConnection()) {
                             PreparedStatement preparedStatement = connectionHandler1.getPreparedStatement("setUUID");
                             preparedStatement.setString(1, uuid);
                             preparedStatement.setString(2, playername);
@@ -513,8 +503,6 @@ public class Players implements IRepository {
                         } catch (SQLException e) {
                             System.out.println("Could not update Player for update to version 2");
                             e.printStackTrace();
-                        } finally {
-                            connectionHandler1.release();
                         }
                     }
                 }
@@ -522,37 +510,28 @@ public class Players implements IRepository {
                 System.out.println("Could not get Players for update to version 2");
                 e.printStackTrace();
                 return;
-            } finally {
-                connectionHandler.release();
             }
         }
         if (installedVersion < 3) {
             // Version 3 adds "firstonline" field
-            ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-            try {
+            try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
                 System.out.println("Upgrading Player Database to version 3...");
                 connectionHandler.getConnection().createStatement().execute("ALTER TABLE `"+ ConfigManager.main.Table_Players +"` ADD `firstonline` DATETIME NOT NULL AFTER `uuid`;");
             } catch (SQLException e) {
                 System.out.println("Could not update the Player Database to version 3");
                 e.printStackTrace();
                 return;
-            } finally {
-                connectionHandler.release();
             }
 
             // Convert any existing "firstonline" values to the current "lastonline" values
-            connectionHandler = DatabaseManager.connectionPool.getConnection();
-            Statement stmt = null; 
-            try {
-            	stmt = connectionHandler.getConnection().createStatement();
+            try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
+            	Statement stmt = connectionHandler.getConnection().createStatement();
             	stmt.executeUpdate("UPDATE `"+ ConfigManager.main.Table_Players +"` SET firstonline=lastonline");
             	stmt.close();
             } catch (SQLException e) {
                 System.out.println("Could not upgrade firstonline values of existing players");
                 e.printStackTrace();
                 return;
-            } finally {
-                connectionHandler.release();
             }
         }
 
@@ -0,0 +1,140 @@
+package net.cubespace.geSuit.database;
+
+import net.cubespace.geSuit.configs.SubConfig.Database;
+import net.cubespace.geSuit.geSuit;
+import net.md_5.bungee.api.ProxyServer;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends read-only history and report queries to an optional read replica, keeping them off the primary pool that
+ * logins and writes depend on. Replication lag is checked in the background; while the replica is unreachable or
+ * further behind than the configured limit, reads go to the primary instead.
+ */
+public class ReplicaRouter {
+    // Seconds between replication lag checks
+    private static final int CHECK_INTERVAL = 10;
+
+    private final ConnectionPool primary;
+    private ConnectionPool replica;
+    private long maxLag;
+    private volatile boolean healthy;
+    private volatile long lag = -1;
+
+    public ReplicaRouter(ConnectionPool primary) {
+        this.primary = primary;
+    }
+
+    /**
+     * Opens the replica pool. Until this is called every read goes to the primary
+     *
+     * @param maxLag seconds the replica may fall behind before reads go back to the primary
+     */
+    public void start(Database database, int maxLag, List<IRepository> repositories) {
+        this.maxLag = maxLag;
+        replica = new ConnectionPool();
+        for (IRepository repository : repositories) {
+            replica.addRepository(repository);
+        }
+        try {
+            replica.initialiseReadOnly(database);
+        } catch (IllegalStateException e) {
+            // Connections are opened on demand, so the lag check picks the replica up once it is reachable
+            geSuit.instance.getLogger().warning("Could not connect to the read replica, reports use the main database for now");
+        }
+
+        checkReplica();
+        ProxyServer.getInstance().getScheduler().schedule(geSuit.instance, this::checkReplica, CHECK_INTERVAL, CHECK_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Runs an idempotent read on the replica when it is healthy, otherwise on the primary. Results may be up to the
+     * configured lag behind, so do not use this to read back something that was just written
+     */
+    public <T> T read(SQLFunction<T> reader) throws SQLException {
+        if (healthy) {
+            try {
+                return replica.read(reader);
+            } catch (SQLException e) {
+                if (!(e instanceof SQLTransientConnectionException) && !ConnectionPool.isConnectionError(e)) {
+                    throw e;
+                }
+                markUnhealthy("read failed: " + e.getMessage());
+            }
+        }
+
+        return primary.read(reader);
+    }
+
+    private void checkReplica() {
+        try {
+            long behind = replica.read(this::readLag);
+            lag = behind;
+            if (behind < 0) {
+                markUnhealthy("replication is not running");
+            } else if (behind > maxLag) {
+                markUnhealthy(behind + "s behind the primary");
+            } else if (!healthy) {
+                healthy = true;
+                geSuit.instance.getLogger().info("Read replica is " + behind + "s behind, sending reports to it");
+            }
+        } catch (SQLException e) {
+            lag = -1;
+            markUnhealthy("unreachable: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return seconds behind the primary, 0 if the server is not replicating from anywhere, or -1 if replication
+     * has stopped
+     */
+    private long readLag(ConnectionHandler connectionHandler) throws SQLException {
+        try (Statement statement = connectionHandler.getConnection().createStatement();
+             ResultSet res = statement.executeQuery("SHOW SLAVE STATUS")) {
+            if (!res.next()) {
+                return 0;
+            }
+
+            long behind = res.getLong("Seconds_Behind_Master");
+            return res.wasNull() ? -1 : behind;
+        }
+    }
+
+    private void markUnhealthy(String reason) {
+        if (healthy) {
+            healthy = false;
+            geSuit.instance.getLogger().warning("Read replica " + reason + ", sending reports to the primary");
+        }
+    }
+
+    public boolean isEnabled() {
+        return replica != null;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * @return seconds behind the primary at the last check, or -1 if unknown
+     */
+    public long getLag() {
+        return lag;
+    }
+
+    public ConnectionPool getReplica() {
+        return replica;
+    }
+
+    public void close() {
+        healthy = false;
+        if (replica != null) {
+            replica.closeConnections();
+        }
+    }
+}
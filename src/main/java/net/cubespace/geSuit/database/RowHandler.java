@@ -0,0 +1,11 @@
+package net.cubespace.geSuit.database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Receives the rows of a query one at a time
+ */
+public interface RowHandler {
+    void row(ResultSet res) throws SQLException;
+}
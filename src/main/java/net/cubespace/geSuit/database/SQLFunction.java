@@ -0,0 +1,10 @@
+package net.cubespace.geSuit.database;
+
+import java.sql.SQLException;
+
+/**
+ * A unit of database work run against a leased connection
+ */
+public interface SQLFunction<T> {
+    T apply(ConnectionHandler connectionHandler) throws SQLException;
+}
@@ -0,0 +1,184 @@
+package net.cubespace.geSuit.database;
+
+import net.cubespace.geSuit.geSuit;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Applies numbered schema migrations in order and records each one, with a checksum, in the schema version table.
+ * When every migration is already recorded, startup costs one query.
+ * <p>
+ * Migration SQL names tables with placeholders like {players}, so renaming a table in the config does not change
+ * the checksum of a migration that already ran.
+ */
+public class SchemaMigrator {
+    // MySQL errors for an index or column that already exists; a migration that failed part way can run again
+    private static final int ER_DUP_FIELDNAME = 1060;
+    private static final int ER_DUP_KEYNAME = 1061;
+
+    private final ConnectionPool pool;
+    private final String versionTable;
+    private final Map<String, String> tables = new HashMap<>();
+    private final List<Migration> migrations = new ArrayList<>();
+
+    public SchemaMigrator(ConnectionPool pool, String versionTable) {
+        this.pool = pool;
+        this.versionTable = versionTable;
+    }
+
+    /**
+     * Maps a placeholder like {players} to the configured table name
+     */
+    public SchemaMigrator table(String placeholder, String table) {
+        tables.put("{" + placeholder + "}", table);
+        return this;
+    }
+
+    public SchemaMigrator add(Migration migration) {
+        migrations.add(migration);
+        return this;
+    }
+
+    /**
+     * @return false if a migration failed or an applied migration no longer matches its checksum
+     */
+    public boolean migrate() {
+        Map<Integer, Long> applied;
+        try {
+            applied = readApplied();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            geSuit.instance.getLogger().severe("Could not read the schema version table " + versionTable);
+            return false;
+        }
+
+        List<Migration> ordered = new ArrayList<>(migrations);
+        Collections.sort(ordered, Comparator.comparingInt(m -> m.version));
+        for (Migration migration : ordered) {
+            Long checksum = applied.get(migration.version);
+            if (checksum != null) {
+                if (checksum != migration.checksum()) {
+                    geSuit.instance.getLogger().severe("Schema migration " + migration.version + " (" + migration.description + ") was changed after it was applied, not applying later migrations");
+                    return false;
+                }
+                continue;
+            }
+
+            geSuit.instance.getLogger().info("Applying schema migration " + migration.version + ": " + migration.description);
+            try {
+                apply(migration);
+            } catch (SQLException e) {
+                e.printStackTrace();
+                geSuit.instance.getLogger().severe("Schema migration " + migration.version + " failed, it will be retried on the next start");
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private Map<Integer, Long> readApplied() throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (ConnectionHandler ch = pool.borrowConnection();
+             Statement statement = ch.getConnection().createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS `" + versionTable + "` ("
+                    + "version INT(11) NOT NULL, "
+                    + "description VARCHAR(200) NOT NULL, "
+                    + "checksum BIGINT NOT NULL, "
+                    + "applied_on DATETIME NOT NULL, "
+                    + "CONSTRAINT pk_version PRIMARY KEY (version))");
+
+            try (ResultSet res = statement.executeQuery("SELECT version, checksum FROM `" + versionTable + "`")) {
+                while (res.next()) {
+                    applied.put(res.getInt("version"), res.getLong("checksum"));
+                }
+            }
+        }
+        return applied;
+    }
+
+    private void apply(Migration migration) throws SQLException {
+        if (migration.task != null) {
+            migration.task.run();
+        }
+
+        try (ConnectionHandler ch = pool.borrowConnection()) {
+            try (Statement statement = ch.getConnection().createStatement()) {
+                for (String sql : migration.statements) {
+                    try {
+                        statement.executeUpdate(resolve(sql));
+                    } catch (SQLException e) {
+                        if (e.getErrorCode() != ER_DUP_KEYNAME && e.getErrorCode() != ER_DUP_FIELDNAME) {
+                            throw e;
+                        }
+                        geSuit.instance.getLogger().warning("Skipping, already applied: " + e.getMessage());
+                    }
+                }
+            }
+
+            try (PreparedStatement record = ch.getConnection().prepareStatement("INSERT INTO `" + versionTable + "` (version, description, checksum, applied_on) VALUES (?, ?, ?, NOW())")) {
+                record.setInt(1, migration.version);
+                record.setString(2, migration.description);
+                record.setLong(3, migration.checksum());
+                record.executeUpdate();
+            }
+        }
+    }
+
+    private String resolve(String sql) {
+        for (Map.Entry<String, String> table : tables.entrySet()) {
+            sql = sql.replace(table.getKey(), table.getValue());
+        }
+        return sql;
+    }
+
+    public static class Migration {
+        final int version;
+        final String description;
+        final List<String> statements;
+        final Runnable task;
+
+        private Migration(int version, String description, Runnable task, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.task = task;
+            this.statements = Arrays.asList(statements);
+        }
+
+        /**
+         * A migration made of SQL statements, run in order on one connection
+         */
+        public static Migration sql(int version, String description, String... statements) {
+            return new Migration(version, description, null, statements);
+        }
+
+        /**
+         * A migration done in code. Only its description goes into the checksum
+         */
+        public static Migration task(int version, String description, Runnable task) {
+            return new Migration(version, description, task);
+        }
+
+        long checksum() {
+            CRC32 crc = new CRC32();
+            crc.update(description.getBytes(StandardCharsets.UTF_8));
+            for (String sql : statements) {
+                crc.update('\n');
+                crc.update(sql.getBytes(StandardCharsets.UTF_8));
+            }
+            return crc.getValue();
+        }
+    }
+}
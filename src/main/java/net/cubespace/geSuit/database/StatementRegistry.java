@@ -0,0 +1,37 @@
+package net.cubespace.geSuit.database;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the SQL behind every named prepared statement of a pool. Repositories register their queries here once;
+ * each {@link ConnectionHandler} prepares a statement the first time it is asked for it by name.
+ */
+public class StatementRegistry {
+    private final ConcurrentHashMap<String, Definition> definitions = new ConcurrentHashMap<>();
+
+    public void addPreparedStatement(String name, String query, int mode) {
+        definitions.put(name, new Definition(query, mode));
+    }
+
+    public void addPreparedStatement(String name, String query) {
+        definitions.put(name, new Definition(query, null));
+    }
+
+    Definition get(String name) {
+        return definitions.get(name);
+    }
+
+    public int size() {
+        return definitions.size();
+    }
+
+    static class Definition {
+        final String query;
+        final Integer mode;
+
+        Definition(String query, Integer mode) {
+            this.query = query;
+            this.mode = mode;
+        }
+    }
+}
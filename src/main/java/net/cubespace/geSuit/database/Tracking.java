@@ -2,16 +2,20 @@ package net.cubespace.geSuit.database;
 
 import net.cubespace.geSuit.Utilities;
 import net.cubespace.geSuit.geSuit;
+import net.cubespace.geSuit.managers.BansManager;
 import net.cubespace.geSuit.managers.ConfigManager;
 import net.cubespace.geSuit.managers.DatabaseManager;
 import net.cubespace.geSuit.managers.LoggingManager;
+import net.cubespace.geSuit.objects.Ban;
 import net.cubespace.geSuit.objects.GSPlayer;
 import net.cubespace.geSuit.objects.Track;
 import net.cubespace.geSuit.profile.Profile;
 
+import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.*;
 
@@ -19,28 +23,83 @@ import java.util.*;
  * @author geNAZt (fabian.fassbender42@googlemail.com)
  */
 public class Tracking implements IRepository {
+    // Rows shown by /where and the ban commands' tracking lists
+    static final int MAX_TRACKING_ROWS = 500;
     
     public void insertTracking(String player, String uuid, String ip) {
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-
-        try {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
             PreparedStatement insertPlayer = connectionHandler.getPreparedStatement("insertTracking");
             insertPlayer.setString(1, player);
             insertPlayer.setString(2, uuid);
             insertPlayer.setString(3, ip);
 
             insertPlayer.executeUpdate();
+            insertAssociations(connectionHandler, Collections.singletonList(new String[]{player, uuid, ip}));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Records several sightings in a single batch
+     *
+     * @param entries player, uuid and ip of each sighting
+     * @return false if the batch could not be written
+     */
+    public boolean insertTracking(Collection<String[]> entries) {
+        if (entries.isEmpty()) {
+            return true;
+        }
+
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
+            PreparedStatement insertTracking = connectionHandler.getPreparedStatement("insertTracking");
+            for (String[] entry : entries) {
+                insertTracking.setString(1, entry[0]);
+                insertTracking.setString(2, entry[1]);
+                insertTracking.setString(3, entry[2]);
+                insertTracking.addBatch();
+            }
+
+            insertTracking.executeBatch();
+            insertAssociations(connectionHandler, entries);
+            return true;
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
+        }
+
+        return false;
+    }
+
+    /**
+     * Keeps the IP and account/IP edge tables in step with the tracking rows just written
+     */
+    private void insertAssociations(ConnectionHandler connectionHandler, Collection<String[]> entries) throws SQLException {
+        PreparedStatement insertIP = connectionHandler.getPreparedStatement("insertTrackingIP");
+        PreparedStatement insertEdge = connectionHandler.getPreparedStatement("insertTrackingEdge");
+        int count = 0;
+        for (String[] entry : entries) {
+            if (entry[2] == null || entry[2].isEmpty()) {
+                continue;
+            }
+            insertIP.setString(1, entry[2]);
+            insertIP.setString(2, entry[2]);
+            insertIP.addBatch();
+            insertEdge.setString(1, entry[1]);
+            insertEdge.setString(2, entry[2]);
+            insertEdge.addBatch();
+            count++;
+        }
+
+        if (count > 0) {
+            // IPs first, the edges look their ids up
+            insertIP.executeBatch();
+            insertEdge.executeBatch();
         }
     }
 
     public void insertHistoricTracking(String player, String uuid, String ip, Date changedDate, Date lastSeen) {
 
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-        try {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
             PreparedStatement insertPlayer = connectionHandler.getPreparedStatement("insertHistoricTracking");
             insertPlayer.setString(1, player);
             insertPlayer.setString(2, uuid);
@@ -50,59 +109,93 @@ public class Tracking implements IRepository {
             insertPlayer.executeUpdate();
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
         }
     }
 
+    /**
+     * Finds the tracking rows on the IPs a player or UUID has used, or on a single IP, like the self-join it replaces.
+     * Only the {@link #MAX_TRACKING_ROWS} most recently seen are returned, so a shared IP such as a VPN or carrier NAT
+     * cannot pull in every account that ever used it
+     */
     public List<Track> getPlayerTracking(String search, String type) {
-        List<Track> tracking = new ArrayList<>();
-
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
         try {
-        	PreparedStatement trackInfo;
-
-            switch (type) {
-                case "ip":
-                    // Lookup by IP
-                    trackInfo = connectionHandler.getPreparedStatement("getIPTracking");
-                    trackInfo.setString(1, search);
-                    break;
-                case "uuid":
-                    // Lookup by IP
-                    trackInfo = connectionHandler.getPreparedStatement("getUUIDTracking");
-                    trackInfo.setString(1, search);
-                    break;
-                default:
-                    // Lookup by player name
-                    trackInfo = connectionHandler.getPreparedStatement("getPlayerTracking");
-                    trackInfo.setString(1, search);
-                    break;
-            }
+            return DatabaseManager.reports.read(connectionHandler -> {
+                List<TrackedRow> rows = new ArrayList<>();
+                RowHandler addTrack = res -> rows.add(new TrackedRow(res.getString("player"), res.getString("uuid"), res.getString("ip"), res.getTimestamp("firstseen"), res.getTimestamp("lastseen")));
 
-            ResultSet res = trackInfo.executeQuery();
-            while (res.next()) {
-                tracking.add(new Track(
-                		res.getString("player"),
-                		res.getString("uuid"),
-                		res.getString("ip"),
-                		res.getTimestamp("firstseen"),
-                		res.getTimestamp("lastseen"),
-                		res.getString("type"),
-                		res.getString("banned_playername"),
-                		res.getString("banned_uuid"),
-                		res.getString("banned_ip")
-                ));
-            }
+                Set<String> ips = new HashSet<>();
+                if ("ip".equals(type)) {
+                    ips.add(search);
+                } else {
+                    PreparedStatement accountIPs = connectionHandler.getPreparedStatement("uuid".equals(type) ? "getUUIDIPs" : "getPlayerIPs");
+                    accountIPs.setString(1, search);
+                    try (ResultSet res = accountIPs.executeQuery()) {
+                        while (res.next()) {
+                            ips.add(res.getString("ip"));
+                        }
+                    }
+                    ips.remove("");
+                }
+
+                // Each chunk brings back at most the limit, so the newest rows overall are among them
+                BatchedLookup.query(connectionHandler, "getSharedIPTracking", ips, addTrack);
+                rows.sort(Comparator.comparing((TrackedRow row) -> row.lastseen).reversed());
+                if (rows.size() > MAX_TRACKING_ROWS) {
+                    rows.subList(MAX_TRACKING_ROWS, rows.size()).clear();
+                }
+                Collections.reverse(rows);
 
-            res.close();
+                // Bans are looked up on this connection, once per row that is shown
+                List<Track> tracking = new ArrayList<>(rows.size());
+                for (TrackedRow row : rows) {
+                    Ban ban = BansManager.getActiveBan(connectionHandler, row.player, row.uuid, row.ip);
+                    // Range bans cover IPs, not accounts
+                    if (ban != null && "rangeban".equals(ban.getType())) {
+                        ban = null;
+                    }
+                    tracking.add(new Track(
+                            row.player,
+                            row.uuid,
+                            row.ip,
+                            row.firstseen,
+                            row.lastseen,
+                            (ban == null) ? null : ban.getType(),
+                            (ban == null) ? null : ban.getPlayer(),
+                            (ban == null) ? null : ban.getUuid(),
+                            (ban == null) ? null : ban.getIp()
+                    ));
+                }
+                return tracking;
+            });
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
+            return new ArrayList<>();
         }
+    }
 
-        return tracking;
+    /**
+     * Streams every account/IP pair with when the account last used it
+     *
+     * @return false if the pairs could not be read
+     */
+    public boolean forEachAssociation(AssociationConsumer consumer) {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
+            connectionHandler.stream("getTrackingAssociations", res -> {
+                try {
+                    consumer.accept(Utilities.makeUUID(res.getString("uuid")), res.getString("ip"), res.getTimestamp("lastseen").getTime());
+                } catch (IllegalArgumentException e) {
+                    // Skip malformed uuids rather than abandon the whole list
+                }
+            });
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    public interface AssociationConsumer {
+        void accept(UUID uuid, String ip, long lastSeen);
     }
 
     public void insertNameHistory(GSPlayer player) {
@@ -121,43 +214,44 @@ public class Tracking implements IRepository {
     }
 
     public List<Track> getNameHistory(UUID id) {
-        List<Track> tracking = new ArrayList<>();
-
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
         try {
-            PreparedStatement statement = connectionHandler.getPreparedStatement("getNameHistory");
-            String uuid = id.toString().replace("-", "");
-            statement.setString(1, uuid);
-            statement.setString(2, uuid);
-            
-            ResultSet res = statement.executeQuery();
-            while (res.next()) {
-                tracking.add(new Track(
-                        res.getString("player"),
-                        res.getString("uuid"),
-                        res.getString("ip"),
-                        res.getTimestamp("firstseen"),
-                        res.getTimestamp("lastseen"),
-                        null,
-                        null,
-                        null,
-                        null
-                ));
-            }
+            return DatabaseManager.reports.read(connectionHandler -> {
+                List<Track> tracking = new ArrayList<>();
+                PreparedStatement statement = connectionHandler.getPreparedStatement("getNameHistory");
+                String uuid = id.toString().replace("-", "");
+                statement.setString(1, uuid);
+                statement.setString(2, uuid);
 
-            res.close();
+                try (ResultSet res = statement.executeQuery()) {
+                    while (res.next()) {
+                        tracking.add(new Track(
+                                res.getString("player"),
+                                res.getString("uuid"),
+                                res.getString("ip"),
+                                res.getTimestamp("firstseen"),
+                                res.getTimestamp("lastseen"),
+                                null,
+                                null,
+                                null,
+                                null
+                        ));
+                    }
+                }
+                return tracking;
+            });
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
+            return new ArrayList<>();
         }
-
-        return tracking;
     }
 
-    public void batchUpdateNameHistories(final List<UUID> uuids) {
-        geSuit.instance.getProxy().getScheduler().runAsync(
-                geSuit.instance, nameHistoryUpdater((uuids)));
+    /**
+     * Updates the name history of every player with a UUID between start and end (null for no limit), reading the
+     * players table a page at a time
+     */
+    public void batchUpdateNameHistories(final String start, final String end) {
+        geSuit.instance.getProxy().getScheduler().runAsync(geSuit.instance,
+                () -> DatabaseManager.players.forEachUUIDPage(start, end, uuids -> nameHistoryUpdater(uuids).run()));
     }
     
     Runnable nameHistoryUpdater(final List<UUID> uuids) {
@@ -192,64 +286,220 @@ public class Tracking implements IRepository {
         };
     }
 
-    public Track checkNameChange(UUID id, String playername) {
-        Track tracking = null;
+    /**
+     * Merges the rows of each uuid/ip seen under several names into the row of the latest name, for up to limit
+     * pairs starting at the given uuid. The older names are kept as name history rows without an IP
+     *
+     * @return the last uuid handled, where the next call should start, or null when nothing is left or on error
+     */
+    public String compactTracking(String from, int limit) {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
+            List<String[]> pairs = new ArrayList<>();
+            PreparedStatement duplicates = connectionHandler.getPreparedStatement("getDuplicateTracking");
+            duplicates.setString(1, from);
+            duplicates.setInt(2, limit);
+            try (ResultSet res = duplicates.executeQuery()) {
+                while (res.next()) {
+                    pairs.add(new String[]{res.getString("uuid"), res.getString("ip")});
+                }
+            }
+            if (pairs.isEmpty()) {
+                return null;
+            }
 
-        ConnectionHandler connectionHandler = DatabaseManager.connectionPool.getConnection();
-        try {
-            PreparedStatement statement = connectionHandler.getPreparedStatement("checkNameChange");
-            String uuid = id.toString().replace("-", "");
-            statement.setString(1, uuid);
-            statement.setString(2, playername);
-            
-            ResultSet res = statement.executeQuery();
-            if (res.next()) {
-                tracking = new Track(
-                        res.getString("player"),
-                        res.getString("uuid"),
-                        res.getString("ip"),
-                        res.getTimestamp("firstseen"),
-                        res.getTimestamp("lastseen"),
-                        null,
-                        null,
-                        null,
-                        null
-                );
+            PreparedStatement names = connectionHandler.getPreparedStatement("getTrackingNames");
+            PreparedStatement keepName = connectionHandler.getPreparedStatement("keepTrackingName");
+            PreparedStatement deleteRow = connectionHandler.getPreparedStatement("deleteTrackingRow");
+            PreparedStatement widenRow = connectionHandler.getPreparedStatement("widenTrackingRow");
+            for (String[] pair : pairs) {
+                names.setString(1, pair[0]);
+                names.setString(2, pair[1]);
+                try (ResultSet res = names.executeQuery()) {
+                    // Newest first: the first row is kept
+                    if (!res.next()) {
+                        continue;
+                    }
+                    String latest = res.getString("player");
+                    Timestamp firstSeen = res.getTimestamp("firstseen");
+                    while (res.next()) {
+                        Timestamp first = res.getTimestamp("firstseen");
+                        if (first.before(firstSeen)) {
+                            firstSeen = first;
+                        }
+
+                        keepName.setString(1, res.getString("player"));
+                        keepName.setString(2, pair[0]);
+                        keepName.setTimestamp(3, first);
+                        keepName.setTimestamp(4, res.getTimestamp("lastseen"));
+                        keepName.addBatch();
+                        deleteRow.setString(1, res.getString("player"));
+                        deleteRow.setString(2, pair[0]);
+                        deleteRow.setString(3, pair[1]);
+                        deleteRow.addBatch();
+                    }
+                    widenRow.setTimestamp(1, firstSeen);
+                    widenRow.setString(2, latest);
+                    widenRow.setString(3, pair[0]);
+                    widenRow.setString(4, pair[1]);
+                    widenRow.addBatch();
+                }
+            }
+
+            Connection connection = connectionHandler.getConnection();
+            connection.setAutoCommit(false);
+            try {
+                keepName.executeBatch();
+                deleteRow.executeBatch();
+                widenRow.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+
+            return (pairs.size() < limit) ? null : pairs.get(pairs.size() - 1)[0];
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Moves up to limit of the rows last seen before the horizon to the archive table, in one transaction
+     *
+     * @return the number of rows moved, or -1 on error
+     */
+    public int archiveTracking(Timestamp horizon, int limit) {
+        try (ConnectionHandler connectionHandler = DatabaseManager.connectionPool.borrowConnection()) {
+            PreparedStatement expired = connectionHandler.getPreparedStatement("getExpiredTracking");
+            PreparedStatement archive = connectionHandler.getPreparedStatement("archiveTracking");
+            PreparedStatement delete = connectionHandler.getPreparedStatement("deleteArchivedTracking");
+            expired.setTimestamp(1, horizon);
+            expired.setInt(2, limit);
+            int count = 0;
+            try (ResultSet res = expired.executeQuery()) {
+                while (res.next()) {
+                    for (PreparedStatement statement : new PreparedStatement[]{archive, delete}) {
+                        statement.setString(1, res.getString("player"));
+                        statement.setString(2, res.getString("uuid"));
+                        statement.setString(3, res.getString("ip"));
+                        // A row seen again since it was picked stays where it is
+                        statement.setTimestamp(4, horizon);
+                        statement.addBatch();
+                    }
+                    count++;
+                }
+            }
+            if (count == 0) {
+                return 0;
             }
 
-            res.close();
+            Connection connection = connectionHandler.getConnection();
+            connection.setAutoCommit(false);
+            try {
+                archive.executeBatch();
+                delete.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            return count;
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            connectionHandler.release();
+            return -1;
         }
+    }
 
-        return tracking;
+    public Track checkNameChange(UUID id, String playername) {
+        try {
+            return DatabaseManager.connectionPool.read(connectionHandler -> {
+                Track tracking = null;
+                PreparedStatement statement = connectionHandler.getPreparedStatement("checkNameChange");
+                String uuid = id.toString().replace("-", "");
+                statement.setString(1, uuid);
+                statement.setString(2, playername);
+
+                ResultSet res = statement.executeQuery();
+                if (res.next()) {
+                    tracking = new Track(
+                            res.getString("player"),
+                            res.getString("uuid"),
+                            res.getString("ip"),
+                            res.getTimestamp("firstseen"),
+                            res.getTimestamp("lastseen"),
+                            null,
+                            null,
+                            null,
+                            null
+                    );
+                }
+
+                res.close();
+                return tracking;
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return null;
     }
 
     @Override
     public String[] getTable() {
     	return new String[]{ConfigManager.main.Table_Tracking, "player varchar(20) NOT NULL, "
     			  + "`uuid` varchar(32) NOT NULL,"
-    			  + "`ip` varchar(15) NOT NULL,"
+    			  + "`ip` varchar(45) NOT NULL,"
     			  + "`firstseen` datetime NOT NULL,"
     			  + "`lastseen` datetime NOT NULL,"
     			  + "UNIQUE KEY `player` (`player`,`uuid`,`ip`)"};
     }
 
     @Override
-    public void registerPreparedStatements(ConnectionHandler connection) {
-        connection.addPreparedStatement("insertHistoricTracking", "INSERT INTO " + ConfigManager.main.Table_Tracking + " (player,uuid,ip,firstseen,lastseen) VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE player=player");
-        connection.addPreparedStatement("insertTracking", "INSERT INTO "+ ConfigManager.main.Table_Tracking +" (player,uuid,ip,firstseen,lastseen) VALUES (?, ?, ?, NOW(), NOW()) ON DUPLICATE KEY UPDATE lastseen=NOW()");
-        connection.addPreparedStatement("getPlayerTracking", "SELECT t2.ip, t2.player, t2.uuid, t2.firstseen, t2.lastseen, b.type, b.banned_playername, b.banned_uuid, b.banned_ip FROM "+ ConfigManager.main.Table_Tracking +" AS t1 JOIN "+ ConfigManager.main.Table_Tracking +" AS t2 ON t1.ip=t2.ip LEFT JOIN " + ConfigManager.main.Table_Bans + " AS b ON (t2.ip=b.banned_ip OR t2.player=b.banned_playername OR t2.uuid=b.banned_uuid) AND b.type != 'warn' AND b.active=1 WHERE t1.player=? GROUP BY t2.player,t2.uuid,t2.ip ORDER BY t2.lastseen;");
-        connection.addPreparedStatement("getUUIDTracking", "SELECT t2.ip, t2.player, t2.uuid, t2.firstseen, t2.lastseen, b.type, b.banned_playername, b.banned_uuid, b.banned_ip FROM "+ ConfigManager.main.Table_Tracking +" AS t1 JOIN "+ ConfigManager.main.Table_Tracking +" AS t2 ON t1.ip=t2.ip LEFT JOIN " + ConfigManager.main.Table_Bans + " AS b ON (t2.ip=b.banned_ip OR t2.player=b.banned_playername OR t2.uuid=b.banned_uuid) AND b.type != 'warn' AND b.active=1 WHERE t1.uuid=? GROUP BY t2.player,t2.uuid,t2.ip ORDER BY t2.lastseen;");
-        connection.addPreparedStatement("getIPTracking", "SELECT t.ip, t.player, t.uuid, t.firstseen, t.lastseen, b.type, b.banned_playername, b.banned_uuid, b.banned_ip FROM "+ ConfigManager.main.Table_Tracking +" AS t LEFT JOIN "+ ConfigManager.main.Table_Bans +" AS b ON (t.ip=b.banned_ip OR t.player=b.banned_playername OR t.uuid=b.banned_uuid) AND b.type != 'warn' AND b.active=1 WHERE t.ip=? GROUP BY t.player,t.uuid,t.ip ORDER BY t.lastseen;");
-        connection.addPreparedStatement("getNameHistory", "SELECT p1.* FROM " + ConfigManager.main.Table_Tracking + " p1 INNER JOIN ( SELECT max(lastseen) LastSeen, player FROM " + ConfigManager.main.Table_Tracking + " WHERE uuid=? GROUP BY player) p2 ON p1.player = p2.player AND p1.lastseen = p2.LastSeen WHERE p1.uuid=? order by p1.lastseen;");
-        connection.addPreparedStatement("checkNameChange", "SELECT * FROM " + ConfigManager.main.Table_Tracking + " WHERE uuid=? AND player!=? ORDER BY lastseen DESC;");
+    public void registerPreparedStatements(StatementRegistry statements) {
+        statements.addPreparedStatement("insertHistoricTracking", "INSERT INTO " + ConfigManager.main.Table_Tracking + " (player,uuid,ip,firstseen,lastseen) VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE player=player");
+        statements.addPreparedStatement("insertTracking", "INSERT INTO "+ ConfigManager.main.Table_Tracking +" (player,uuid,ip,firstseen,lastseen) VALUES (?, ?, ?, NOW(), NOW()) ON DUPLICATE KEY UPDATE lastseen=NOW()");
+        statements.addPreparedStatement("getPlayerIPs", "SELECT DISTINCT ip FROM "+ ConfigManager.main.Table_Tracking +" WHERE player=?;");
+        statements.addPreparedStatement("getUUIDIPs", "SELECT DISTINCT i.ip FROM "+ ConfigManager.main.Table_TrackingEdges +" AS e JOIN "+ ConfigManager.main.Table_TrackingIPs +" AS i ON i.id=e.ip_id WHERE e.uuid=?;");
+        BatchedLookup.register(statements, "getSharedIPTracking", "SELECT ip, player, uuid, firstseen, lastseen FROM "+ ConfigManager.main.Table_Tracking +" WHERE ip IN {in} ORDER BY lastseen DESC LIMIT " + MAX_TRACKING_ROWS);
+        statements.addPreparedStatement("insertTrackingIP", "INSERT IGNORE INTO "+ ConfigManager.main.Table_TrackingIPs +" (ip) SELECT ? FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM "+ ConfigManager.main.Table_TrackingIPs +" WHERE ip=?)");
+        statements.addPreparedStatement("insertTrackingEdge", "INSERT INTO "+ ConfigManager.main.Table_TrackingEdges +" (ip_id,uuid,firstseen,lastseen) SELECT id, ?, NOW(), NOW() FROM "+ ConfigManager.main.Table_TrackingIPs +" WHERE ip=? ON DUPLICATE KEY UPDATE lastseen=NOW()");
+        statements.addPreparedStatement("getTrackingAssociations", "SELECT e.uuid, i.ip, e.lastseen FROM "+ ConfigManager.main.Table_TrackingEdges +" AS e JOIN "+ ConfigManager.main.Table_TrackingIPs +" AS i ON i.id=e.ip_id");
+        statements.addPreparedStatement("getDuplicateTracking", "SELECT uuid, ip FROM "+ ConfigManager.main.Table_Tracking +" WHERE uuid >= ? AND ip != '' GROUP BY uuid, ip HAVING COUNT(*) > 1 ORDER BY uuid LIMIT ?");
+        statements.addPreparedStatement("getTrackingNames", "SELECT player, firstseen, lastseen FROM "+ ConfigManager.main.Table_Tracking +" WHERE uuid=? AND ip=? ORDER BY lastseen DESC");
+        statements.addPreparedStatement("keepTrackingName", "INSERT INTO "+ ConfigManager.main.Table_Tracking +" (player,uuid,ip,firstseen,lastseen) VALUES (?, ?, '', ?, ?) ON DUPLICATE KEY UPDATE firstseen=LEAST(firstseen, VALUES(firstseen)), lastseen=GREATEST(lastseen, VALUES(lastseen))");
+        statements.addPreparedStatement("deleteTrackingRow", "DELETE FROM "+ ConfigManager.main.Table_Tracking +" WHERE player=? AND uuid=? AND ip=?");
+        statements.addPreparedStatement("widenTrackingRow", "UPDATE "+ ConfigManager.main.Table_Tracking +" SET firstseen=LEAST(firstseen, ?) WHERE player=? AND uuid=? AND ip=?");
+        statements.addPreparedStatement("getExpiredTracking", "SELECT player, uuid, ip FROM "+ ConfigManager.main.Table_Tracking +" WHERE lastseen < ? ORDER BY lastseen LIMIT ?");
+        statements.addPreparedStatement("archiveTracking", "INSERT INTO "+ ConfigManager.main.Table_TrackingArchive +" (player,uuid,ip,firstseen,lastseen) SELECT player,uuid,ip,firstseen,lastseen FROM "+ ConfigManager.main.Table_Tracking +" AS t WHERE t.player=? AND t.uuid=? AND t.ip=? AND t.lastseen < ? "
+                + "ON DUPLICATE KEY UPDATE firstseen=LEAST("+ ConfigManager.main.Table_TrackingArchive +".firstseen, VALUES(firstseen)), lastseen=GREATEST("+ ConfigManager.main.Table_TrackingArchive +".lastseen, VALUES(lastseen))");
+        statements.addPreparedStatement("deleteArchivedTracking", "DELETE FROM "+ ConfigManager.main.Table_Tracking +" WHERE player=? AND uuid=? AND ip=? AND lastseen < ?");
+        statements.addPreparedStatement("getNameHistory", "SELECT p1.* FROM " + ConfigManager.main.Table_Tracking + " p1 INNER JOIN ( SELECT max(lastseen) LastSeen, player FROM " + ConfigManager.main.Table_Tracking + " WHERE uuid=? GROUP BY player) p2 ON p1.player = p2.player AND p1.lastseen = p2.LastSeen WHERE p1.uuid=? order by p1.lastseen;");
+        statements.addPreparedStatement("checkNameChange", "SELECT * FROM " + ConfigManager.main.Table_Tracking + " WHERE uuid=? AND player!=? ORDER BY lastseen DESC;");
     }
 
 	@Override
 	public void checkUpdate() {
 
 	}
+
+    private static class TrackedRow {
+        final String player;
+        final String uuid;
+        final String ip;
+        final Timestamp firstseen;
+        final Timestamp lastseen;
+
+        TrackedRow(String player, String uuid, String ip, Timestamp firstseen, Timestamp lastseen) {
+            this.player = player;
+            this.uuid = uuid;
+            this.ip = ip;
+            this.firstseen = firstseen;
+            this.lastseen = lastseen;
+        }
+    }
 }
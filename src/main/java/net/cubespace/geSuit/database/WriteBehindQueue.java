@@ -0,0 +1,176 @@
+package net.cubespace.geSuit.database;
+
+import net.cubespace.geSuit.configs.SubConfig.Database;
+import net.cubespace.geSuit.geSuit;
+import net.cubespace.geSuit.managers.DatabaseManager;
+import net.cubespace.geSuit.objects.GSPlayer;
+import net.md_5.bungee.api.ProxyServer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Collects player, tracking and on-time writes and sends them to MySQL in batches.
+ * Repeated writes for the same player between two flushes are merged into one.
+ */
+public class WriteBehindQueue {
+    private final ConcurrentHashMap<String, GSPlayer> players = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String[]> tracking = new ConcurrentHashMap<>();
+    // Finished sessions as {start, end} pairs per uuid, split into hourly slots when flushed
+    private final ConcurrentHashMap<String, List<long[]>> onTime = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private int batchSize = 500;
+
+    public void start(Database database) {
+        int interval = (database.WriteBehindInterval == null) ? 5 : Math.max(1, database.WriteBehindInterval);
+        this.batchSize = (database.WriteBehindBatchSize == null) ? 500 : Math.max(1, database.WriteBehindBatchSize);
+
+        ProxyServer.getInstance().getScheduler().schedule(geSuit.instance, this::flush, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queues an update of the players row. Only the latest state of each player is written
+     */
+    public void queuePlayerUpdate(GSPlayer player) {
+        // Copy what updatePlayer writes, the live object keeps changing
+        GSPlayer snapshot = new GSPlayer(player.getName(), player.getUuid(), player.acceptingTeleports(), player.isNewSpawn(), player.getIp(), null, null);
+        players.put(player.getUuid(), snapshot);
+        checkSize();
+    }
+
+    public void queueTracking(String player, String uuid, String ip) {
+        tracking.put(player + '\0' + uuid + '\0' + ip, new String[]{player, uuid, ip});
+        checkSize();
+    }
+
+    /**
+     * Queues a finished session. It is only split into hourly slots on the flushing thread
+     */
+    public void queueOnTime(String uuid, long tsStart, long tsEnd) {
+        if (tsEnd <= tsStart) {
+            return;
+        }
+
+        onTime.compute(uuid, (k, pending) -> {
+            if (pending == null) {
+                pending = new ArrayList<>(1);
+            }
+            synchronized (pending) {
+                pending.add(new long[]{tsStart, tsEnd});
+            }
+            return pending;
+        });
+        checkSize();
+    }
+
+    /**
+     * @return the player's finished sessions that have not been written yet, as {start, end} pairs
+     */
+    public List<long[]> getPendingOnTime(String uuid) {
+        List<long[]> pending = onTime.get(uuid);
+        if (pending == null) {
+            return Collections.emptyList();
+        }
+
+        synchronized (pending) {
+            return new ArrayList<>(pending);
+        }
+    }
+
+    /**
+     * Writes the pending update of one player right away, so a fresh load sees it
+     */
+    public void flushPlayer(String uuid) {
+        GSPlayer pending = players.remove(uuid);
+        if (pending != null) {
+            DatabaseManager.players.updatePlayer(pending);
+        }
+    }
+
+    public int getQueueDepth() {
+        return players.size() + tracking.size() + onTime.size();
+    }
+
+    private void checkSize() {
+        if (getQueueDepth() >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            DatabaseManager.connectionPool.runAsync(() -> {
+                try {
+                    flush();
+                } finally {
+                    flushScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes everything queued so far. Called on an interval, when the queue grows past the batch size and on shutdown
+     */
+    public synchronized void flush() {
+        List<GSPlayer> playerBatch = new ArrayList<>();
+        for (String uuid : players.keySet()) {
+            GSPlayer pending = players.remove(uuid);
+            if (pending != null) {
+                playerBatch.add(pending);
+            }
+        }
+
+        List<String[]> trackingBatch = new ArrayList<>();
+        for (String key : tracking.keySet()) {
+            String[] pending = tracking.remove(key);
+            if (pending != null) {
+                trackingBatch.add(pending);
+            }
+        }
+
+        // Kept as sessions so they can be put back if the write fails
+        Map<String, List<long[]>> onTimeSessions = new HashMap<>();
+        Map<String, Map<Long, Long>> onTimeBatch = new HashMap<>();
+        for (String uuid : onTime.keySet()) {
+            List<long[]> pending = onTime.remove(uuid);
+            if (pending != null) {
+                Map<Long, Long> slots = new HashMap<>();
+                for (long[] session : pending) {
+                    DatabaseManager.ontime.addTimeSlots(slots, session[0], session[1]);
+                }
+                onTimeSessions.put(uuid, pending);
+                onTimeBatch.put(uuid, slots);
+            }
+        }
+
+        if (geSuit.instance.isDebugEnabled() && (!playerBatch.isEmpty() || !trackingBatch.isEmpty() || !onTimeBatch.isEmpty())) {
+            geSuit.instance.DebugMsg("Write-behind flush: " + playerBatch.size() + " players, " + trackingBatch.size() + " tracking, " + onTimeBatch.size() + " ontime");
+        }
+
+        // Anything that failed goes back in the queue for the next flush. Newer player updates queued meanwhile win
+        if (!DatabaseManager.players.updatePlayers(playerBatch)) {
+            for (GSPlayer player : playerBatch) {
+                players.putIfAbsent(player.getUuid(), player);
+            }
+            geSuit.instance.getLogger().warning("Write-behind flush failed, " + playerBatch.size() + " player updates requeued");
+        }
+        if (!DatabaseManager.tracking.insertTracking(trackingBatch)) {
+            for (String[] entry : trackingBatch) {
+                tracking.putIfAbsent(entry[0] + '\0' + entry[1] + '\0' + entry[2], entry);
+            }
+            geSuit.instance.getLogger().warning("Write-behind flush failed, " + trackingBatch.size() + " tracking entries requeued");
+        }
+        if (!DatabaseManager.ontime.addOnTime(onTimeBatch)) {
+            for (Map.Entry<String, List<long[]>> sessions : onTimeSessions.entrySet()) {
+                onTime.merge(sessions.getKey(), sessions.getValue(), (pending, failed) -> {
+                    synchronized (pending) {
+                        pending.addAll(failed);
+                    }
+                    return pending;
+                });
+            }
+            geSuit.instance.getLogger().warning("Write-behind flush failed, ontime of " + onTimeSessions.size() + " players requeued");
+        }
+    }
+}
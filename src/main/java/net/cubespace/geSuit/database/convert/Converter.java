@@ -5,14 +5,15 @@ import net.cubespace.geSuit.Utilities;
 import net.cubespace.geSuit.database.ConnectionHandler;
 import net.cubespace.geSuit.database.ConnectionPool;
 import net.cubespace.geSuit.database.IRepository;
+import net.cubespace.geSuit.database.StatementRegistry;
 import net.cubespace.geSuit.geSuit;
 import net.cubespace.geSuit.managers.ConfigManager;
 import net.cubespace.geSuit.managers.DatabaseManager;
 import net.cubespace.geSuit.objects.*;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.sql.Date;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -21,40 +22,79 @@ import java.util.Map;
  * @author geNAZt (fabian.fassbender42@googlemail.com)
  */
 public class Converter {
+    // Names sent to Mojang per UUID lookup while streaming players and bans
+    private static final int LOOKUP_BATCH = 100;
+
     private ConnectionPool connectionPool = new ConnectionPool();
 
+    private static class PlayerRow {
+        final String playerName;
+        final Timestamp lastOnline;
+        final String ip;
+        final boolean tps;
+
+        PlayerRow(String playerName, Timestamp lastOnline, String ip, boolean tps) {
+            this.playerName = playerName;
+            this.lastOnline = lastOnline;
+            this.ip = ip;
+            this.tps = tps;
+        }
+    }
+
+    private static class BanRow {
+        final String player;
+        final String bannedBy;
+        final String reason;
+        final String type;
+        final int active;
+        final Date bannedOn;
+        final Date bannedUntil;
+
+        BanRow(String player, String bannedBy, String reason, String type, int active, Date bannedOn, Date bannedUntil) {
+            this.player = player;
+            this.bannedBy = bannedBy;
+            this.reason = reason;
+            this.type = type;
+            this.active = active;
+            this.bannedOn = bannedOn;
+            this.bannedUntil = bannedUntil;
+        }
+    }
+
     private class Players implements IRepository {
         void convert() {
-            ConnectionHandler connectionHandler = connectionPool.getConnection();
-
-            try {
-                Map<String,String> playerUuids;
-                List<String> names = new ArrayList<>();
-                PreparedStatement selectPlayerNames = connectionHandler.getPreparedStatement("selectPlayerNames");
-                try (ResultSet resultSet = selectPlayerNames.executeQuery()) {
-                    while (resultSet.next()) {
-                        names.add(resultSet.getString("playername"));
+            try (ConnectionHandler connectionHandler = connectionPool.borrowConnection()) {
+                List<PlayerRow> batch = new ArrayList<>(LOOKUP_BATCH);
+                connectionHandler.stream("selectPlayers", res -> {
+                    batch.add(new PlayerRow(res.getString("playername"), res.getTimestamp("lastonline"), res.getString("ipaddress"), res.getBoolean("tps")));
+                    if (batch.size() >= LOOKUP_BATCH) {
+                        insert(batch);
+                        batch.clear();
                     }
-                }
-                
-                playerUuids = Utilities.getUUID(names);
-
-                PreparedStatement selectPlayers = connectionHandler.getPreparedStatement("selectPlayers");
-
-                try (ResultSet resultSet = selectPlayers.executeQuery()) {
-                    while(resultSet.next()) {
-                        String playerName = resultSet.getString("playername");
-                        String uuid = playerUuids.get(playerName);
-                        if (uuid == null) {
-                            continue;
-                        }
-                        DatabaseManager.players.insertPlayerConvert(playerName, uuid, resultSet.getTimestamp("lastonline"), resultSet.getString("ipaddress"), resultSet.getBoolean("tps"));
-                    }
-                }
+                });
+                insert(batch);
             } catch (SQLException e) {
                 e.printStackTrace();
-            } finally {
-                connectionHandler.release();
+            }
+        }
+
+        private void insert(List<PlayerRow> batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            List<String> names = new ArrayList<>(batch.size());
+            for (PlayerRow row : batch) {
+                names.add(row.playerName);
+            }
+            Map<String, String> playerUuids = Utilities.getUUID(names);
+
+            for (PlayerRow row : batch) {
+                String uuid = playerUuids.get(row.playerName);
+                if (uuid == null) {
+                    continue;
+                }
+                DatabaseManager.players.insertPlayerConvert(row.playerName, uuid, row.lastOnline, row.ip, row.tps);
             }
         }
 
@@ -64,9 +104,8 @@ public class Converter {
         }
 
         @Override
-        public void registerPreparedStatements(ConnectionHandler connection) {
-            connection.addPreparedStatement("selectPlayers", "SELECT * FROM BungeePlayers");
-            connection.addPreparedStatement("selectPlayerNames", "SELECT playername FROM BungeePlayers");
+        public void registerPreparedStatements(StatementRegistry statements) {
+            statements.addPreparedStatement("selectPlayers", "SELECT * FROM BungeePlayers");
         }
 
         @Override
@@ -77,25 +116,16 @@ public class Converter {
 
     private class Homes implements IRepository {
         void convert() {
-            ConnectionHandler connectionHandler = connectionPool.getConnection();
-
-            try {
-                PreparedStatement selectHomes = connectionHandler.getPreparedStatement("selectHomes");
-
-                ResultSet res = selectHomes.executeQuery();
-                while (res.next()) {
-                    GSPlayer player = DatabaseManager.players.loadPlayer(res.getString("player"));
-                    if ( player == null ) continue;
+            try (ConnectionHandler connectionHandler = connectionPool.borrowConnection()) {
+                connectionHandler.stream("selectHomes", res -> {
+                    GSPlayer player = DatabaseManager.players.loadPlayerFresh(res.getString("player"));
+                    if (player == null) return;
 
                     Location l = new Location(res.getString("server"), res.getString("world"), res.getDouble("x"), res.getDouble("y"), res.getDouble("z"), res.getFloat("yaw"), res.getFloat("pitch"));
                     DatabaseManager.homes.addHome(new Home(player, res.getString("home_name"), l));
-                }
-
-                res.close();
+                });
             } catch (SQLException e) {
                 e.printStackTrace();
-            } finally {
-                connectionHandler.release();
             }
         }
 
@@ -105,8 +135,8 @@ public class Converter {
         }
 
         @Override
-        public void registerPreparedStatements(ConnectionHandler connection) {
-            connection.addPreparedStatement("selectHomes", "SELECT * FROM BungeeHomes");
+        public void registerPreparedStatements(StatementRegistry statements) {
+            statements.addPreparedStatement("selectHomes", "SELECT * FROM BungeeHomes");
         }
 
         @Override
@@ -117,13 +147,8 @@ public class Converter {
 
     private class Portals implements IRepository {
         void convert() {
-            ConnectionHandler connectionHandler = connectionPool.getConnection();
-
-            try {
-                PreparedStatement selectPortals = connectionHandler.getPreparedStatement("selectPortals");
-
-                ResultSet res = selectPortals.executeQuery();
-                while (res.next()) {
+            try (ConnectionHandler connectionHandler = connectionPool.borrowConnection()) {
+                connectionHandler.stream("selectPortals", res -> {
                     String name = res.getString("portalname");
                     String server = res.getString("server");
                     String type = res.getString("type");
@@ -139,13 +164,9 @@ public class Converter {
 
                     Portal p = new Portal(name, server, fill, type, dest, new Location(server, world, xmax, ymax, zmax), new Location(server, world, xmin, ymin, zmin));
                     DatabaseManager.portals.insertPortal(p);
-                }
-
-                res.close();
+                });
             } catch (SQLException e) {
                 e.printStackTrace();
-            }  finally {
-                connectionHandler.release();
             }
         }
 
@@ -155,8 +176,8 @@ public class Converter {
         }
 
         @Override
-        public void registerPreparedStatements(ConnectionHandler connection) {
-            connection.addPreparedStatement("selectPortals", "SELECT * FROM BungeePortals");
+        public void registerPreparedStatements(StatementRegistry statements) {
+            statements.addPreparedStatement("selectPortals", "SELECT * FROM BungeePortals");
         }
 
         @Override
@@ -167,38 +188,38 @@ public class Converter {
 
     private class Bans implements IRepository {
         void convert() {
-            ConnectionHandler connectionHandler = connectionPool.getConnection();
-
-            try {
-                Map<String, String> playerUuid;
-                List<String> players = new ArrayList<>();
-                PreparedStatement selectBanPlayers = connectionHandler.getPreparedStatement("selectBanPlayers");
-                try (ResultSet res = selectBanPlayers.executeQuery()) {
-                    while (res.next()) {
-                        players.add(res.getString("player"));
+            try (ConnectionHandler connectionHandler = connectionPool.borrowConnection()) {
+                List<BanRow> batch = new ArrayList<>(LOOKUP_BATCH);
+                connectionHandler.stream("selectBans", res -> {
+                    batch.add(new BanRow(res.getString("player"), res.getString("banned_by"), res.getString("reason"), res.getString("type"), res.getInt("active"), res.getDate("banned_on"), res.getDate("banned_until")));
+                    if (batch.size() >= LOOKUP_BATCH) {
+                        insert(batch);
+                        batch.clear();
                     }
-                }
-                playerUuid = Utilities.getUUID(players);
-
-                PreparedStatement selectBans = connectionHandler.getPreparedStatement("selectBans");
+                });
+                insert(batch);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
 
-                ResultSet res = selectBans.executeQuery();
-                while (res.next()) {
-                    String player = res.getString("player");
-                    String uuid = playerUuid.get(player);
+        private void insert(List<BanRow> batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
 
-                    if (uuid == null) {
-                        continue;
-                    }
+            List<String> players = new ArrayList<>(batch.size());
+            for (BanRow row : batch) {
+                players.add(row.player);
+            }
+            Map<String, String> playerUuid = Utilities.getUUID(players);
 
-                    DatabaseManager.bans.insertBanConvert(res.getString("banned_by"), player, uuid, null, res.getString("reason"), res.getString("type"), res.getInt("active"), res.getDate("banned_on"), res.getDate("banned_until"));
+            for (BanRow row : batch) {
+                String uuid = playerUuid.get(row.player);
+                if (uuid == null) {
+                    continue;
                 }
-
-                res.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }  finally {
-                connectionHandler.release();
+                DatabaseManager.bans.insertBanConvert(row.bannedBy, row.player, uuid, null, row.reason, row.type, row.active, row.bannedOn, row.bannedUntil);
             }
         }
 
@@ -208,9 +229,8 @@ public class Converter {
         }
 
         @Override
-        public void registerPreparedStatements(ConnectionHandler connection) {
-            connection.addPreparedStatement("selectBanPlayers", "SELECT player FROM BungeeBans");
-            connection.addPreparedStatement("selectBans", "SELECT * FROM BungeeBans");
+        public void registerPreparedStatements(StatementRegistry statements) {
+            statements.addPreparedStatement("selectBans", "SELECT * FROM BungeeBans");
         }
 
         @Override
@@ -221,22 +241,13 @@ public class Converter {
 
     private class Spawns implements IRepository {
         void convert() {
-            ConnectionHandler connectionHandler = connectionPool.getConnection();
-
-            try {
-                PreparedStatement selectSpawns = connectionHandler.getPreparedStatement("selectSpawns");
-
-                ResultSet res = selectSpawns.executeQuery();
-                while (res.next()) {
+            try (ConnectionHandler connectionHandler = connectionPool.borrowConnection()) {
+                connectionHandler.stream("selectSpawns", res -> {
                     Location location = new Location(res.getString("server"), res.getString("world"), res.getDouble("x"), res.getDouble("y"), res.getDouble("z"), res.getFloat("yaw"), res.getFloat("pitch"));
                     DatabaseManager.spawns.insertSpawn(new Spawn(res.getString("spawnname"), location));
-                }
-
-                res.close();
+                });
             } catch (SQLException e) {
                 e.printStackTrace();
-            } finally {
-                connectionHandler.release();
             }
         }
 
@@ -246,8 +257,8 @@ public class Converter {
         }
 
         @Override
-        public void registerPreparedStatements(ConnectionHandler connection) {
-            connection.addPreparedStatement("selectSpawns", "SELECT * FROM BungeeSpawns");
+        public void registerPreparedStatements(StatementRegistry statements) {
+            statements.addPreparedStatement("selectSpawns", "SELECT * FROM BungeeSpawns");
         }
 
         @Override
@@ -258,22 +269,13 @@ public class Converter {
 
     private class Warps implements IRepository {
         void convert() {
-            ConnectionHandler connectionHandler = connectionPool.getConnection();
-
-            try {
-                PreparedStatement selectWarps = connectionHandler.getPreparedStatement("selectWarps");
-
-                ResultSet res = selectWarps.executeQuery();
-                while (res.next()) {
+            try (ConnectionHandler connectionHandler = connectionPool.borrowConnection()) {
+                connectionHandler.stream("selectWarps", res -> {
                     Location location = new Location(res.getString("server"), res.getString("world"), res.getDouble("x"), res.getDouble("y"), res.getDouble("z"), res.getFloat("yaw"), res.getFloat("pitch"));
                     DatabaseManager.warps.insertWarp(new Warp(res.getString("warpname"), location, res.getBoolean("hidden"), res.getBoolean("global")));
-                }
-
-                res.close();
+                });
             } catch (SQLException e) {
                 e.printStackTrace();
-            } finally {
-                connectionHandler.release();
             }
         }
 
@@ -283,8 +285,8 @@ public class Converter {
         }
 
         @Override
-        public void registerPreparedStatements(ConnectionHandler connection) {
-            connection.addPreparedStatement("selectWarps", "SELECT * FROM BungeeWarps");
+        public void registerPreparedStatements(StatementRegistry statements) {
+            statements.addPreparedStatement("selectWarps", "SELECT * FROM BungeeWarps");
         }
 
         @Override
@@ -309,7 +311,7 @@ public class Converter {
             connectionPool.addRepository(spawns);
             connectionPool.addRepository(warps);
             try {
-                connectionPool.initialiseConnections(ConfigManager.main.BungeeSuiteDatabase);
+                connectionPool.initialiseReadOnly(ConfigManager.main.BungeeSuiteDatabase);
             
                 players.convert();
                 homes.convert();
@@ -36,6 +36,7 @@ public class geSuit extends Plugin
         registerCommands();
         GeoIPManager.initialize();
         LockDownManager.initialize();
+        BansManager.loadKicks();
         api = new APIManager();
     }
 
@@ -92,7 +93,11 @@ public class geSuit extends Plugin
 
     public void onDisable()
     {
+        LoggingManager.log("Flushing " + DatabaseManager.writeBehind.getQueueDepth() + " queued database updates");
+        DatabaseManager.writeBehind.flush();
+        DatabaseManager.reports.close();
         DatabaseManager.connectionPool.closeConnections();
+        BansManager.saveKicks();
     }
 
 	public boolean isDebugEnabled() {
@@ -45,41 +45,65 @@ public class HomesMessageListener implements Listener {
 
         // TODO: Add input validation! Don't assume all inputs are valid player names (or online)
         switch (task) {
-            case "DeleteHome":
-                HomesManager.deleteHome(in.readUTF(), in.readUTF());
+            // Everything that reads or writes MySQL runs on the database executor, never on the netty thread. Home
+            // writes for one player are chained so they land in the order they were made
+            case "DeleteHome": {
+                final String player = in.readUTF();
+                final String home = in.readUTF();
+                DatabaseManager.connectionPool.runInOrder(homesKey(player), () -> HomesManager.deleteHome(player, home));
                 break;
-            case "DeleteOtherPlayerHome":
-                HomesManager.deleteOtherHome(PlayerManager.getPlayer(in.readUTF()), in.readUTF(), in.readUTF());
+            }
+            case "DeleteOtherPlayerHome": {
+                final GSPlayer sender = PlayerManager.getPlayer(in.readUTF());
+                final String player = in.readUTF();
+                final String home = in.readUTF();
+                DatabaseManager.connectionPool.runInOrder(homesKey(player), () -> HomesManager.deleteOtherHome(sender, player, home));
+                break;
+            }
             case "SendPlayerHome":  //SendOtherPlayerHome sendPlayerToOtherHome
                 HomesManager.sendPlayerToHome(PlayerManager.getPlayer(in.readUTF(), true), in.readUTF());
                 break;
-            case "SendOtherPlayerHome":
-                HomesManager.sendPlayerToOtherHome(PlayerManager.getPlayer(in.readUTF(), true), in.readUTF(), in.readUTF());
+            case "SendOtherPlayerHome": {
+                final GSPlayer sender = PlayerManager.getPlayer(in.readUTF(), true);
+                final String player = in.readUTF();
+                final String home = in.readUTF();
+                DatabaseManager.connectionPool.runAsync(() -> HomesManager.sendPlayerToOtherHome(sender, player, home));
                 break;
-            case "SetPlayersHome":
-                String player = in.readUTF();
-                GSPlayer gsPlayer = PlayerManager.getPlayer(player, true);
-
-                if (gsPlayer == null) {
-                    gsPlayer = DatabaseManager.players.loadPlayer(player);
+            }
+            case "SetPlayersHome": {
+                final String player = in.readUTF();
+                final String serverName = ((Server) event.getSender()).getInfo().getName();
+                final int serverLimit = in.readInt();
+                final int globalLimit = in.readInt();
+                final String home = in.readUTF();
+                final Location loc = new Location(serverName, in.readUTF(), in.readDouble(), in.readDouble(), in.readDouble(), in.readFloat(), in.readFloat());
+                // Loading an offline player and saving the home both hit MySQL, so keep them off the netty thread
+                DatabaseManager.connectionPool.runInOrder(homesKey(player), () -> {
+                    GSPlayer gsPlayer = PlayerManager.getPlayer(player, true);
 
                     if (gsPlayer == null) {
-                        DatabaseManager.players.insertPlayer(new GSPlayer(player, Utilities.getUUID(player), true), "0.0.0.0");
                         gsPlayer = DatabaseManager.players.loadPlayer(player);
-                        gsPlayer.setServer(((Server) event.getSender()).getInfo().getName());
-                    } else {
-                        gsPlayer.setServer(((Server) event.getSender()).getInfo().getName());
+
+                        if (gsPlayer == null) {
+                            DatabaseManager.players.insertPlayer(new GSPlayer(player, Utilities.getUUID(player), true), "0.0.0.0");
+                            gsPlayer = DatabaseManager.players.loadPlayer(player);
+                        }
+                        gsPlayer.setServer(serverName);
                     }
-                }
 
-                HomesManager.createNewHome(gsPlayer, in.readInt(), in.readInt(), in.readUTF(), new Location(((Server) event.getSender()).getInfo().getName(), in.readUTF(), in.readDouble(), in.readDouble(), in.readDouble(), in.readFloat(), in.readFloat()));
+                    HomesManager.createNewHome(gsPlayer, serverLimit, globalLimit, home, loc);
+                });
                 break;
+            }
             case "GetHomesList":
                 HomesManager.listPlayersHomes(PlayerManager.getPlayer(in.readUTF(), true), in.readInt());
                 break;
-            case "GetOtherHomesList":
-                HomesManager.listOtherPlayersHomes(PlayerManager.getPlayer(in.readUTF(), true), in.readUTF());
+            case "GetOtherHomesList": {
+                final GSPlayer sender = PlayerManager.getPlayer(in.readUTF(), true);
+                final String player = in.readUTF();
+                DatabaseManager.connectionPool.runAsync(() -> HomesManager.listOtherPlayersHomes(sender, player));
                 break;
+            }
             case "SendVersion":
                 LoggingManager.log(in.readUTF());
                 break;
@@ -87,4 +111,8 @@ public class HomesMessageListener implements Listener {
 
         in.close();
     }
+
+    private static String homesKey(String player) {
+        return "homes:" + player.toLowerCase();
+    }
 }
\ No newline at end of file
@@ -15,12 +15,16 @@ import net.md_5.bungee.event.EventHandler;
 import net.md_5.bungee.event.EventPriority;
 
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 public class PlayerListener implements Listener {
 
     @EventHandler(priority = EventPriority.LOW)
     public void playerLogin(LoginEvent event) {
+        if (PlayerManager.refuseDuringLockdown(event.getConnection(), event)) {
+            return;
+        }
         event.registerIntent(geSuit.instance);
         PlayerManager.initPlayer(event.getConnection(), event);
     }
@@ -58,13 +62,16 @@ public class PlayerListener implements Listener {
     		}
 
     		// Check for alt accounts and notify staff (used later)
-    		String[] alt = null;
+    		// The lookup must run before the player record is updated with the new IP
+    		final CompletableFuture<String[]> altLookup;
     		if (ConfigManager.bans.ShowAltAccounts) {
-    			alt = DatabaseManager.players.getAltPlayer(p.getUuid(), p.getIp(), p.isFirstJoin());
+    			altLookup = DatabaseManager.players.getAltPlayerAsync(p.getUuid(), p.getIp(), p.isFirstJoin());
+    			altLookup.whenComplete((alt, ex) -> DatabaseManager.writeBehind.queuePlayerUpdate(p));
+    		} else {
+    			altLookup = CompletableFuture.completedFuture(null);
+    			DatabaseManager.writeBehind.queuePlayerUpdate(p);
     		}
     		
-            DatabaseManager.players.updatePlayer(p);
-    		
     		// Launch the MOTD message scheduler
     		if (ConfigManager.main.MOTD_Enabled && (p.firstConnect() || newspawn)) {
     	    	geSuit.proxy.getScheduler().schedule(geSuit.instance, new Runnable() {
@@ -83,35 +90,30 @@ public class PlayerListener implements Listener {
 
     		p.connected();
 
-    		final String[] fAlt = alt;
-        	geSuit.proxy.getScheduler().schedule(geSuit.instance, new Runnable() {
-        		@Override
-    			public void run() {
-        			// Show alt account logins for this player (if enabled)
-        			if ((ConfigManager.bans.ShowAltAccounts) && (fAlt != null)) {
-        				boolean bannedAlt = false;
-        				if (ConfigManager.bans.ShowBannedAltAccounts) {
-        					if (DatabaseManager.bans.isPlayerBanned(fAlt[0], fAlt[1], null))	// Check if alt is banned (by name or UUID)
-        						bannedAlt = true;
-        				}
-
-        				if (bannedAlt) {
-        					// Alt player is banned
-        					String msg = ConfigManager.messages.PLAYER_BANNED_ALT_JOIN.
-	    	    					replace("{player}", p.getName()).
-	    	    					replace("{alt}", fAlt[0]).
-	    	    					replace("{ip}", p.getIp());
+        	// Show alt account logins for this player (if enabled) once the lookup is done, without blocking on it
+        	if (ConfigManager.bans.ShowAltAccounts) {
+        		altLookup.thenAccept(fAlt -> {
+        			if (fAlt == null) {
+        				return;
+        			}
+        			// Runs on the database executor, where the ban check may query if the ban index is not loaded
+        			final boolean bannedAlt = ConfigManager.bans.ShowBannedAltAccounts && BansManager.isPlayerBanned(fAlt[0], fAlt[1], null);	// Check if alt is banned (by name or UUID)
+        			geSuit.proxy.getScheduler().schedule(geSuit.instance, new Runnable() {
+        				@Override
+        				public void run() {
+        					String msg = (bannedAlt ? ConfigManager.messages.PLAYER_BANNED_ALT_JOIN : ConfigManager.messages.PLAYER_ALT_JOIN).
+        							replace("{player}", p.getName()).
+        							replace("{alt}", fAlt[0]).
+        							replace("{ip}", p.getIp());
         					Utilities.doBungeeChatMirror("StaffNotice", msg);
-        				} else {
-        					// Alt player is NOT banned
-	        				String msg = ConfigManager.messages.PLAYER_ALT_JOIN.
-	    	    					replace("{player}", p.getName()).
-	    	    					replace("{alt}", fAlt[0]).
-	    	    					replace("{ip}", p.getIp());
-	    	    			Utilities.doBungeeChatMirror("StaffNotice", msg);
         				}
-    	    		}
+        			}, 100, TimeUnit.MILLISECONDS);
+        		});
+        	}
 
+        	geSuit.proxy.getScheduler().schedule(geSuit.instance, new Runnable() {
+        		@Override
+    			public void run() {
     	    		// Show Geo location notifications for player (if enabled)
     	    		if (ConfigManager.bans.GeoIP.ShowOnLogin) {
                         String location = GeoIPManager.lookup(e.getPlayer().getAddress().getAddress());
@@ -127,6 +129,9 @@ public class PlayerListener implements Listener {
     				PlayerManager.updateTracking(p);
     			}
         	}, 100, TimeUnit.MILLISECONDS); 
+    	} else {
+    		// Switching servers, a plugin may have changed their display name since
+    		PlayerManager.updateDisplayName(e.getPlayer());
     	}
     }
 
@@ -134,7 +139,7 @@ public class PlayerListener implements Listener {
     public void playerLogout(final PlayerDisconnectEvent e) {
         int dcTime = ConfigManager.main.PlayerDisconnectDelay;
         
-        final GSPlayer p = PlayerManager.cachedPlayers.remove(e.getPlayer().getUniqueId());
+        final GSPlayer p = PlayerManager.uncachePlayer(e.getPlayer().getUniqueId());
         if (dcTime > 0) {
             geSuit.proxy.getScheduler().schedule(geSuit.instance, new Runnable() {
                 @Override
@@ -148,11 +153,11 @@ public class PlayerListener implements Listener {
                     }
 
                     PlayerManager.unloadPlayer(e.getPlayer().getName());
-                    DatabaseManager.players.updatePlayer(p);
+                    DatabaseManager.writeBehind.queuePlayerUpdate(p);
 
                     // Update time tracking (if enabled)
                 	if (ConfigManager.bans.TrackOnTime) {
-                		DatabaseManager.ontime.updatePlayerOnTime(p.getName(), p.getUuid(), p.getLoginTime(), new Date().getTime());
+                		BansManager.recordOnTime(p.getUuid(), p.getLoginTime(), new Date().getTime());
                 	}
                 }
 
@@ -174,11 +179,11 @@ public class PlayerListener implements Listener {
                 @Override
                 public void run() {
                 	// Always update the player record when they disconnect
-                	DatabaseManager.players.updatePlayer(p);
+                	DatabaseManager.writeBehind.queuePlayerUpdate(p);
 
                 	// Update time tracking (if enabled)
                 	if (ConfigManager.bans.TrackOnTime) {
-                		DatabaseManager.ontime.updatePlayerOnTime(p.getName(), p.getUuid(), p.getLoginTime(), new Date().getTime());
+                		BansManager.recordOnTime(p.getUuid(), p.getLoginTime(), new Date().getTime());
                 	}
                 }
             }, 1, TimeUnit.MILLISECONDS);
@@ -2,9 +2,11 @@ package net.cubespace.geSuit.listeners;
 
 import net.cubespace.geSuit.Utilities;
 import net.cubespace.geSuit.geSuit;
+import net.cubespace.geSuit.managers.DatabaseManager;
 import net.cubespace.geSuit.managers.LoggingManager;
 import net.cubespace.geSuit.managers.PlayerManager;
 import net.cubespace.geSuit.managers.SpawnManager;
+import net.cubespace.geSuit.objects.GSPlayer;
 import net.cubespace.geSuit.objects.Location;
 import net.md_5.bungee.api.connection.Server;
 import net.md_5.bungee.api.event.PluginMessageEvent;
@@ -16,6 +18,7 @@ import java.io.DataInputStream;
 import java.io.IOException;
 
 public class SpawnMessageListener implements Listener {
+    private static final String SPAWN_WRITES = "spawns";
 
     @EventHandler
     public void receivePluginMessage(PluginMessageEvent event) throws IOException {
@@ -44,27 +47,50 @@ public class SpawnMessageListener implements Listener {
             case "SendToProxySpawn":
                 SpawnManager.sendPlayerToProxySpawn(PlayerManager.getPlayer(in.readUTF(), true));
                 break;
+            // Spawn reads and writes run on the database executor, never on the netty thread. Writes are chained so
+            // they land in the order they were made
             case "GetSpawns":
-                SpawnManager.sendSpawns(s);
+                DatabaseManager.connectionPool.runAsync(() -> SpawnManager.sendSpawns(s));
                 break;
-            case "SetServerSpawn":
-                SpawnManager.setServerSpawn(PlayerManager.getPlayer(in.readUTF(), true), new Location(s.getInfo().getName(), in.readUTF(), in.readDouble(), in.readDouble(), in.readDouble(), in.readFloat(), in.readFloat()), in.readBoolean());
+            case "SetServerSpawn": {
+                final GSPlayer p = PlayerManager.getPlayer(in.readUTF(), true);
+                final Location l = new Location(s.getInfo().getName(), in.readUTF(), in.readDouble(), in.readDouble(), in.readDouble(), in.readFloat(), in.readFloat());
+                final boolean exists = in.readBoolean();
+                DatabaseManager.connectionPool.runInOrder(SPAWN_WRITES, () -> SpawnManager.setServerSpawn(p, l, exists));
                 break;
-            case "SetWorldSpawn":
-                SpawnManager.setWorldSpawn(PlayerManager.getPlayer(in.readUTF(), true), new Location(s.getInfo().getName(), in.readUTF(), in.readDouble(), in.readDouble(), in.readDouble(), in.readFloat(), in.readFloat()), in.readBoolean());
+            }
+            case "SetWorldSpawn": {
+                final GSPlayer p = PlayerManager.getPlayer(in.readUTF(), true);
+                final Location l = new Location(s.getInfo().getName(), in.readUTF(), in.readDouble(), in.readDouble(), in.readDouble(), in.readFloat(), in.readFloat());
+                final boolean exists = in.readBoolean();
+                DatabaseManager.connectionPool.runInOrder(SPAWN_WRITES, () -> SpawnManager.setWorldSpawn(p, l, exists));
                 break;
-            case "DelWorldSpawn":
-                SpawnManager.delWorldSpawn(PlayerManager.getPlayer(in.readUTF(), true), s.getInfo(), in.readUTF());
+            }
+            case "DelWorldSpawn": {
+                final GSPlayer p = PlayerManager.getPlayer(in.readUTF(), true);
+                final String world = in.readUTF();
+                DatabaseManager.connectionPool.runInOrder(SPAWN_WRITES, () -> SpawnManager.delWorldSpawn(p, s.getInfo(), world));
                 break;
-            case "SetNewPlayerSpawn":
-                SpawnManager.setNewPlayerSpawn(PlayerManager.getPlayer(in.readUTF(), true), new Location(s.getInfo().getName(), in.readUTF(), in.readDouble(), in.readDouble(), in.readDouble(), in.readFloat(), in.readFloat()));
+            }
+            case "SetNewPlayerSpawn": {
+                final GSPlayer p = PlayerManager.getPlayer(in.readUTF(), true);
+                final Location l = new Location(s.getInfo().getName(), in.readUTF(), in.readDouble(), in.readDouble(), in.readDouble(), in.readFloat(), in.readFloat());
+                DatabaseManager.connectionPool.runInOrder(SPAWN_WRITES, () -> SpawnManager.setNewPlayerSpawn(p, l));
                 break;
-            case "SetProxySpawn":
-                SpawnManager.setProxySpawn(PlayerManager.getPlayer(in.readUTF(), true), new Location(s.getInfo().getName(), in.readUTF(), in.readDouble(), in.readDouble(), in.readDouble(), in.readFloat(), in.readFloat()));
+            }
+            case "SetProxySpawn": {
+                final GSPlayer p = PlayerManager.getPlayer(in.readUTF(), true);
+                final Location l = new Location(s.getInfo().getName(), in.readUTF(), in.readDouble(), in.readDouble(), in.readDouble(), in.readFloat(), in.readFloat());
+                DatabaseManager.connectionPool.runInOrder(SPAWN_WRITES, () -> SpawnManager.setProxySpawn(p, l));
                 break;
-            case "SendToArgSpawn":
-                SpawnManager.sendPlayerToArgSpawn(PlayerManager.getPlayer(in.readUTF(), true), in.readUTF(), in.readUTF());
+            }
+            case "SendToArgSpawn": {
+                final GSPlayer p = PlayerManager.getPlayer(in.readUTF(), true);
+                final String spawn = in.readUTF();
+                final String server = in.readUTF();
+                DatabaseManager.connectionPool.runAsync(() -> SpawnManager.sendPlayerToArgSpawn(p, spawn, server));
                 break;
+            }
             case "SendVersion":
                 LoggingManager.log(in.readUTF());
                 break;
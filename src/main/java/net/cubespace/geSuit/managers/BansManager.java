@@ -4,12 +4,19 @@ import com.google.common.collect.Iterables;
 import net.cubespace.Yamler.Config.InvalidConfigurationException;
 import net.cubespace.geSuit.TimeParser;
 import net.cubespace.geSuit.Utilities;
+import net.cubespace.geSuit.cache.AccountClusters;
+import net.cubespace.geSuit.cache.BanIndex;
+import net.cubespace.geSuit.cache.IPRange;
+import net.cubespace.geSuit.cache.KickWindows;
+import net.cubespace.geSuit.cache.OnTimeLeaderboard;
+import net.cubespace.geSuit.database.ConnectionHandler;
 import net.cubespace.geSuit.events.BanPlayerEvent;
 import net.cubespace.geSuit.events.UnbanPlayerEvent;
 import net.cubespace.geSuit.events.WarnPlayerEvent;
 import net.cubespace.geSuit.events.WarnPlayerEvent.ActionType;
 import net.cubespace.geSuit.geSuit;
 import net.cubespace.geSuit.objects.*;
+import net.cubespace.geSuit.tasks.TimingWheel;
 import net.md_5.bungee.api.ChatColor;
 import net.md_5.bungee.api.CommandSender;
 import net.md_5.bungee.api.ProxyServer;
@@ -17,15 +24,228 @@ import net.md_5.bungee.api.chat.TextComponent;
 import net.md_5.bungee.api.connection.ProxiedPlayer;
 import net.md_5.bungee.api.plugin.Event;
 
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class BansManager {
 
-    private static List<Kick> kicks = new ArrayList<>();
+    private static final KickWindows kicks = new KickWindows();
+    private static final BanIndex banIndex = new BanIndex();
+    private static final OnTimeLeaderboard onTimeLeaderboard = new OnTimeLeaderboard();
+    private static volatile boolean onTimeLeaderboardLoaded;
+    private static final AccountClusters accountClusters = new AccountClusters();
+    private static volatile boolean accountClustersLoaded;
+    // Ends temp bans and kick windows on time, one-second resolution
+    private static final TimingWheel expirations = new TimingWheel(1000, 512);
+    private static final TimingWheel.Handler<Integer> tempBanExpiry = BansManager::expireTempBans;
+    // Keyed by player UUID, due when their oldest kick leaves the window
+    private static final TimingWheel.Handler<String> kickExpiry = BansManager::expireKicks;
+
+    /**
+     * Reads every player's lifetime on-time into the leaderboard. Called once at startup, before players can join
+     */
+    public static void loadOnTimeLeaderboard() {
+        onTimeLeaderboard.clear();
+        onTimeLeaderboardLoaded = DatabaseManager.ontime.forEachTotal(onTimeLeaderboard::set);
+        if (onTimeLeaderboardLoaded) {
+            geSuit.instance.DebugMsg("OnTime leaderboard loaded: " + onTimeLeaderboard.size() + " players");
+        } else {
+            geSuit.instance.getLogger().warning("Could not load the ontime leaderboard, /ontime top reads the database instead");
+        }
+    }
+
+    /**
+     * Records a finished session: queues it for the database and adds it to the player's place on the leaderboard
+     */
+    public static void recordOnTime(String uuid, long tsStart, long tsEnd) {
+        DatabaseManager.writeBehind.queueOnTime(uuid, tsStart, tsEnd);
+        if (onTimeLeaderboardLoaded) {
+            onTimeLeaderboard.add(Utilities.makeUUID(uuid), DatabaseManager.ontime.countSeconds(tsStart, tsEnd));
+        }
+    }
+
+    /**
+     * @return the player's position on the ontime leaderboard, or 0 if unknown
+     */
+    public static int getOnTimeRank(String uuid) {
+        return onTimeLeaderboardLoaded ? onTimeLeaderboard.getRank(Utilities.makeUUID(uuid)) : 0;
+    }
+
+    /**
+     * Reads every account/IP pair into the account clusters. Called once at startup, before players can join
+     */
+    public static void loadAccountClusters() {
+        accountClusters.clear();
+        accountClustersLoaded = DatabaseManager.tracking.forEachAssociation(accountClusters::link);
+        if (accountClustersLoaded) {
+            geSuit.instance.DebugMsg("Account clusters loaded: " + accountClusters.size() + " accounts");
+        } else {
+            geSuit.instance.getLogger().warning("Could not load the account clusters, alt lookups read the database instead");
+        }
+    }
+
+    /**
+     * Adds a sighting of the account on the IP to its cluster
+     */
+    public static void linkAccount(String uuid, String ip) {
+        if (accountClustersLoaded) {
+            accountClusters.link(Utilities.makeUUID(uuid), ip, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * @return uuid (without dashes) of the most recently seen other account in the same cluster as the account and
+     * IP, or null if there is none. The sighting is recorded first
+     */
+    public static String getLatestAlt(String uuid, String ip) {
+        UUID id = Utilities.makeUUID(uuid);
+        accountClusters.link(id, ip, System.currentTimeMillis());
+        UUID alt = accountClusters.getLatestAlt(id);
+        return (alt == null) ? null : Utilities.getStringFromUUID(alt);
+    }
+
+    public static boolean isAccountClustersLoaded() {
+        return accountClustersLoaded;
+    }
+
+    /**
+     * Loads the active bans into memory and keeps them in sync with the database, so login checks need no queries
+     */
+    public static void loadBanIndex() {
+        reconcileBanIndex();
+        int interval = Math.max(30, ConfigManager.bans.BanIndexReconcileInterval);
+        ProxyServer.getInstance().getScheduler().schedule(geSuit.instance, BansManager::reconcileBanIndex, interval, interval, TimeUnit.SECONDS);
+        ProxyServer.getInstance().getScheduler().schedule(geSuit.instance, expirations, 1, 1, TimeUnit.SECONDS);
+    }
+
+    private static void reconcileBanIndex() {
+        if (banIndex.reconcile(DatabaseManager.bans::getActiveBans)) {
+            geSuit.instance.DebugMsg("Ban index reloaded: " + banIndex.size() + " active bans");
+            // Rescheduling replaces what is already on the wheel, so this only picks up bans we did not know about
+            for (Ban b : banIndex.getBans("tempban")) {
+                scheduleTempBanExpiry(b);
+            }
+        } else {
+            geSuit.instance.getLogger().warning("Could not reload the ban index from the database");
+        }
+    }
+
+    private static void scheduleTempBanExpiry(Ban b) {
+        if (b.getId() >= 0 && b.getBannedUntil() != null) {
+            expirations.schedule(b.getId(), b.getBannedUntil().getTime(), tempBanExpiry);
+        }
+    }
+
+    private static void expireTempBans(List<Integer> ids) {
+        DatabaseManager.bans.unbanPlayers(ids);
+        for (int id : ids) {
+            banIndex.remove(id);
+        }
+        geSuit.instance.DebugMsg("Expired " + ids.size() + " temp bans");
+    }
+
+    private static void expireKicks(List<String> uuids) {
+        for (String uuid : uuids) {
+            kicks.expire(uuid, ConfigManager.bans.KicksTimeOut);
+            scheduleKickExpiry(uuid);
+        }
+    }
+
+    private static void scheduleKickExpiry(String uuid) {
+        long oldest = kicks.getOldest(uuid);
+        if (oldest >= 0) {
+            expirations.schedule(uuid, oldest + ConfigManager.bans.KicksTimeOut, kickExpiry);
+        }
+    }
+
+    private static File getKicksFile() {
+        return new File(geSuit.instance.getDataFolder(), "kicks.json");
+    }
+
+    /**
+     * Restores the kicks saved by the last run, so kick counts survive a restart
+     */
+    public static void loadKicks() {
+        try {
+            long oldest = System.currentTimeMillis() - ConfigManager.bans.KicksTimeOut;
+            for (Kick kick : KickWindows.read(getKicksFile())) {
+                if (kick.getUuid() != null && kick.getBannedOn() >= oldest) {
+                    kicks.add(kick, ConfigManager.bans.KicksTimeOut, ConfigManager.bans.KickLimit);
+                    scheduleKickExpiry(kick.getUuid());
+                }
+            }
+        } catch (Exception e) {
+            geSuit.instance.getLogger().warning("Could not read saved kicks: " + e.getMessage());
+        }
+    }
+
+    public static void saveKicks() {
+        try {
+            kicks.save(getKicksFile());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static int getBanIndexSize() {
+        return banIndex.size();
+    }
+
+    public static int getPendingTempBanExpiries() {
+        return expirations.getPending(tempBanExpiry);
+    }
+
+    public static int getPendingKickExpiries() {
+        return expirations.getPending(kickExpiry);
+    }
+
+    /**
+     * Returns the active ban for any of the given keys. Served from memory once the ban index is loaded
+     */
+    public static Ban getActiveBan(String player, String uuid, String ip) {
+        if (!banIndex.isLoaded()) {
+            return DatabaseManager.bans.getBanInfo(player, uuid, ip);
+        }
+        return banIndex.find(player, uuid, ip);
+    }
+
+    /**
+     * Like {@link #getActiveBan(String, String, String)}, but reads through a connection the caller already holds
+     */
+    public static Ban getActiveBan(ConnectionHandler connectionHandler, String player, String uuid, String ip) throws SQLException {
+        if (!banIndex.isLoaded()) {
+            return DatabaseManager.bans.getBanInfo(connectionHandler, player, uuid, ip);
+        }
+        return banIndex.find(player, uuid, ip);
+    }
+
+    public static boolean isBanIndexLoaded() {
+        return banIndex.isLoaded();
+    }
+
+    /**
+     * @return the range ban containing the IP, or null
+     */
+    public static Ban getRangeBan(String ip) {
+        return banIndex.findRange(ip);
+    }
+
+    public static boolean isPlayerBanned(String player, String uuid, String ip) {
+        return getActiveBan(player, uuid, ip) != null;
+    }
+
+    private static void unban(Ban b) {
+        DatabaseManager.bans.unbanPlayer(b.getId());
+        banIndex.remove(b);
+        expirations.cancel(b.getId());
+    }
 
     public static void banPlayer(String bannedBy, String player, String reason) {
     	banPlayer(bannedBy, player, reason, false);
@@ -46,7 +266,7 @@ public class BansManager {
         if (b != null) {
             if (b.getType().equals("tempban")) {
                 // We don't want tempbans AND bans in place.. it could cause issues!
-                DatabaseManager.bans.unbanPlayer(b.getId());
+                unban(b);
             } else {
                 PlayerManager.sendMessageToTarget(sender, ConfigManager.messages.PLAYER_ALREADY_BANNED);
                 return;
@@ -59,7 +279,8 @@ public class BansManager {
             return;
         }
 
-        DatabaseManager.bans.banPlayer(t.name, t.uuid, null, bannedBy, reason, "ban");
+        int id = DatabaseManager.bans.banPlayer(t.name, t.uuid, null, bannedBy, reason, "ban");
+        banIndex.add(new Ban(id, t.name, t.uuid, null, bannedBy, reason, "ban", 1, new Timestamp(System.currentTimeMillis()), null));
 
         callEvent(new BanPlayerEvent(new Ban(-1, t.name, t.uuid, null, bannedBy, reason, "ban", 1, null, null), auto));
 
@@ -88,6 +309,12 @@ public class BansManager {
     }
 
     public static void unbanPlayer(CommandSender sender, String player) {
+        IPRange range = IPRange.parse(player);
+        if (range != null) {
+            unbanRange(sender, range);
+            return;
+        }
+
         BanTarget t = getBanTarget(player);
         if (!DatabaseManager.bans.isPlayerBanned(t.name, t.uuid, player)) {
             PlayerManager.sendMessageToTarget(sender, ConfigManager.messages.PLAYER_NOT_BANNED);
@@ -96,7 +323,7 @@ public class BansManager {
 
         Ban b = DatabaseManager.bans.getBanInfo(t.name, t.uuid, player);
 
-        DatabaseManager.bans.unbanPlayer(b.getId());
+        unban(b);
         callEvent(new UnbanPlayerEvent(b, sender.getName()));
 
         if (ConfigManager.bans.BroadcastUnbans) {
@@ -119,6 +346,12 @@ public class BansManager {
             reason = Utilities.colorize(ConfigManager.messages.DEFAULT_BAN_REASON);
         }
 
+        IPRange range = IPRange.parse(target);
+        if (range != null) {
+            banRange(sender, range, reason);
+            return;
+        }
+
         String ip = null;
         String uuid = null;
         String player = null;
@@ -140,8 +373,11 @@ public class BansManager {
             return;
         }
         String bannedBy = sender.getName();
-        if (!DatabaseManager.bans.isPlayerBanned(ip)) {
-            DatabaseManager.bans.banPlayer(player, uuid, ip, bannedBy, reason, "ipban");
+        Ban existing = getActiveBan(null, null, ip);
+        // A covering range ban does not count, the IP keeps its own ban if that range is lifted
+        if (existing == null || existing.getType().equals("rangeban")) {
+            int id = DatabaseManager.bans.banPlayer(player, uuid, ip, bannedBy, reason, "ipban");
+            banIndex.add(new Ban(id, player, uuid, ip, bannedBy, reason, "ipban", 1, new Timestamp(System.currentTimeMillis()), null));
             callEvent(new BanPlayerEvent(new Ban(-1, player, uuid, ip, bannedBy, reason, "ipban", 1, null, null), false));
         }
 
@@ -163,6 +399,48 @@ public class BansManager {
         }
     }
 
+    /**
+     * Bans every address in a CIDR range, e.g. 203.0.113.0/24 or 2001:db8::/32
+     */
+    public static void banRange(CommandSender sender, IPRange range, String reason) {
+        String cidr = range.toString();
+        String bannedBy = sender.getName();
+        if (DatabaseManager.bans.getRangeBan(cidr) != null) {
+            PlayerManager.sendMessageToTarget(sender, ConfigManager.messages.PLAYER_ALREADY_BANNED);
+            return;
+        }
+
+        int id = DatabaseManager.bans.banPlayer(null, null, cidr, bannedBy, reason, "rangeban");
+        banIndex.add(new Ban(id, null, null, cidr, bannedBy, reason, "rangeban", 1, new Timestamp(System.currentTimeMillis()), null));
+        callEvent(new BanPlayerEvent(new Ban(-1, null, null, cidr, bannedBy, reason, "rangeban", 1, null, null), false));
+
+        for (ProxiedPlayer p : ProxyServer.getInstance().getPlayers()) {
+            if (range.contains(p.getAddress().getAddress())) {
+                disconnectPlayer(p, ConfigManager.messages.IPBAN_PLAYER.replace("{message}", reason).replace("{sender}", bannedBy));
+            }
+        }
+
+        String message = ConfigManager.messages.IPBAN_PLAYER_BROADCAST.replace("{player}", cidr).replace("{message}", reason).replace("{sender}", bannedBy);
+        if (ConfigManager.bans.BroadcastBans && ConfigManager.main.BungeeChatIntegration) {
+            Utilities.doBungeeChatMirror("StaffNotice", message);
+        } else {
+            PlayerManager.sendMessageToTarget(sender, message);
+        }
+    }
+
+    private static void unbanRange(CommandSender sender, IPRange range) {
+        String cidr = range.toString();
+        Ban b = DatabaseManager.bans.getRangeBan(cidr);
+        if (b == null) {
+            PlayerManager.sendMessageToTarget(sender, ConfigManager.messages.PLAYER_NOT_BANNED);
+            return;
+        }
+
+        unban(b);
+        callEvent(new UnbanPlayerEvent(b, sender.getName()));
+        PlayerManager.sendMessageToTarget(sender, ConfigManager.messages.PLAYER_UNBANNED.replace("{player}", cidr).replace("{sender}", sender.getName()));
+    }
+
     public static void kickAll(String sender, String message) {
         if (message.equals("")) {
             message = ConfigManager.messages.DEFAULT_KICK_MESSAGE;
@@ -316,7 +594,7 @@ public class BansManager {
         if (b != null) {
             if (b.getType().equals("tempban")) {
                 // We don't want tempbans AND bans in place.. it could cause issues!
-                DatabaseManager.bans.unbanPlayer(b.getId());
+                unban(b);
             } else {
                 PlayerManager.sendMessageToTarget(sender, ConfigManager.messages.PLAYER_ALREADY_BANNED);
                 return;
@@ -337,7 +615,10 @@ public class BansManager {
         String timeDiff = Utilities.buildTimeDiffString(seconds * 1000L, 2);
         String shortTimeDiff = Utilities.buildShortTimeDiffString(seconds * 1000L, 10);
 
-        DatabaseManager.bans.tempBanPlayer(t.name, t.uuid, bannedBy, message, sdf.format(sqlToday));
+        int id = DatabaseManager.bans.tempBanPlayer(t.name, t.uuid, bannedBy, message, sdf.format(sqlToday));
+        Ban tempBan = new Ban(id, t.name, t.uuid, null, bannedBy, message, "tempban", 1, new Timestamp(System.currentTimeMillis()), new Timestamp(sqlToday.getTime()));
+        banIndex.add(tempBan);
+        scheduleTempBanExpiry(tempBan);
         PlayerManager.sendtoNewSpawn(t.gsp);
         callEvent(new BanPlayerEvent(new Ban(-1, t.name, t.uuid, null, bannedBy, message, "tempban", 1, null, new Timestamp(System.currentTimeMillis() + (seconds * 1000L))), auto));
 
@@ -361,7 +642,7 @@ public class BansManager {
         java.util.Date banned = b.getBannedUntil();
 
         if (today.compareTo(banned) >= 0) {
-            DatabaseManager.bans.unbanPlayer(b.getId());
+            unban(b);
             return false;
         }
 
@@ -397,7 +678,7 @@ public class BansManager {
         String actionExtra = "";
         // Check if we have warning actions defined
         if (ConfigManager.bans.Actions != null) {
-        	List<Ban> warnings = DatabaseManager.bans.getWarnHistory(t.name, t.uuid);
+        	List<Ban> warnings = DatabaseManager.bans.getCurrentWarnHistory(t.name, t.uuid);
         	warncount = 0;
             for (Ban w : warnings) {
             	// Only count warnings that have not expired
@@ -754,6 +1035,11 @@ public class BansManager {
             			PlayerManager.sendMessageToTarget(sender,
                     		ChatColor.GREEN + "[Tracker] IP address \"" + search + "\" matches " + tracking.size() + " accounts/IPs:");
             		}
+            		Ban range = getRangeBan(search);
+            		if (range != null) {
+            		    PlayerManager.sendMessageToTarget(sender,
+            		            ChatColor.GREEN + "[Tracker] IP address \"" + search + "\" is inside range ban " + ChatColor.DARK_AQUA + range.getIp() + ChatColor.GREEN + " (" + range.getReason() + ")");
+            		}
             	} else {
             		String type;
             		String searchString = search;
@@ -863,11 +1149,17 @@ public class BansManager {
             	    
             	    builder.append(' ');
             	    
+            	    Ban range = t.isIpBanned() ? null : getRangeBan(t.getIp());
             	    if (t.isIpBanned()) {
             	        builder.append(ChatColor.DARK_AQUA);
             	        builder.append(t.getIp());
             	        builder.append(ChatColor.GREEN);
             	        builder.append("[IPBan]");
+            	    } else if (range != null) {
+            	        builder.append(ChatColor.DARK_AQUA);
+            	        builder.append(t.getIp());
+            	        builder.append(ChatColor.GREEN);
+            	        builder.append("[RangeBan ").append(range.getIp()).append(']');
             	    } else {
             	        builder.append(ChatColor.YELLOW);
             	        builder.append(t.getIp());
@@ -932,6 +1224,13 @@ public class BansManager {
 		        PlayerManager.sendMessageToTarget(sender, ConfigManager.messages.ONTIME_TIME_MONTH.replace("{diff}", Utilities.buildTimeDiffString(tr.getTimeMonth() + tr.getTimeSession(), 3)));
 		        PlayerManager.sendMessageToTarget(sender, ConfigManager.messages.ONTIME_TIME_YEAR.replace("{diff}", Utilities.buildTimeDiffString(tr.getTimeYear() + tr.getTimeSession(), 3)));
 		        PlayerManager.sendMessageToTarget(sender, ConfigManager.messages.ONTIME_TIME_TOTAL.replace("{diff}", Utilities.buildTimeDiffString(tr.getTimeTotal() + tr.getTimeSession(), 3)));
+
+		        int rank = getOnTimeRank(bt.uuid);
+		        if (rank > 0) {
+		            PlayerManager.sendMessageToTarget(sender, ConfigManager.messages.ONTIME_RANK
+		                    .replace("{rank}", Integer.toString(rank))
+		                    .replace("{players}", Integer.toString(onTimeLeaderboard.size())));
+		        }
             }
         });
     }
@@ -943,16 +1242,30 @@ public class BansManager {
         ProxyServer.getInstance().getScheduler().runAsync(geSuit.instance, new Runnable() {
             @Override
             public void run() {
-                int pagenum;
-                    pagenum = page;
+                int pagenum = page;
+                int offset = (pagenum < 1) ? 0 : (pagenum - 1) * 10;	// Offset = Page number x 10 (but starts at 0 and no less than 0
+                Map<String, Long> results;
+                if (onTimeLeaderboardLoaded) {
+                    List<Map.Entry<UUID, Long>> top = onTimeLeaderboard.getPage(offset, 10);
+                    List<UUID> ids = new ArrayList<>(top.size());
+                    for (Map.Entry<UUID, Long> entry : top) {
+                        ids.add(entry.getKey());
+                    }
+                    Map<UUID, String> names = DatabaseManager.players.resolveUUIDs(ids);
+                    results = new LinkedHashMap<>();
+                    for (Map.Entry<UUID, Long> entry : top) {
+                        String name = names.get(entry.getKey());
+                        results.put((name == null) ? entry.getKey().toString() : name, entry.getValue());
+                    }
+                } else {
                     if (pagenum > 20) {
                         PlayerManager.sendMessageToTarget(sender, ChatColor.RED + "Sorry, maximum page number is 20.");
                         return;
                     }
-                // Get time records and set online time (if player is online)
-                Map<String, Long> results = DatabaseManager.ontime.getOnTimeTop(pagenum);
+                    results = DatabaseManager.ontime.getOnTimeTop(pagenum);
+                }
+
                 PlayerManager.sendMessageToTarget(sender, ChatColor.DARK_AQUA + "-------- " + ChatColor.YELLOW + "OnTime Top Statistics" + ChatColor.DARK_AQUA + " (page " + page + ") --------");
-                int offset = (pagenum < 1) ? 0 : (pagenum - 1) * 10;	// Offset = Page number x 10 (but starts at 0 and no less than 0
                 for (String name : results.keySet()) {
                     offset++;
                     String line = ConfigManager.messages.ONTIME_TIME_TOP
@@ -1046,7 +1359,6 @@ public class BansManager {
 
 
         long kickBanTime = TimeUnit.MILLISECONDS.toSeconds(ConfigManager.bans.TempBanTime);
-        int kickCount = 0;
 
         List<String> reasonIgnores = ConfigManager.bans.KickReasonIgnoreList;
         if (!reasonIgnores.isEmpty()) {
@@ -1059,52 +1371,32 @@ public class BansManager {
             }
         }
 
-        if (kicks.size() > 0) {
-            clearKicks();
-            if (kicks.size() > 0) {
-                for (Kick kick : kicks) { //find active kicks.
-                    if (t.gsp.getUuid().equals(kick.getUuid())) {
-                        kickCount++;
-                    }
-                }
-                kickCount++; //add 1 for the current kick
-                if (kickCount >= kickLimit) {
-                    tempBanPlayer(kickedBy, t, kickBanTime, reason, false);
-                    Iterator<Kick> iter2 = kicks.iterator();
-                    while (iter2.hasNext()) { //clear this players kicks
-                        Kick kick = iter2.next();
-                        if (kick.getUuid().equals(t.uuid)) iter2.remove();
-                    }
-                } else {
-                    kicks.add(new Kick(t.gsp.getUuid(), t.dispname, kickedBy, reason, System.currentTimeMillis()));
-                }
-            } else {
-                kicks.add(new Kick(t.gsp.getUuid(), t.dispname, kickedBy, reason, System.currentTimeMillis()));
-            }
+        String uuid = t.gsp.getUuid();
+        int kickCount = kicks.add(new Kick(uuid, t.dispname, kickedBy, reason, System.currentTimeMillis()), ConfigManager.bans.KicksTimeOut, kickLimit);
+        if (kickCount >= kickLimit) {
+            tempBanPlayer(kickedBy, t, kickBanTime, reason, false);
+            kicks.clear(uuid); //clear this players kicks
+            expirations.cancel(uuid);
         } else {
-            kicks.add(new Kick(t.gsp.getUuid(), t.dispname, kickedBy, reason, System.currentTimeMillis()));
+            scheduleKickExpiry(uuid);
         }
-
+        ProxyServer.getInstance().getScheduler().runAsync(geSuit.instance, BansManager::saveKicks);
     }
 
+    /**
+     * Drops kicks that expired since the last tick of the timing wheel
+     */
     public static void clearKicks() {
-        long kickTimeOut = ConfigManager.bans.KicksTimeOut;
-        Iterator<Kick> iter = kicks.iterator();
-        while (iter.hasNext()) { //remove kicks that would have expired first
-            Kick kick = iter.next();
-            if (kick.getBannedOn() + kickTimeOut < System.currentTimeMillis()) {
-                iter.remove();
-            }
-        }
-
+        kicks.expireAll(ConfigManager.bans.KicksTimeOut);
     }
 
-
-    public static List<Kick> getKicks() {
-        return kicks;
+    /**
+     * Visits the active kicks without copying them
+     */
+    public static void forEachKick(Consumer<Kick> action) {
+        kicks.forEach(action);
     }
 
-
     private static class BanTarget {
     	String name = null;
     	String dispname = null;
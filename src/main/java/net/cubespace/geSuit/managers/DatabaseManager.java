@@ -2,6 +2,9 @@ package net.cubespace.geSuit.managers;
 
 import net.cubespace.geSuit.database.*;
 import net.cubespace.geSuit.geSuit;
+import net.cubespace.geSuit.tasks.TrackingCompaction;
+
+import java.util.Arrays;
 
 /**
  * @author geNAZt (fabian.fassbender42@googlemail.com)
@@ -16,6 +19,9 @@ public class DatabaseManager {
     public static Warps warps;
     public static Tracking tracking;
     public static OnTime ontime;
+    public static WriteBehindQueue writeBehind;
+    public static LoginGate logins;
+    public static ReplicaRouter reports;
 
     static {
         players = new Players();
@@ -27,6 +33,9 @@ public class DatabaseManager {
         tracking = new Tracking();
         ontime = new OnTime();
 
+        writeBehind = new WriteBehindQueue();
+        logins = new LoginGate();
+
         connectionPool = new ConnectionPool();
         connectionPool.addRepository(players);
         connectionPool.addRepository(homes);
@@ -36,14 +45,24 @@ public class DatabaseManager {
         connectionPool.addRepository(warps);
         connectionPool.addRepository(tracking);
         connectionPool.addRepository(ontime);
+        reports = new ReplicaRouter(connectionPool);
         try {
             connectionPool.initialiseConnections(ConfigManager.main.Database);
-            // Add the description column to the warps table if missing
-            connectionPool.AddStringColumnIfMissing("warps", "description", 128);
+            if (ConfigManager.main.UseReadReplica) {
+                reports.start(ConfigManager.main.ReadReplica, ConfigManager.main.ReadReplicaMaxLag,
+                        Arrays.asList(players, homes, bans, portals, spawns, warps, tracking, ontime));
+            }
+            writeBehind.start(ConfigManager.main.Database);
+            logins.start(ConfigManager.main.Database);
             AnnouncementManager.loadAnnouncements();
             WarpsManager.loadWarpLocations();
             PortalManager.loadPortals();
             SpawnManager.loadSpawns();
+            BansManager.loadBanIndex();
+            BansManager.loadOnTimeLeaderboard();
+            BansManager.loadAccountClusters();
+            PlayerManager.loadKnownPlayers();
+            TrackingCompaction.schedule();
         
         } catch (IllegalStateException e) {
             geSuit.instance.getLogger().warning("Gesuit could not initaliaze the database.... as " +
@@ -159,9 +159,20 @@ public class HomesManager {
     }
 
     public static void loadPlayersHomes(GSPlayer player) {
-        List<Home> homes = DatabaseManager.homes.getHomesForPlayer(player);
+        addPlayersHomes(player, DatabaseManager.homes.getHomesForPlayer(player));
+    }
+
+    /**
+     * Files already loaded homes under the player, taking ownership of them
+     */
+    public static void addPlayersHomes(GSPlayer player, List<Home> homes) {
+        if (homes == null) {
+            return;
+        }
 
         for (Home home : homes) {
+            home.owner = player;
+
             if (home.loc.getServer() == null) {
                 geSuit.instance.getLogger().warning("Invalid server for home \"" + home.name + "\" of player " + player.getName() + "!");
                 continue;
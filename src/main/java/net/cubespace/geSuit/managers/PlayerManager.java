@@ -2,10 +2,15 @@ package net.cubespace.geSuit.managers;
 
 import au.com.addstar.bc.BungeeChat;
 import net.cubespace.geSuit.Utilities;
+import net.cubespace.geSuit.cache.KnownPlayers;
+import net.cubespace.geSuit.cache.PlayerRegistry;
+import net.cubespace.geSuit.database.LoginGate;
+import net.cubespace.geSuit.database.LoginLoader;
 import net.cubespace.geSuit.events.NewPlayerJoinEvent;
 import net.cubespace.geSuit.geSuit;
 import net.cubespace.geSuit.objects.Ban;
 import net.cubespace.geSuit.objects.GSPlayer;
+import net.cubespace.geSuit.objects.LoginData;
 import net.cubespace.geSuit.objects.Track;
 import net.md_5.bungee.api.ChatColor;
 import net.md_5.bungee.api.CommandSender;
@@ -21,13 +26,19 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 
 public class PlayerManager {
     private static SimpleDateFormat sdf = new SimpleDateFormat("dd MMM yyyy HH:mm:ss z");
     
-    public static HashMap<UUID, GSPlayer> cachedPlayers = new HashMap<>();
-    public static HashMap<String, GSPlayer> onlinePlayers = new HashMap<>();
+    private static final PlayerRegistry players = new PlayerRegistry();
+    // Every uuid in the players table, so lockdown can turn away new accounts without a query
+    private static final KnownPlayers knownPlayers = new KnownPlayers();
+    private static volatile boolean knownPlayersLoaded;
     public static ArrayList<ProxiedPlayer> kickedPlayers = new ArrayList<>();
 
     public static boolean playerExists(ProxiedPlayer player) {
@@ -38,91 +49,163 @@ public class PlayerManager {
         return DatabaseManager.players.playerExists(Utilities.getStringFromUUID(player));
     }
 
-    public static void initPlayer(final PendingConnection connection, final LoginEvent event) {
-        ProxyServer.getInstance().getScheduler().runAsync(geSuit.instance, new Runnable() {
-            @Override
-            public void run() {
+    /**
+     * Reads every uuid in the players table into the known players. Called once at startup, before players can join
+     */
+    public static void loadKnownPlayers() {
+        knownPlayers.clear();
+        knownPlayersLoaded = DatabaseManager.players.forEachUUIDPage(null, null, knownPlayers::addAll);
+        if (knownPlayersLoaded) {
+            geSuit.instance.DebugMsg("Known players loaded: " + knownPlayers.size() + " players");
+        } else {
+            geSuit.instance.getLogger().warning("Could not load the known players, lockdown checks read the database instead");
+        }
+    }
+
+    public static void addKnownPlayer(String uuid) {
+        if (uuid != null) {
+            knownPlayers.add(Utilities.makeUUID(uuid));
+        }
+    }
 
-                Boolean playerExists = playerExists(connection.getUniqueId());
-                //lockdown check
-                if (!playerExists) {//check player is new first
-                    if (!LockDownManager.checkExpiry()) {//returns true if expired and false if persisting
+    /**
+     * @return the number of known players, or -1 if they are not loaded
+     */
+    public static int getKnownPlayerCount() {
+        return knownPlayersLoaded ? knownPlayers.size() : -1;
+    }
 
+    /**
+     * Turns away a player the players table has never seen while the server is locked down, before any database
+     * work is queued for them. Until the known players have loaded, initPlayer checks the stored row instead
+     *
+     * @return true if the login was refused
+     */
+    public static boolean refuseDuringLockdown(final PendingConnection connection, final LoginEvent event) {
+        if (!knownPlayersLoaded || !LockDownManager.isLockedDown() || knownPlayers.contains(connection.getUniqueId())) {
+            return false;
+        }
+
+        long lockdownStart = System.nanoTime();
+        boolean lockedDown = !LockDownManager.checkExpiry();
+        DatabaseManager.logins.record(LoginGate.Stage.LOCKDOWN, lockdownStart);
+        if (lockedDown) {
+            refuseLockdown(connection, event);
+        }
+        return lockedDown;
+    }
+
+    private static void refuseLockdown(final PendingConnection connection, final LoginEvent event) {
+        event.setCancelled(true);
+        String timeRemaining = Utilities.buildShortTimeDiffString(LockDownManager.getExpiryTime() - System.currentTimeMillis(), 2);
+        event.setCancelReason(TextComponent.fromLegacyText(Utilities.colorize(ConfigManager.messages.LOCKDOWN_MESSAGE.replace("{message}", LockDownManager.getOptionalMessage()))));
+        LoggingManager.log(ChatColor.RED + connection.getName() + "'s connection refused due to server lockdown! Remaining: " + timeRemaining + ", Until: " + LockDownManager.getExpiryTimeString() + " (" + connection.getAddress().toString() + ")");
+    }
+
+    public static void initPlayer(final PendingConnection connection, final LoginEvent event) {
+        boolean cached = getPlayer(connection.getName()) != null;
+
+        DatabaseManager.logins.submit(() -> LoginLoader.load(connection.getName(), connection.getUniqueId(), connection.getAddress().getHostString(), !cached))
+                .whenComplete((data, ex) -> {
+                    Throwable cause = (ex instanceof CompletionException) ? ex.getCause() : ex;
+                    if (cause instanceof RejectedExecutionException) {
                         event.setCancelled(true);
-                        String timeRemaining = Utilities.buildShortTimeDiffString(LockDownManager.getExpiryTime() - System.currentTimeMillis(), 2);
-                        event.setCancelReason(TextComponent.fromLegacyText(Utilities.colorize(ConfigManager.messages.LOCKDOWN_MESSAGE.replace("{message}", LockDownManager.getOptionalMessage()))));
-                        LoggingManager.log(ChatColor.RED + connection.getName() + "'s connection refused due to server lockdown! Remaining: " + timeRemaining + ", Until: " + LockDownManager.getExpiryTimeString() + " (" + connection.getAddress().toString() + ")");
+                        event.setCancelReason(TextComponent.fromLegacyText(Utilities.colorize(ConfigManager.messages.LOGIN_BUSY)));
+                        LoggingManager.log(ChatColor.RED + connection.getName() + "'s connection refused: " + cause.getMessage() + " (" + connection.getAddress().toString() + ")");
                         event.completeIntent(geSuit.instance);
                         return;
-
                     }
-                }
-                // Do ban check
-                if (DatabaseManager.bans.isPlayerBanned(connection.getName(), Utilities.getStringFromUUID(connection.getUniqueId()), connection.getAddress().getHostString())) {
-                    Ban b = DatabaseManager.bans.getBanInfo(connection.getName(), Utilities.getStringFromUUID(connection.getUniqueId()), connection.getAddress().getHostString());
-
-                    boolean banned = true;
-                    if (b != null) {
-                        if (b.getType().equals("tempban")) {
-                            if (BansManager.checkTempBan(b)) {
-                                event.setCancelled(true);
-    
-                                Date then = b.getBannedUntil();
-                                Date now = new Date();
-                                long timeDiff = then.getTime() - now.getTime();
-
-                                event.setCancelReason(TextComponent.fromLegacyText(Utilities.colorize(ConfigManager.messages.TEMP_BAN_MESSAGE.replace("{sender}", b.getBannedBy()).replace("{time}", sdf.format(then)).replace("{left}", Utilities.buildTimeDiffString(timeDiff, 2)).replace("{shortleft}", Utilities.buildShortTimeDiffString(timeDiff, 10)).replace("{message}", b.getReason()))));
-                                LoggingManager.log(ChatColor.RED + connection.getName() + "'s connection refused due to being temp banned!" + " (" + connection.getAddress().toString() + ")");
-                            } else {
-                                banned = false;
-                            }
-                        } else {
-                            event.setCancelled(true);
-
-                            event.setCancelReason(TextComponent.fromLegacyText(Utilities.colorize(ConfigManager.messages.BAN_PLAYER_MESSAGE.replace("{sender}", b.getBannedBy()).replace("{message}", b.getReason()))));
-                            LoggingManager.log(ChatColor.RED + connection.getName() + "'s connection refused due to being banned!" + " (" + connection.getAddress().toString() + ")");
-                        }
-                        
-                        if (banned) {
-                            // Dont load this player as they wont be joining
-                            event.completeIntent(geSuit.instance);
-                            return;
-                        }
-                    }
-                }
-                // Load the GSPlayer object for use
-                GSPlayer gsPlayer;
-                if (playerExists) {
-                    gsPlayer = getPlayer(connection.getName());
-                    if (gsPlayer == null) {
-                        gsPlayer = DatabaseManager.players.loadPlayer(Utilities.getStringFromUUID(connection.getUniqueId()));
-                        gsPlayer.setName(connection.getName());
-                        HomesManager.loadPlayersHomes(gsPlayer);
-                        LoggingManager.log(ConfigManager.messages.PLAYER_LOAD.replace("{player}", gsPlayer.getName()).replace("{uuid}", connection.getUniqueId().toString()));
-                    } else {
-                        LoggingManager.log(ConfigManager.messages.PLAYER_LOAD_CACHED.replace("{player}", gsPlayer.getName()).replace("{uuid}", connection.getUniqueId().toString()));
+                    if (ex != null) {
+                        // Without their data there is no GSPlayer to confirm the join with
+                        event.setCancelled(true);
+                        event.setCancelReason(TextComponent.fromLegacyText(Utilities.colorize(ConfigManager.messages.LOGIN_FAILED)));
+                        geSuit.instance.getLogger().log(Level.SEVERE, connection.getName() + "'s connection refused, their login data could not be loaded (" + connection.getAddress().toString() + ")", cause);
+                        event.completeIntent(geSuit.instance);
+                        return;
                     }
+
+                    initPlayer(connection, event, data);
+                });
+    }
+
+    private static void initPlayer(final PendingConnection connection, final LoginEvent event, final LoginData data) {
+        boolean playerExists = data.isKnownPlayer();
+        //lockdown check
+        long lockdownStart = System.nanoTime();
+        if (!playerExists) {//check player is new first
+            boolean lockedDown = !LockDownManager.checkExpiry();//returns true if expired and false if persisting
+            DatabaseManager.logins.record(LoginGate.Stage.LOCKDOWN, lockdownStart);
+            if (lockedDown) {
+                refuseLockdown(connection, event);
+                event.completeIntent(geSuit.instance);
+                return;
+
+            }
+        }
+        // Do ban check
+        Ban b = data.getActiveBan();
+        if (b != null) {
+            boolean banned = true;
+            if (b.getType().equals("tempban")) {
+                if (BansManager.checkTempBan(b)) {
+                    event.setCancelled(true);
+
+                    Date then = b.getBannedUntil();
+                    Date now = new Date();
+                    long timeDiff = then.getTime() - now.getTime();
+
+                    event.setCancelReason(TextComponent.fromLegacyText(Utilities.colorize(ConfigManager.messages.TEMP_BAN_MESSAGE.replace("{sender}", b.getBannedBy()).replace("{time}", sdf.format(then)).replace("{left}", Utilities.buildTimeDiffString(timeDiff, 2)).replace("{shortleft}", Utilities.buildShortTimeDiffString(timeDiff, 10)).replace("{message}", b.getReason()))));
+                    LoggingManager.log(ChatColor.RED + connection.getName() + "'s connection refused due to being temp banned!" + " (" + connection.getAddress().toString() + ")");
                 } else {
-                    gsPlayer = new GSPlayer(connection.getName(), Utilities.getStringFromUUID(connection.getUniqueId()), true);
-                    gsPlayer.setFirstJoin(true);
+                    banned = false;
                 }
-                
-                gsPlayer.setIp(connection.getAddress().getHostString());
-                
-                Track history = DatabaseManager.tracking.checkNameChange(connection.getUniqueId(), connection.getName());
-                if (history != null) {
-                    gsPlayer.setLastName(history);
-                }
-                
-                cachedPlayers.put(connection.getUniqueId(), gsPlayer);
-                
-                // TODO: All database retrieval must be done here for this player
+            } else {
+                event.setCancelled(true);
+
+                event.setCancelReason(TextComponent.fromLegacyText(Utilities.colorize(ConfigManager.messages.BAN_PLAYER_MESSAGE.replace("{sender}", b.getBannedBy()).replace("{message}", b.getReason()))));
+                LoggingManager.log(ChatColor.RED + connection.getName() + "'s connection refused due to being banned!" + " (" + connection.getAddress().toString() + ")");
+            }
+
+            if (banned) {
+                // Dont load this player as they wont be joining
                 event.completeIntent(geSuit.instance);
+                return;
+            }
+        }
+        // Load the GSPlayer object for use
+        GSPlayer gsPlayer;
+        if (playerExists) {
+            gsPlayer = getPlayer(connection.getName());
+            if (gsPlayer == null) {
+                gsPlayer = data.getStoredPlayer();
+                gsPlayer.setName(connection.getName());
+                if (data.getHomes() == null) {
+                    // They were cached when the login started, so their homes were not part of the snapshot
+                    HomesManager.loadPlayersHomes(gsPlayer);
+                } else {
+                    HomesManager.addPlayersHomes(gsPlayer, data.getHomes());
+                }
+                LoggingManager.log(ConfigManager.messages.PLAYER_LOAD.replace("{player}", gsPlayer.getName()).replace("{uuid}", connection.getUniqueId().toString()));
+            } else {
+                LoggingManager.log(ConfigManager.messages.PLAYER_LOAD_CACHED.replace("{player}", gsPlayer.getName()).replace("{uuid}", connection.getUniqueId().toString()));
             }
+        } else {
+            gsPlayer = new GSPlayer(connection.getName(), Utilities.getStringFromUUID(connection.getUniqueId()), true);
+            gsPlayer.setFirstJoin(true);
+        }
 
-        });
+        gsPlayer.setIp(connection.getAddress().getHostString());
+
+        Track history = data.getLastNameChange();
+        if (history != null) {
+            gsPlayer.setLastName(history);
+        }
+
+        players.cache(connection.getUniqueId(), gsPlayer);
+
+        event.completeIntent(geSuit.instance);
     }
-    
+
     /**
      * If this is the first connection in this session, this will do any needed final loading or setting up
      * This also completes the creation process for new players 
@@ -130,7 +213,7 @@ public class PlayerManager {
      * @return The GSPlayer instance for efficiency
      */
     public static GSPlayer confirmJoin(final ProxiedPlayer player) {
-    	final GSPlayer gsPlayer = cachedPlayers.get(player.getUniqueId());
+    	final GSPlayer gsPlayer = players.getCached(player.getUniqueId());
         if (gsPlayer.firstConnect()) {
             // Do new player stuff
             if (gsPlayer.isFirstJoin()) {
@@ -160,20 +243,37 @@ public class PlayerManager {
                 }
             }
             
-            onlinePlayers.put(player.getName().toLowerCase(), gsPlayer);
+            players.online(gsPlayer, player.getDisplayName());
         }
         
         return gsPlayer;
     }
 
     public static void unloadPlayer(String player) {
-    	if (onlinePlayers.containsKey(player.toLowerCase())) {
-            onlinePlayers.remove(player.toLowerCase());
-
+    	if (players.offline(player) != null) {
             LoggingManager.log(ConfigManager.messages.PLAYER_UNLOAD.replace("{player}", player));
         }
     }
 
+    /**
+     * Drops the player loaded at login, when they disconnect
+     *
+     * @return the player, or null if they were not loaded
+     */
+    public static GSPlayer uncachePlayer(UUID id) {
+        return players.uncache(id);
+    }
+
+    /**
+     * Picks up a display name set by another plugin since the player joined
+     */
+    public static void updateDisplayName(ProxiedPlayer player) {
+        GSPlayer p = getPlayer(player.getName());
+        if (p != null) {
+            players.setDisplayName(p, player.getDisplayName());
+        }
+    }
+
     public static void sendMessageToTarget(CommandSender target, String message) {
         // Shouldnt need it. But let's be cautious.
         if (target == null) {
@@ -218,21 +318,27 @@ public class PlayerManager {
         LoggingManager.log(message);
     }
 
-    public static String getLastSeeninfos(String player, boolean full, boolean seeVanished) {
+    public static CompletableFuture<String> getLastSeeninfos(String player, final boolean full, boolean seeVanished) {
         GSPlayer p = getPlayer(player);
+        final boolean online = (p != null && p.getProxiedPlayer() != null);
+
+        // Player is offline, load data
+        CompletableFuture<GSPlayer> lookup = (p != null) ? CompletableFuture.completedFuture(p) : DatabaseManager.players.loadPlayerAsync(player);
+
+        return lookup.thenCompose(found -> {
+            if (found == null) { // Unknown player
+                return CompletableFuture.completedFuture(ConfigManager.messages.PLAYER_DOES_NOT_EXIST);
+            }
+
+            // Do a ban check
+            return DatabaseManager.bans.getBanInfoAsync(found.getName(), found.getUuid(), null)
+                    .thenApply(b -> formatLastSeeninfos(found, online, b, full));
+        });
+    }
+
+    private static String formatLastSeeninfos(GSPlayer p, boolean online, Ban b, boolean full) {
         LinkedHashMap<String, String> items = new LinkedHashMap<>();
-        
-        boolean online = (p != null && p.getProxiedPlayer() != null);
-        
-        if (p == null) {
-            // Player is offline, load data
-            p = DatabaseManager.players.loadPlayer(player);
-        }
-        
-        if (p == null) { // Unknown player
-            return ConfigManager.messages.PLAYER_DOES_NOT_EXIST;
-        }
-        
+
         // Vanished and not online
         if (ConfigManager.main.BungeeChatIntegration) {
 	        if (BungeeChat.instance.getSyncManager().getPropertyBoolean(p.getProxiedPlayer(), "VNP:vanished", false) 
@@ -241,8 +347,6 @@ public class PlayerManager {
 	        }
         }
         
-        // Do a ban check
-        Ban b = DatabaseManager.bans.getBanInfo(p.getName(), p.getUuid(), null);
         if (b != null) {
             if (b.getType().equals("tempban")) {
                 if (b.getBannedUntil().getTime() > System.currentTimeMillis()) {
@@ -316,42 +420,41 @@ public class PlayerManager {
     }
 
     public static GSPlayer matchOnlinePlayer(String player) {
-    	// Try exact match first (real name, not display name)
+    	// Try exact matches first: real name, then display name, then UUID
     	GSPlayer match = getPlayer(player);
     	if (match != null)
     		return match;
-
-    	// Try fuzzy match (including display name)
-    	GSPlayer fuzzymatch = null;
-    	for (GSPlayer p : onlinePlayers.values()) {
-        	ProxiedPlayer pp = p.getProxiedPlayer();
-        	// Match exact display name (full match)
-        	if ((pp != null) && (pp.getDisplayName() != null) && pp.getDisplayName().equalsIgnoreCase(player))
-        		return p;
-        	
-        	// Match exact UUID if one was given
-        	if ((p.getUuid() != null) && (p.getUuid().equals(player)))
-        		return p;
-
-        	// Remember this "beginning" match in case we don't find a full match
-        	// (it's important to check displayname + name, incase their name was changed during this session)
-        	if ((p.getName().toLowerCase().startsWith(player)) ||
-        			((pp != null) && (pp.getDisplayName() != null) && (pp.getDisplayName().toLowerCase().startsWith(player))))
-        		match = p;
-        	
-        	// Remember this "fuzzy" match in case we don't find a full match or a "beginning" match)
-        	// (it's important to check displayname + name, incase their name was changed during this session)
-        	if ((p.getName().toLowerCase().contains(player)) ||
-        			((pp != null) && (pp.getDisplayName() != null) && (pp.getDisplayName().toLowerCase().contains(player))))
-        		fuzzymatch = p;
+    	match = players.getByDisplayName(player);
+    	if (match != null)
+    		return match;
+    	if (player.length() == 32) {
+    		try {
+    			match = players.getCached(Utilities.makeUUID(player));
+    			if ((match != null) && (getPlayer(match.getName()) == match))
+    				return match;
+    			match = null;
+    		} catch (IllegalArgumentException e) {
+    			// Not a UUID
+    		}
     	}
 
-		// Always return a "beginning" match first if we have one
-    	if (match != null) {
+    	// Then a name or display name starting with it, then one containing it
+    	// (display names count too, incase their name was changed during this session)
+    	match = players.matchPrefix(player);
+    	if (match != null)
     		return match;
-    	} else {
-    		return fuzzymatch;
-    	}
+    	return players.matchContains(player);
+    }
+
+    /**
+     * @return names of online players whose name or display name starts with the prefix, for tab completion
+     */
+    public static List<String> completePlayerName(String prefix) {
+        List<String> names = new ArrayList<>();
+        for (GSPlayer p : players.complete(prefix, 50)) {
+            names.add(p.getName());
+        }
+        return names;
     }
 
     public static List<GSPlayer> getPlayersByIP(String ip) {
@@ -363,25 +466,20 @@ public class PlayerManager {
             return null;
         }
 
-        for (GSPlayer p : onlinePlayers.values()) {
-            if (p.getProxiedPlayer().getAddress().getHostString().equalsIgnoreCase(ip)) {
-                matchingPlayers.add(p);
-            }
-        }
-
+        matchingPlayers.addAll(players.getByIp(ip));
         return matchingPlayers;
     }
 
     public static Collection<GSPlayer> getPlayers() {
-        return onlinePlayers.values();
+        return players.getOnline();
     }
 
-    public static Collection<GSPlayer> cachedPlayers() {
-        return cachedPlayers.values();
+    public static Map<UUID, GSPlayer> cachedPlayers() {
+        return players.getCached();
     }
 
     public static GSPlayer getPlayer(String player) {
-        return onlinePlayers.get(player.toLowerCase());
+        return players.getByName(player);
     }
     
     public static GSPlayer getPlayer(String player, boolean ExpectOnline) {
@@ -393,15 +491,16 @@ public class PlayerManager {
     }
 
     public static GSPlayer getPlayer(UUID id) {
-        return cachedPlayers.get(id);
+        return players.getCached(id);
     }
     
     public static GSPlayer getPlayer(ProxiedPlayer player) {
-        return cachedPlayers.get(player.getUniqueId());
+        return players.getCached(player.getUniqueId());
     }
     
     public static void updateTracking(GSPlayer player) {
-    	DatabaseManager.tracking.insertTracking(player.getName(), player.getUuid(), player.getIp());
+    	DatabaseManager.writeBehind.queueTracking(player.getName(), player.getUuid(), player.getIp());
+    	BansManager.linkAccount(player.getUuid(), player.getIp());
     }
 
     public static String retrieveOldNames(CommandSender sender, String playername) {
@@ -422,11 +521,9 @@ public class PlayerManager {
     
     public static void batchUpdatePlayerNames(CommandSender sender, boolean all, String start, String end) {
         if (all) {
-            List<UUID> uuids = DatabaseManager.players.getAllUUIDs();
-            DatabaseManager.tracking.batchUpdateNameHistories(uuids);
+            DatabaseManager.tracking.batchUpdateNameHistories(null, null);
         } else {
-            List<UUID> uuids = DatabaseManager.players.getUUIDs(start, end);
-            DatabaseManager.tracking.batchUpdateNameHistories(uuids);
+            DatabaseManager.tracking.batchUpdateNameHistories(start, end);
         }
     }
     /**
@@ -436,7 +533,7 @@ public class PlayerManager {
      */
     public static void sendtoNewSpawn(GSPlayer p) {
         p.setNewSpawn(true);
-        DatabaseManager.players.updatePlayer(p);
+        DatabaseManager.writeBehind.queuePlayerUpdate(p);
     }
 
 }
@@ -141,13 +141,15 @@ public class SpawnManager {
         GSPlayer sender = PlayerManager.getPlayer(sentBy);
         GSPlayer target = PlayerManager.matchOnlinePlayer(player);
         if (target == null) { //player is not ONLINE
-            target = DatabaseManager.players.loadPlayer(player);
-            if (target == null) { //Player NOT Found offline either
-                sender.sendMessage("We could not find a player matching: " + player);
-            } else { //Set OFFLINE to logon at new spawn
-                PlayerManager.sendtoNewSpawn(target);
-                sender.sendMessage("Offline player: " + target.getName() + " will spawn in at the new player spawn next logon");
-            }
+            DatabaseManager.connectionPool.runAsync(() -> {
+                GSPlayer offline = DatabaseManager.players.loadPlayer(player);
+                if (offline == null) { //Player NOT Found offline either
+                    sender.sendMessage("We could not find a player matching: " + player);
+                } else { //Set OFFLINE to logon at new spawn
+                    PlayerManager.sendtoNewSpawn(offline);
+                    sender.sendMessage("Offline player: " + offline.getName() + " will spawn in at the new player spawn next logon");
+                }
+            });
         } else {
             sendPlayerToNewPlayerSpawn(target);
             sender.sendMessage(target.getName() + " has been sent to the New Player Spawn");
@@ -158,13 +160,15 @@ public class SpawnManager {
     public static void sendPlayerToNewPlayerSpawn(CommandSender sender, String player) {
         GSPlayer target = PlayerManager.matchOnlinePlayer(player);
         if (target == null) { //player is not ONLINE
-            target = DatabaseManager.players.loadPlayer(player);
-            if (target == null) { //Player NOT Found offline either
-                sender.sendMessage(TextComponent.fromLegacyText("We could not find a player matching: " + player));
-            } else {//Set OFFLINE to logon at new spawn
-                PlayerManager.sendtoNewSpawn(target);
-                sender.sendMessage(TextComponent.fromLegacyText(target.getName() + " has been sent to the New Player Spawn"));
-            }
+            DatabaseManager.connectionPool.runAsync(() -> {
+                GSPlayer offline = DatabaseManager.players.loadPlayer(player);
+                if (offline == null) { //Player NOT Found offline either
+                    sender.sendMessage(TextComponent.fromLegacyText("We could not find a player matching: " + player));
+                } else {//Set OFFLINE to logon at new spawn
+                    PlayerManager.sendtoNewSpawn(offline);
+                    sender.sendMessage(TextComponent.fromLegacyText(offline.getName() + " has been sent to the New Player Spawn"));
+                }
+            });
         } else {
             sendPlayerToNewPlayerSpawn(target);
             sender.sendMessage(TextComponent.fromLegacyText(target.getName() + " has been sent to the New Player Spawn"));
@@ -34,12 +34,13 @@ public class WarpsManager {
             w.setGlobal(global);
             w.setHidden(hidden);
 			w.setDescription(description);
-            DatabaseManager.warps.updateWarp(w);
+            updateWarp(w);
             sender.sendMessage(ConfigManager.messages.WARP_UPDATED.replace("{warp}", name));
         } else {
             w = new Warp(name, loc, hidden, global, description);
             warps.put(name.toLowerCase(), w);
-            DatabaseManager.warps.insertWarp(w);
+            final Warp created = w;
+            DatabaseManager.connectionPool.runInOrder(writeKey(created), () -> DatabaseManager.warps.insertWarp(created));
             sender.sendMessage(ConfigManager.messages.WARP_CREATED.replace("{warp}", name));
         }
     }
@@ -49,7 +50,7 @@ public class WarpsManager {
 		if (doesWarpExist(warpName)) {
 			w = warps.get(warpName.toLowerCase());
 			w.setDescription(description);
-			DatabaseManager.warps.updateWarp(w);
+			updateWarp(w);
 			sender.sendMessage(ConfigManager.messages.WARP_DESCRIPTION_UPDATED.replace("{warp}", warpName));
 		} else {
 			sender.sendMessage(ConfigManager.messages.WARP_DOES_NOT_EXIST.replace("{warp}", warpName));
@@ -59,10 +60,19 @@ public class WarpsManager {
 	public static void deleteWarp(GSPlayer sender, String warp) {
         Warp w = getWarp(warp);
         warps.remove(w.getName().toLowerCase());
-        DatabaseManager.warps.deleteWarp(w.getName());
+        DatabaseManager.connectionPool.runInOrder(writeKey(w), () -> DatabaseManager.warps.deleteWarp(w.getName()));
         sender.sendMessage(ConfigManager.messages.WARP_DELETED.replace("{warp}", warp));
     }
 
+    private static void updateWarp(final Warp w) {
+        DatabaseManager.connectionPool.runInOrder(writeKey(w), () -> DatabaseManager.warps.updateWarp(w));
+    }
+
+    // Writes for one warp are chained, so a quick create and delete cannot reach the database the other way round
+    private static String writeKey(Warp w) {
+        return "warp:" + w.getName().toLowerCase();
+    }
+
     public static Warp getWarp(String name) {
         return warps.get(name.toLowerCase());
     }
@@ -0,0 +1,51 @@
+package net.cubespace.geSuit.objects;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything the login check needs from the database, loaded in one go
+ */
+public final class LoginData {
+    private final GSPlayer storedPlayer;
+    private final Ban activeBan;
+    private final Track lastNameChange;
+    private final List<Home> homes;
+
+    public LoginData(GSPlayer storedPlayer, Ban activeBan, Track lastNameChange, List<Home> homes) {
+        this.storedPlayer = storedPlayer;
+        this.activeBan = activeBan;
+        this.lastNameChange = lastNameChange;
+        this.homes = (homes == null) ? null : Collections.unmodifiableList(homes);
+    }
+
+    /**
+     * @return The players row, or null if this is a new player. A failed read never gets this far: the login fails
+     */
+    public GSPlayer getStoredPlayer() {
+        return storedPlayer;
+    }
+
+    public boolean isKnownPlayer() {
+        return storedPlayer != null;
+    }
+
+    /**
+     * @return The ban, ipban or tempban matching the players name, UUID or IP, or null
+     */
+    public Ban getActiveBan() {
+        return activeBan;
+    }
+
+    public Track getLastNameChange() {
+        return lastNameChange;
+    }
+
+    /**
+     * @return Homes without an owner set; they are attached to the player once it is loaded.
+     * Null if the homes were not part of the snapshot
+     */
+    public List<Home> getHomes() {
+        return homes;
+    }
+}
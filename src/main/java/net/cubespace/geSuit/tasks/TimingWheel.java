@@ -0,0 +1,143 @@
+package net.cubespace.geSuit.tasks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Hashed timing wheel. Each scheduled key lands in the bucket for its deadline tick and carries the number of full
+ * turns left, so a tick only looks at one bucket however many expirations are pending. Keys that fall due on the same
+ * tick are handed to their {@link Handler} together, so the handler can batch its work.
+ */
+public class TimingWheel implements Runnable {
+    private final long tickMillis;
+    private final LongSupplier clock;
+    private final List<Entry<?>>[] buckets;
+    private final int mask;
+    private final Map<Object, Entry<?>> entries = new HashMap<>();
+    private long currentTick;
+
+    /**
+     * @param tickMillis resolution of the wheel; {@link #run()} should be called at about this interval
+     * @param wheelSize  number of buckets, rounded up to a power of two
+     */
+    public TimingWheel(long tickMillis, int wheelSize) {
+        this(tickMillis, wheelSize, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock current time in epoch ms, replaced in tests
+     */
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMillis, int wheelSize, LongSupplier clock) {
+        int size = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.tickMillis = tickMillis;
+        this.clock = clock;
+        this.buckets = new List[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+        this.mask = size - 1;
+        this.currentTick = clock.getAsLong() / tickMillis;
+    }
+
+    /**
+     * Schedules the key to expire at the deadline, replacing any earlier schedule for an equal key. Deadlines in the
+     * past expire on the next tick
+     */
+    public synchronized <K> void schedule(K key, long deadline, Handler<K> handler) {
+        cancel(key);
+
+        long tick = Math.max(deadline / tickMillis, currentTick);
+        Entry<K> entry = new Entry<>(key, handler, (tick - currentTick) >> Integer.numberOfTrailingZeros(buckets.length));
+        buckets[(int) (tick & mask)].add(entry);
+        entries.put(key, entry);
+    }
+
+    /**
+     * @return false if the key was not scheduled
+     */
+    public synchronized boolean cancel(Object key) {
+        Entry<?> entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        entry.cancelled = true;
+        return true;
+    }
+
+    public synchronized int getPending() {
+        return entries.size();
+    }
+
+    public synchronized int getPending(Handler<?> handler) {
+        int pending = 0;
+        for (Entry<?> entry : entries.values()) {
+            if (entry.handler == handler) {
+                pending++;
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Advances the wheel to the current time and runs the handlers for everything that fell due
+     */
+    @Override
+    public void run() {
+        Map<Handler<?>, List<Object>> due = new IdentityHashMap<>();
+        synchronized (this) {
+            long nowTick = clock.getAsLong() / tickMillis;
+            for (; currentTick <= nowTick; currentTick++) {
+                Iterator<Entry<?>> iterator = buckets[(int) (currentTick & mask)].iterator();
+                while (iterator.hasNext()) {
+                    Entry<?> entry = iterator.next();
+                    if (entry.cancelled) {
+                        iterator.remove();
+                    } else if (entry.rounds <= 0) {
+                        iterator.remove();
+                        entries.remove(entry.key);
+                        due.computeIfAbsent(entry.handler, h -> new ArrayList<>()).add(entry.key);
+                    } else {
+                        entry.rounds--;
+                    }
+                }
+            }
+        }
+
+        // Outside the lock, handlers may schedule again
+        for (Map.Entry<Handler<?>, List<Object>> batch : due.entrySet()) {
+            try {
+                expire(batch.getKey(), batch.getValue());
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> void expire(Handler<K> handler, List<Object> keys) {
+        handler.expire((List<K>) keys);
+    }
+
+    public interface Handler<K> {
+        void expire(List<K> keys);
+    }
+
+    private static class Entry<K> {
+        private final K key;
+        private final Handler<K> handler;
+        private long rounds;
+        private boolean cancelled;
+
+        Entry(K key, Handler<K> handler, long rounds) {
+            this.key = key;
+            this.handler = handler;
+            this.rounds = rounds;
+        }
+    }
+}
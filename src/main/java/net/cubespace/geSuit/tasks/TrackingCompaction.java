@@ -0,0 +1,64 @@
+package net.cubespace.geSuit.tasks;
+
+import net.cubespace.geSuit.geSuit;
+import net.cubespace.geSuit.managers.ConfigManager;
+import net.cubespace.geSuit.managers.DatabaseManager;
+import net.md_5.bungee.api.ProxyServer;
+
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the tracking table small. Rows of the same account and IP left behind by name changes are merged, then rows
+ * not seen within the retention period are moved to the archive table. Each chunk is its own short transaction with
+ * a pause after it, so the live table is never locked for long.
+ */
+public class TrackingCompaction implements Runnable {
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public static void schedule() {
+        int interval = ConfigManager.main.TrackingCompactionInterval;
+        if (interval <= 0) {
+            return;
+        }
+        ProxyServer.getInstance().getScheduler().schedule(geSuit.instance, new TrackingCompaction(), interval, interval, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void run() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            int chunk = Math.max(1, ConfigManager.main.TrackingCompactionChunk);
+            long pause = Math.max(0, ConfigManager.main.TrackingCompactionPause);
+
+            int merged = 0;
+            String from = "";
+            while (from != null) {
+                from = DatabaseManager.tracking.compactTracking(from, chunk);
+                merged++;
+                Thread.sleep(pause);
+            }
+
+            int archived = 0;
+            if (ConfigManager.main.TrackingRetentionDays > 0) {
+                Timestamp horizon = new Timestamp(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(ConfigManager.main.TrackingRetentionDays));
+                int moved;
+                do {
+                    moved = DatabaseManager.tracking.archiveTracking(horizon, chunk);
+                    archived += Math.max(0, moved);
+                    Thread.sleep(pause);
+                } while (moved == chunk);
+            }
+
+            geSuit.instance.DebugMsg("Tracking compaction: " + merged + " merge chunks, " + archived + " rows archived");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running.set(false);
+        }
+    }
+}
@@ -21,7 +21,7 @@ CREATE TABLE `bans` (
   `id` int(11) NOT NULL AUTO_INCREMENT,
   `banned_playername` varchar(100) DEFAULT NULL,
   `banned_uuid` varchar(100) DEFAULT NULL,
-  `banned_ip` varchar(15) DEFAULT NULL,
+  `banned_ip` varchar(45) DEFAULT NULL,
   `banned_by` varchar(100) DEFAULT NULL,
   `reason` varchar(255) DEFAULT NULL,
   `type` varchar(100) DEFAULT NULL,
@@ -126,7 +126,7 @@ CREATE TABLE `spawns` (
 CREATE TABLE `tracking` (
   `player` varchar(20) NOT NULL,
   `uuid` varchar(32) NOT NULL,
-  `ip` varchar(15) NOT NULL,
+  `ip` varchar(45) NOT NULL,
   `firstseen` datetime NOT NULL,
   `lastseen` datetime NOT NULL,
   UNIQUE KEY `player` (`player`,`uuid`,`ip`),
@@ -169,6 +169,89 @@ CREATE TABLE `ontime` (
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
+--
+-- Table structure for table `ontime_daily`
+--
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `ontime_daily` (
+  `uuid` varchar(32) NOT NULL,
+  `day` date NOT NULL,
+  `time` int(10) unsigned NOT NULL,
+  PRIMARY KEY (`uuid`,`day`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `ontime_monthly`
+--
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `ontime_monthly` (
+  `uuid` varchar(32) NOT NULL,
+  `month` date NOT NULL,
+  `time` int(10) unsigned NOT NULL,
+  PRIMARY KEY (`uuid`,`month`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `ontime_total`
+--
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `ontime_total` (
+  `uuid` varchar(32) NOT NULL,
+  `time` bigint(20) unsigned NOT NULL,
+  PRIMARY KEY (`uuid`),
+  KEY `idx_ontime_total_time` (`time`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `tracking_ips`
+--
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `tracking_ips` (
+  `id` int(10) unsigned NOT NULL AUTO_INCREMENT,
+  `ip` varchar(45) NOT NULL,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `idx_tracking_ips_ip` (`ip`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `tracking_edges`
+--
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `tracking_edges` (
+  `ip_id` int(10) unsigned NOT NULL,
+  `uuid` varchar(32) NOT NULL,
+  `firstseen` datetime NOT NULL,
+  `lastseen` datetime NOT NULL,
+  PRIMARY KEY (`ip_id`,`uuid`),
+  KEY `idx_tracking_edges_uuid` (`uuid`,`ip_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `tracking_archive`
+--
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `tracking_archive` (
+  `player` varchar(20) NOT NULL,
+  `uuid` varchar(32) NOT NULL,
+  `ip` varchar(45) NOT NULL,
+  `firstseen` datetime NOT NULL,
+  `lastseen` datetime NOT NULL,
+  UNIQUE KEY `player` (`player`,`uuid`,`ip`),
+  KEY `idx_tracking_archive_uuid` (`uuid`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 /*!40103 SET TIME_ZONE=@OLD_TIME_ZONE */;
 
 /*!40101 SET SQL_MODE=@OLD_SQL_MODE */;
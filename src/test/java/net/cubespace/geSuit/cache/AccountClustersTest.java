@@ -0,0 +1,61 @@
+package net.cubespace.geSuit.cache;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AccountClustersTest {
+    private static final UUID ALICE = new UUID(0, 1);
+    private static final UUID BOB = new UUID(0, 2);
+    private static final UUID CAROL = new UUID(0, 3);
+    private static final UUID DAVE = new UUID(0, 4);
+
+    @Test
+    public void joinsAccountsThroughSharedIps() {
+        AccountClusters clusters = new AccountClusters();
+        clusters.link(ALICE, "10.0.0.1", 100);
+        clusters.link(BOB, "10.0.0.1", 200);
+        clusters.link(BOB, "10.0.0.2", 300);
+        clusters.link(CAROL, "10.0.0.2", 50);
+        clusters.link(DAVE, "10.0.0.3", 400);
+
+        List<UUID> cluster = clusters.getAccounts(CAROL);
+        assertEquals(3, cluster.size());
+        assertTrue(new HashSet<>(cluster).containsAll(Arrays.asList(ALICE, BOB, CAROL)));
+        assertEquals(1, clusters.getAccounts(DAVE).size());
+        assertEquals(0, clusters.getAccounts(new UUID(0, 5)).size());
+        assertEquals(4, clusters.size());
+    }
+
+    @Test
+    public void latestAltIsMostRecentOtherAccount() {
+        AccountClusters clusters = new AccountClusters();
+        clusters.link(ALICE, "10.0.0.1", 100);
+        clusters.link(BOB, "10.0.0.1", 300);
+        clusters.link(CAROL, "10.0.0.1", 200);
+        clusters.link(DAVE, "", 500);
+
+        assertEquals(BOB, clusters.getLatestAlt(ALICE));
+        assertEquals(CAROL, clusters.getLatestAlt(BOB));
+        assertNull(clusters.getLatestAlt(DAVE));
+        assertNull(clusters.getLatestAlt(new UUID(0, 5)));
+    }
+
+    @Test
+    public void growsPastInitialCapacity() {
+        AccountClusters clusters = new AccountClusters();
+        for (int i = 0; i < 3000; i++) {
+            clusters.link(new UUID(1, i), "10.0." + (i / 256) + "." + (i % 256), i);
+            clusters.link(new UUID(1, i), "192.168.0.1", i);
+        }
+        assertEquals(3000, clusters.getAccounts(new UUID(1, 0)).size());
+        assertEquals(new UUID(1, 2998), clusters.getLatestAlt(new UUID(1, 2999)));
+    }
+}
@@ -0,0 +1,142 @@
+package net.cubespace.geSuit.cache;
+
+import net.cubespace.geSuit.objects.Ban;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BanIndexTest {
+    private static final String UUID = "0000000000000000000000000000000a";
+
+    private BanIndex index;
+
+    @Before
+    public void setUp() {
+        index = new BanIndex();
+        assertTrue(index.reconcile(Collections::<Ban>emptyList));
+    }
+
+    private static Ban ban(int id, String player, String uuid, String ip, String type) {
+        return new Ban(id, player, uuid, ip, "console", "test", type, 1, null, null);
+    }
+
+    @Test
+    public void findsByNameUuidAndIp() {
+        Ban byName = ban(1, "Alice", null, null, "ban");
+        Ban byUuid = ban(2, null, UUID.toUpperCase(), null, "ban");
+        Ban byIp = ban(3, null, null, "10.0.0.1", "ipban");
+        index.add(byName);
+        index.add(byUuid);
+        index.add(byIp);
+
+        assertSame(byName, index.find("ALICE", null, null));
+        assertSame(byUuid, index.find(null, UUID, null));
+        assertSame(byIp, index.find(null, null, "10.0.0.1"));
+        assertNull(index.find("bob", "0000000000000000000000000000000b", "10.0.0.2"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void picksTypesInAlphabeticalOrderThenLowestId() {
+        Ban tempban = ban(1, "Alice", null, null, "tempban");
+        Ban ipban = ban(2, null, null, "10.0.0.1", "ipban");
+        Ban rangeban = ban(3, null, null, "10.0.0.0/8", "rangeban");
+        index.add(tempban);
+        index.add(ipban);
+        index.add(rangeban);
+
+        assertSame(ipban, index.find("alice", null, "10.0.0.1"));
+        assertSame(rangeban, index.find("alice", null, "10.0.0.2"));
+        assertSame(tempban, index.find("alice", null, "192.168.0.1"));
+
+        Ban first = ban(4, null, UUID, null, "ban");
+        Ban second = ban(5, "Alice", null, null, "ban");
+        index.add(second);
+        index.add(first);
+        assertSame(first, index.find("alice", UUID, "10.0.0.1"));
+    }
+
+    @Test
+    public void removesById() {
+        Ban ban = ban(1, "Alice", UUID, "10.0.0.1", "ban");
+        Ban range = ban(2, null, null, "10.1.0.0/16", "rangeban");
+        index.add(ban);
+        index.add(range);
+        index.add(ban(-1, "Bob", null, null, "ban"));
+        assertEquals(2, index.size());
+        assertEquals(1, index.getBans("rangeban").size());
+
+        index.remove(1);
+        index.remove(range);
+        assertNull(index.find("alice", UUID, "10.0.0.1"));
+        assertNull(index.findRange("10.1.2.3"));
+        assertNull(index.find("bob", null, null));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void unknownAndRemovedKeysMissTheMaps() {
+        assertNull(index.find("nobody", UUID, "10.0.0.1"));
+        assertNull(index.find(null, null, null));
+
+        // A removed ban's keys stay in the filter and fall through to the maps
+        Ban ban = ban(1, "Alice", UUID, "10.0.0.1", "ban");
+        index.add(ban);
+        index.remove(ban);
+        assertNull(index.find("alice", UUID, "10.0.0.1"));
+
+        // Bans added to a live index are put into a copy of the filter
+        Ban later = ban(2, "Carol", null, null, "ban");
+        index.add(later);
+        assertSame(later, index.find("carol", null, null));
+    }
+
+    @Test
+    public void reconcileRetriesWhenAnAddRaces() {
+        Ban loaded = ban(1, "Alice", null, null, "ban");
+        Ban added = ban(2, "Bob", null, null, "ban");
+        AtomicInteger calls = new AtomicInteger();
+        BanIndex fresh = new BanIndex();
+
+        assertTrue(fresh.reconcile(() -> {
+            List<Ban> bans = new ArrayList<>(Collections.singletonList(loaded));
+            if (calls.incrementAndGet() == 1) {
+                fresh.add(added);
+            } else {
+                bans.add(added);
+            }
+            return bans;
+        }));
+        assertEquals(2, calls.get());
+        assertTrue(fresh.isLoaded());
+        assertSame(loaded, fresh.find("alice", null, null));
+        assertSame(added, fresh.find("bob", null, null));
+    }
+
+    @Test
+    public void reconcileGivesUpWhenItKeepsRacing() {
+        BanIndex fresh = new BanIndex();
+        AtomicInteger calls = new AtomicInteger();
+        assertFalse(fresh.reconcile(() -> {
+            fresh.remove(calls.incrementAndGet());
+            return Arrays.asList(ban(10, "Alice", null, null, "ban"));
+        }));
+        assertEquals(3, calls.get());
+        assertFalse(fresh.isLoaded());
+        assertNull(fresh.find("alice", null, null));
+
+        assertFalse(fresh.reconcile(() -> null));
+        assertFalse(fresh.isLoaded());
+    }
+}
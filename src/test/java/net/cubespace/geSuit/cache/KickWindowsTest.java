@@ -0,0 +1,111 @@
+package net.cubespace.geSuit.cache;
+
+import net.cubespace.geSuit.objects.Kick;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KickWindowsTest {
+    private static final String ALICE = "0000000000000000000000000000000a";
+    private static final String BOB = "0000000000000000000000000000000b";
+    private static final long WINDOW = 60000;
+
+    private static Kick kick(String uuid, long at) {
+        return new Kick(uuid, "player", "console", "test", at);
+    }
+
+    @Test
+    public void dropsKicksThatLeftTheWindow() {
+        KickWindows windows = new KickWindows();
+        assertEquals(1, windows.add(kick(ALICE, 1000), WINDOW, 10));
+        assertEquals(2, windows.add(kick(ALICE, 30000), WINDOW, 10));
+        assertEquals(1000, windows.getOldest(ALICE));
+
+        // 1000 is now more than a window old, 30000 is not
+        assertEquals(2, windows.add(kick(ALICE, 61001), WINDOW, 10));
+        assertEquals(30000, windows.getOldest(ALICE));
+        assertEquals(-1, windows.getOldest(BOB));
+    }
+
+    @Test
+    public void keepsAtMostCapacityKicks() {
+        KickWindows windows = new KickWindows();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Math.min(i + 1, 3), windows.add(kick(ALICE, 1000 + i), WINDOW, 3));
+        }
+        assertEquals(1002, windows.getOldest(ALICE));
+
+        // A capacity below one still keeps the latest kick
+        assertEquals(1, windows.add(kick(BOB, 1000), WINDOW, 0));
+        assertEquals(1, windows.add(kick(BOB, 2000), WINDOW, 0));
+        assertEquals(2000, windows.getOldest(BOB));
+    }
+
+    @Test
+    public void expireRemovesEmptyPlayers() {
+        KickWindows windows = new KickWindows();
+        long now = System.currentTimeMillis();
+        windows.add(kick(ALICE, now - 2 * WINDOW), WINDOW, 10);
+        windows.add(kick(BOB, now - 2 * WINDOW), WINDOW, 10);
+        windows.add(kick(BOB, now), WINDOW, 10);
+
+        windows.expire(ALICE, WINDOW);
+        assertEquals(-1, windows.getOldest(ALICE));
+        assertFalse(windows.isEmpty());
+
+        windows.expireAll(WINDOW);
+        assertEquals(now, windows.getOldest(BOB));
+        windows.clear(BOB);
+        assertTrue(windows.isEmpty());
+
+        windows.add(kick(ALICE, now - 2 * WINDOW), WINDOW, 10);
+        windows.expireAll(WINDOW);
+        assertTrue(windows.isEmpty());
+    }
+
+    @Test
+    public void savesAndReadsKicks() throws IOException {
+        File dir = Files.createTempDirectory("kicks").toFile();
+        File file = new File(dir, "kicks.json");
+        try {
+            assertTrue(KickWindows.read(file).isEmpty());
+
+            KickWindows windows = new KickWindows();
+            windows.add(kick(ALICE, 1000), WINDOW, 10);
+            windows.add(kick(ALICE, 2000), WINDOW, 10);
+            windows.add(new Kick(BOB, "Bob", "Admin", "spam", 3000), WINDOW, 10);
+            windows.save(file);
+            assertFalse(new File(file.getPath() + ".tmp").exists());
+
+            List<Kick> saved = KickWindows.read(file);
+            assertEquals(3, saved.size());
+            KickWindows restored = new KickWindows();
+            for (Kick kick : saved) {
+                restored.add(kick, WINDOW, 10);
+            }
+            assertEquals(1000, restored.getOldest(ALICE));
+            assertEquals(3000, restored.getOldest(BOB));
+
+            List<String> bob = new ArrayList<>();
+            restored.forEach(kick -> {
+                if (BOB.equals(kick.getUuid())) {
+                    bob.add(kick.toString());
+                }
+            });
+            assertEquals(1, bob.size());
+            assertTrue(bob.get(0).contains("kickedBy: Admin, reason: spam"));
+        } finally {
+            new File(file.getPath() + ".tmp").delete();
+            file.delete();
+            dir.delete();
+        }
+    }
+}
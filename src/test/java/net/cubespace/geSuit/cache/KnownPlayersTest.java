@@ -0,0 +1,41 @@
+package net.cubespace.geSuit.cache;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KnownPlayersTest {
+
+    @Test
+    public void growsAndKeepsEveryUuid() {
+        KnownPlayers known = new KnownPlayers();
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(known.add(new UUID(i, i * 31L)));
+        }
+        assertFalse(known.add(new UUID(42, 42 * 31L)));
+        assertEquals(5000, known.size());
+
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(known.contains(new UUID(i, i * 31L)));
+        }
+        assertFalse(known.contains(new UUID(1, 0)));
+        assertFalse(known.contains(UUID.randomUUID()));
+    }
+
+    @Test
+    public void tracksTheNilUuid() {
+        KnownPlayers known = new KnownPlayers();
+        assertFalse(known.contains(new UUID(0, 0)));
+        assertTrue(known.add(new UUID(0, 0)));
+        assertTrue(known.contains(new UUID(0, 0)));
+        assertEquals(1, known.size());
+
+        known.clear();
+        assertFalse(known.contains(new UUID(0, 0)));
+        assertEquals(0, known.size());
+    }
+}
@@ -0,0 +1,62 @@
+package net.cubespace.geSuit.cache;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class NameMatcherTest {
+
+    @Test
+    public void prefersPrefixOverSubstring() {
+        NameMatcher<String> matcher = new NameMatcher<>();
+        matcher.add("Notch", "notch");
+        matcher.add("Steve", "steve");
+        matcher.add("Stevenson", "stevenson");
+        matcher.add("xSteve_", "xsteve");
+
+        assertEquals("steve", matcher.matchPrefix("ste"));
+        assertEquals("stevenson", matcher.matchPrefix("STEVEN"));
+        assertNull(matcher.matchPrefix("teve"));
+        assertEquals("steve", matcher.matchContains("teve"));
+        assertEquals("xsteve", matcher.matchContains("e_"));
+        assertEquals("notch", matcher.matchContains("otc"));
+        assertNull(matcher.matchContains("otcx"));
+    }
+
+    @Test
+    public void removeKeepsOtherNames() {
+        NameMatcher<String> matcher = new NameMatcher<>();
+        matcher.add("Steve", "steve");
+        matcher.add("Stevenson", "stevenson");
+        matcher.add("Stella", "stella");
+        matcher.add("&aQueen", "stella");
+
+        matcher.remove("Steve", "steve");
+        assertEquals("stevenson", matcher.matchPrefix("steve"));
+        assertEquals("stella", matcher.matchPrefix("ste"));
+        assertEquals("stella", matcher.matchContains("queen"));
+
+        matcher.remove("stevenson", "stevenson");
+        matcher.remove("&aQueen", "stella");
+        assertNull(matcher.matchPrefix("stev"));
+        assertNull(matcher.matchContains("queen"));
+        assertEquals("stella", matcher.matchPrefix("s"));
+    }
+
+    @Test
+    public void completesInNameOrder() {
+        NameMatcher<String> matcher = new NameMatcher<>();
+        matcher.add("Bob", "bob");
+        matcher.add("Alice", "alice");
+        matcher.add("Albert", "albert");
+        matcher.add("Al", "albert");
+
+        assertEquals(Arrays.asList("albert", "alice"), matcher.complete("al", 10));
+        assertEquals(Collections.singletonList("albert"), matcher.complete("AL", 1));
+        assertEquals(Collections.emptyList(), matcher.complete("c", 10));
+    }
+}
@@ -0,0 +1,68 @@
+package net.cubespace.geSuit.cache;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+public class OnTimeLeaderboardTest {
+
+    @Test
+    public void ranksByMostTime() {
+        OnTimeLeaderboard leaderboard = new OnTimeLeaderboard();
+        UUID a = new UUID(0, 1);
+        UUID b = new UUID(0, 2);
+        UUID c = new UUID(0, 3);
+        leaderboard.set(a, 100);
+        leaderboard.set(b, 300);
+        leaderboard.set(c, 200);
+
+        assertEquals(1, leaderboard.getRank(b));
+        assertEquals(2, leaderboard.getRank(c));
+        assertEquals(3, leaderboard.getRank(a));
+        assertEquals(0, leaderboard.getRank(new UUID(0, 4)));
+
+        leaderboard.add(a, 250);
+        assertEquals(1, leaderboard.getRank(a));
+        assertEquals(350, leaderboard.getSeconds(a));
+        assertEquals(b, leaderboard.getPage(1, 10).get(0).getKey());
+        assertEquals(2, leaderboard.getPage(1, 10).size());
+    }
+
+    @Test
+    public void matchesSortedList() {
+        OnTimeLeaderboard leaderboard = new OnTimeLeaderboard();
+        Map<UUID, Long> totals = new HashMap<>();
+        Random random = new Random(7);
+        List<UUID> uuids = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            uuids.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+
+        for (int i = 0; i < 5000; i++) {
+            UUID uuid = uuids.get(random.nextInt(uuids.size()));
+            long seconds = random.nextInt(50);
+            leaderboard.add(uuid, seconds);
+            totals.merge(uuid, seconds, Long::sum);
+        }
+
+        List<UUID> sorted = new ArrayList<>(totals.keySet());
+        sorted.sort((x, y) -> totals.get(x).equals(totals.get(y)) ? x.compareTo(y) : Long.compare(totals.get(y), totals.get(x)));
+
+        assertEquals(sorted.size(), leaderboard.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            assertEquals(i + 1, leaderboard.getRank(sorted.get(i)));
+        }
+        List<Map.Entry<UUID, Long>> page = leaderboard.getPage(40, 10);
+        for (int i = 0; i < page.size(); i++) {
+            assertEquals(sorted.get(40 + i), page.get(i).getKey());
+            assertEquals(totals.get(sorted.get(40 + i)), page.get(i).getValue());
+        }
+    }
+}
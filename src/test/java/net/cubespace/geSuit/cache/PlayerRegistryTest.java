@@ -0,0 +1,53 @@
+package net.cubespace.geSuit.cache;
+
+import net.cubespace.geSuit.objects.GSPlayer;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class PlayerRegistryTest {
+
+    @Test
+    public void indexesOnlinePlayersByEveryKey() {
+        PlayerRegistry registry = new PlayerRegistry();
+        UUID id = new UUID(0, 1);
+        GSPlayer alice = new GSPlayer("Alice", "00000000000000000000000000000001", true, "10.0.0.1");
+        GSPlayer bob = new GSPlayer("Bob", "00000000000000000000000000000002", true, "10.0.0.1");
+
+        registry.cache(id, alice);
+        assertSame(alice, registry.getCached(id));
+        assertNull(registry.getByName("alice"));
+
+        registry.online(alice, "&aAli");
+        registry.online(bob, null);
+        assertSame(alice, registry.getByName("ALICE"));
+        assertSame(alice, registry.getByDisplayName("&AALI"));
+        assertEquals(2, registry.getByIp("10.0.0.1").size());
+        assertEquals(2, registry.getOnline().size());
+
+        registry.setDisplayName(alice, "Queen");
+        assertNull(registry.getByDisplayName("&aAli"));
+        assertSame(alice, registry.getByDisplayName("queen"));
+    }
+
+    @Test
+    public void offlineRemovesEveryIndex() {
+        PlayerRegistry registry = new PlayerRegistry();
+        GSPlayer alice = new GSPlayer("Alice", "00000000000000000000000000000001", true, "10.0.0.1");
+        registry.cache(new UUID(0, 1), alice);
+        registry.online(alice, "Ali");
+
+        assertSame(alice, registry.offline("alice"));
+        assertNull(registry.offline("alice"));
+        assertNull(registry.getByName("alice"));
+        assertNull(registry.getByDisplayName("ali"));
+        assertEquals(0, registry.getByIp("10.0.0.1").size());
+        // Still cached until they disconnect
+        assertSame(alice, registry.uncache(new UUID(0, 1)));
+        assertNull(registry.getCached(new UUID(0, 1)));
+    }
+}
@@ -0,0 +1,43 @@
+package net.cubespace.geSuit.cache;
+
+import net.cubespace.geSuit.objects.GSPlayer;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+public class ProfileCacheTest {
+    private static final String UUID = "0000000000000000000000000000000a";
+
+    @Test
+    public void returnsCopiesByNameAndUuid() {
+        ProfileCache cache = new ProfileCache(10, 60);
+        GSPlayer alice = new GSPlayer("Alice", UUID, true, "10.0.0.1");
+        cache.put(alice, cache.getGeneration());
+
+        GSPlayer byName = cache.get("ALICE");
+        assertNotNull(byName);
+        assertNotSame(alice, byName);
+        assertEquals(UUID, byName.getUuid());
+        assertEquals("Alice", cache.get(UUID.toUpperCase()).getName());
+        assertNull(cache.get("bob"));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void invalidationDropsEntriesAndRacingLoads() {
+        ProfileCache cache = new ProfileCache(10, 60);
+        long generation = cache.getGeneration();
+        cache.invalidate(UUID);
+        cache.put(new GSPlayer("Alice", UUID, true, "10.0.0.1"), generation);
+        assertNull(cache.get(UUID));
+
+        cache.put(new GSPlayer("Alice", UUID, true, "10.0.0.1"), cache.getGeneration());
+        cache.invalidateName("alice");
+        assertNull(cache.get(UUID));
+        assertNull(cache.get("alice"));
+    }
+}
@@ -0,0 +1,79 @@
+package net.cubespace.geSuit.cache;
+
+import net.cubespace.geSuit.objects.Ban;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RangeBanTreeTest {
+
+    private RangeBanTree tree;
+
+    @Before
+    public void setUp() {
+        tree = new RangeBanTree();
+    }
+
+    private Ban add(int id, String cidr) {
+        Ban ban = new Ban(id, null, null, cidr, "console", "test", "rangeban", 1, null, null);
+        tree.add(IPRange.parse(cidr), ban);
+        return ban;
+    }
+
+    private Ban find(String ip) {
+        return tree.find(IPRange.toBytes(ip));
+    }
+
+    @Test
+    public void parseNormalisesHostBits() {
+        assertEquals("10.1.0.0/16", IPRange.parse("10.1.2.3/16").toString());
+        assertEquals("2001:db8::/32", IPRange.parse("2001:0db8:ffff::1/32").toString());
+        assertNull(IPRange.parse("10.1.2.3"));
+        assertNull(IPRange.parse("10.1.2.3/33"));
+        assertNull(IPRange.parse("player/8"));
+    }
+
+    @Test
+    public void findsMostSpecificRange() {
+        Ban wide = add(1, "10.0.0.0/8");
+        Ban narrow = add(2, "10.1.2.0/24");
+        add(3, "192.168.0.0/16");
+
+        assertEquals(narrow, find("10.1.2.200"));
+        assertEquals(wide, find("10.1.3.1"));
+        assertEquals(3, find("192.168.255.255").getId());
+        assertNull(find("11.0.0.1"));
+        assertNull(find("2001:db8::1"));
+    }
+
+    @Test
+    public void keepsIpv6Separate() {
+        add(1, "2001:db8::/32");
+        add(2, "0.0.0.0/0");
+
+        assertEquals(1, find("2001:db8:1234::1").getId());
+        assertNull(find("2001:db9::1"));
+        assertEquals(2, find("8.8.8.8").getId());
+    }
+
+    @Test
+    public void removeCollapsesTree() {
+        add(1, "10.0.0.0/8");
+        add(2, "10.1.2.0/24");
+        add(3, "10.1.3.0/24");
+
+        assertTrue(tree.remove(IPRange.parse("10.1.2.0/24"), 2));
+        assertFalse(tree.remove(IPRange.parse("10.1.2.0/24"), 2));
+        assertEquals(1, find("10.1.2.1").getId());
+        assertEquals(3, find("10.1.3.1").getId());
+
+        assertTrue(tree.remove(IPRange.parse("10.0.0.0/8"), 1));
+        assertNull(find("10.1.2.1"));
+        assertEquals(3, find("10.1.3.1").getId());
+        assertEquals(1, tree.size());
+    }
+}
@@ -0,0 +1,121 @@
+package net.cubespace.geSuit.database;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchedLookupTest {
+
+    @Test
+    public void chunksArePaddedToPowersOfTwo() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            keys.add("player" + i);
+        }
+        keys.add("player0"); // duplicates are looked up once
+
+        List<List<String>> chunks = BatchedLookup.chunks(keys);
+        assertEquals(2, chunks.size());
+        assertEquals(64, chunks.get(0).size());
+        assertEquals(64, chunks.get(1).size()); // 36 keys padded with the last one
+        assertEquals("player99", chunks.get(1).get(63));
+        assertTrue(BatchedLookup.chunks(new ArrayList<String>()).isEmpty());
+        assertEquals(Arrays.asList("a", "b", "c", "c"), BatchedLookup.chunks(Arrays.asList("a", "b", "c")).get(0));
+        assertEquals("(?,?,?,?)", BatchedLookup.placeholders(4));
+    }
+
+    /**
+     * Compares FIND_IN_SET with the chunked IN lookups on a million-row copy of the players table. Needs a scratch
+     * MySQL database and the driver on the test classpath, e.g.
+     * {@code -Dgesuit.benchmark.url=jdbc:mysql://localhost/scratch?user=root&rewriteBatchedStatements=true}
+     */
+    @Test
+    public void benchmarkAgainstFindInSet() throws SQLException {
+        String url = System.getProperty("gesuit.benchmark.url");
+        Assume.assumeTrue(url != null);
+
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DROP TABLE IF EXISTS bench_players");
+            statement.executeUpdate("CREATE TABLE bench_players (playername VARCHAR(100), uuid VARCHAR(100) NOT NULL, "
+                    + "PRIMARY KEY (uuid), INDEX idx_players_playername (playername))");
+
+            int rows = 1000000;
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO bench_players (playername, uuid) VALUES (?, ?)")) {
+                for (int i = 0; i < rows; i++) {
+                    insert.setString(1, "player" + i);
+                    insert.setString(2, String.format("%032x", i));
+                    insert.addBatch();
+                    if (i % 10000 == 9999) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+
+            Random random = new Random(42);
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                names.add("player" + random.nextInt(rows));
+            }
+
+            // The old resolver sent batches of 40 names as one comma-joined string
+            long start = System.nanoTime();
+            Map<String, String> findInSet = new HashMap<>();
+            try (PreparedStatement lookup = connection.prepareStatement("SELECT playername, uuid FROM bench_players WHERE FIND_IN_SET(playername, ?)")) {
+                for (int i = 0; i < names.size(); i += 40) {
+                    lookup.setString(1, String.join(",", names.subList(i, Math.min(names.size(), i + 40))));
+                    read(lookup, findInSet);
+                }
+            }
+            long findInSetNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            Map<String, String> in = new HashMap<>();
+            Map<Integer, PreparedStatement> byArity = new HashMap<>();
+            for (List<String> chunk : BatchedLookup.chunks(names)) {
+                PreparedStatement lookup = byArity.get(chunk.size());
+                if (lookup == null) {
+                    lookup = connection.prepareStatement("SELECT playername, uuid FROM bench_players WHERE playername IN " + BatchedLookup.placeholders(chunk.size()));
+                    byArity.put(chunk.size(), lookup);
+                }
+                for (int i = 0; i < chunk.size(); i++) {
+                    lookup.setString(i + 1, chunk.get(i));
+                }
+                read(lookup, in);
+            }
+            long inNanos = System.nanoTime() - start;
+            for (PreparedStatement lookup : byArity.values()) {
+                lookup.close();
+            }
+
+            System.out.println("Resolved " + names.size() + " names in " + rows + " rows: FIND_IN_SET " + (findInSetNanos / 1000000) + "ms, IN chunks " + (inNanos / 1000000) + "ms");
+            assertEquals(findInSet, in);
+
+            statement.executeUpdate("DROP TABLE bench_players");
+        }
+    }
+
+    private static void read(PreparedStatement lookup, Map<String, String> into) throws SQLException {
+        try (ResultSet res = lookup.executeQuery()) {
+            while (res.next()) {
+                into.put(res.getString("playername"), res.getString("uuid"));
+            }
+        }
+    }
+}
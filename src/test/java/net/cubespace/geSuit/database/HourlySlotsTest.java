@@ -0,0 +1,66 @@
+package net.cubespace.geSuit.database;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class HourlySlotsTest {
+    private static final ZoneId LONDON = ZoneId.of("Europe/London");
+    private static final ZoneId KOLKATA = ZoneId.of("Asia/Kolkata");
+
+    private static long at(ZoneId zone, String time) {
+        return LocalDateTime.parse(time).atZone(zone).toInstant().toEpochMilli();
+    }
+
+    private static Map<Long, Long> split(HourlySlots slots, long start, long end) {
+        Map<Long, Long> result = new LinkedHashMap<>();
+        slots.split(start, end, (slot, seconds) -> result.merge(slot, seconds, Long::sum));
+        return result;
+    }
+
+    @Test
+    public void splitsAcrossHours() {
+        HourlySlots slots = new HourlySlots(LONDON);
+        Map<Long, Long> result = split(slots, at(LONDON, "2018-01-10T10:50:00"), at(LONDON, "2018-01-10T12:10:30"));
+
+        assertEquals(3, result.size());
+        assertEquals(Long.valueOf(600), result.get(at(LONDON, "2018-01-10T10:00:00")));
+        assertEquals(Long.valueOf(3600), result.get(at(LONDON, "2018-01-10T11:00:00")));
+        assertEquals(Long.valueOf(630), result.get(at(LONDON, "2018-01-10T12:00:00")));
+    }
+
+    @Test
+    public void usesLocalHoursInHalfHourZones() {
+        HourlySlots slots = new HourlySlots(KOLKATA);
+        Map<Long, Long> result = split(slots, at(KOLKATA, "2018-01-10T10:15:00"), at(KOLKATA, "2018-01-10T11:15:00"));
+
+        assertEquals(Long.valueOf(2700), result.get(at(KOLKATA, "2018-01-10T10:00:00")));
+        assertEquals(Long.valueOf(900), result.get(at(KOLKATA, "2018-01-10T11:00:00")));
+    }
+
+    @Test
+    public void followsDaylightSavingChanges() {
+        HourlySlots slots = new HourlySlots(LONDON);
+        // Clocks went forward from 01:00 to 02:00 on 25 March 2018
+        Map<Long, Long> result = split(slots, at(LONDON, "2018-03-25T00:30:00"), at(LONDON, "2018-03-25T02:30:00"));
+
+        assertEquals(2, result.size());
+        assertEquals(Long.valueOf(1800), result.get(at(LONDON, "2018-03-25T00:00:00")));
+        assertEquals(Long.valueOf(1800), result.get(at(LONDON, "2018-03-25T02:00:00")));
+        assertEquals(at(LONDON, "2018-01-10T09:00:00"), slots.slotStart(at(LONDON, "2018-01-10T09:59:59")));
+    }
+
+    @Test
+    public void skipsEmptySessions() {
+        HourlySlots slots = new HourlySlots(LONDON);
+        long now = at(LONDON, "2018-01-10T10:00:00");
+        assertEquals(0, split(slots, now, now).size());
+        assertEquals(0, split(slots, now, now - 1000).size());
+        assertEquals(0, split(slots, now, now + 999).size());
+    }
+}
@@ -0,0 +1,28 @@
+package net.cubespace.geSuit.database;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void reportsBucketUpperBounds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+
+        for (int i = 0; i < 98; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(900));
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(4, histogram.getPercentile(50));
+        assertEquals(128, histogram.getPercentile(99));
+        assertEquals(900, histogram.getPercentile(100));
+        assertEquals(900, histogram.getMax());
+    }
+}
@@ -0,0 +1,53 @@
+package net.cubespace.geSuit.database;
+
+import net.cubespace.geSuit.objects.TimeRecord;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class OnTimeTest {
+    private static final ZoneId LONDON = ZoneId.of("Europe/London");
+
+    private static long at(String time) {
+        return LocalDateTime.parse(time).atZone(LONDON).toInstant().toEpochMilli();
+    }
+
+    @Test
+    public void splitsPendingSlotsAcrossMidnight() {
+        // Sunday 2018-07-01 starts a new day, week and month, so Saturday's last hour only counts towards the year
+        Map<Long, Long> slots = new HashMap<>();
+        slots.put(at("2018-06-30T23:00:00"), 1800L);
+        slots.put(at("2018-07-01T00:00:00"), 600L);
+        TimeRecord trec = new TimeRecord("a");
+        OnTime.addPendingSlots(trec, slots, LocalDate.parse("2018-07-01"), LONDON);
+
+        assertEquals(600000, trec.getTimeToday());
+        assertEquals(600000, trec.getTimeWeek());
+        assertEquals(600000, trec.getTimeMonth());
+        assertEquals(2400000, trec.getTimeYear());
+        assertEquals(2400000, trec.getTimeTotal());
+    }
+
+    @Test
+    public void addsToStoredTotals() {
+        Map<Long, Long> slots = new HashMap<>();
+        slots.put(at("2018-01-01T10:00:00"), 60L);
+        slots.put(at("2017-12-31T23:00:00"), 60L);
+        TimeRecord trec = new TimeRecord("a");
+        trec.setTimeYear(1000);
+        trec.setTimeTotal(5000);
+        OnTime.addPendingSlots(trec, slots, LocalDate.parse("2018-01-01"), LONDON);
+
+        assertEquals(60000, trec.getTimeToday());
+        assertEquals(61000, trec.getTimeYear());
+        assertEquals(125000, trec.getTimeTotal());
+        // 2017-12-31 is a Sunday, so it starts this week
+        assertEquals(120000, trec.getTimeWeek());
+    }
+}
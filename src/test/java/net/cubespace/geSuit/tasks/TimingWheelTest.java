@@ -0,0 +1,127 @@
+package net.cubespace.geSuit.tasks;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimingWheelTest {
+    private static final long TICK = 1000;
+    private static final long START = 1000000;
+
+    private final AtomicLong now = new AtomicLong();
+    private final List<String> expired = new ArrayList<>();
+    private final List<Integer> batches = new ArrayList<>();
+    private final TimingWheel.Handler<String> handler = keys -> {
+        expired.addAll(keys);
+        batches.add(keys.size());
+    };
+    private TimingWheel wheel;
+
+    @Before
+    public void setUp() {
+        now.set(START);
+        // Eight buckets, so anything more than 8 ticks out needs extra rounds
+        wheel = new TimingWheel(TICK, 8, now::get);
+    }
+
+    private void advanceTo(long millis) {
+        now.set(millis);
+        wheel.run();
+    }
+
+    @Test
+    public void expiresOnTheDeadlineTick() {
+        wheel.schedule("a", START + 3 * TICK, handler);
+        advanceTo(START + 2 * TICK);
+        assertTrue(expired.isEmpty());
+
+        advanceTo(START + 3 * TICK);
+        assertEquals(Collections.singletonList("a"), expired);
+        assertEquals(0, wheel.getPending());
+    }
+
+    @Test
+    public void waitsOutFullTurnsForFarDeadlines() {
+        wheel.schedule("far", START + 20 * TICK, handler);
+        wheel.schedule("turn", START + 8 * TICK, handler);
+        for (long tick = 1; tick < 8; tick++) {
+            advanceTo(START + tick * TICK);
+        }
+        assertTrue(expired.isEmpty());
+
+        advanceTo(START + 8 * TICK);
+        assertEquals(Collections.singletonList("turn"), expired);
+        for (long tick = 9; tick < 20; tick++) {
+            advanceTo(START + tick * TICK);
+        }
+        assertEquals(1, expired.size());
+
+        advanceTo(START + 20 * TICK);
+        assertEquals(Arrays.asList("turn", "far"), expired);
+    }
+
+    @Test
+    public void expiresPastDeadlinesOnTheNextTick() {
+        advanceTo(START);
+        wheel.schedule("late", START - 60 * TICK, handler);
+        assertEquals(1, wheel.getPending());
+
+        advanceTo(START + TICK);
+        assertEquals(Collections.singletonList("late"), expired);
+    }
+
+    @Test
+    public void cancelledKeysNeverExpire() {
+        wheel.schedule("a", START + 2 * TICK, handler);
+        assertTrue(wheel.cancel("a"));
+        assertFalse(wheel.cancel("a"));
+        assertEquals(0, wheel.getPending());
+
+        advanceTo(START + 10 * TICK);
+        assertTrue(expired.isEmpty());
+    }
+
+    @Test
+    public void reschedulingReplacesTheDeadline() {
+        wheel.schedule("a", START + 2 * TICK, handler);
+        wheel.schedule("a", START + 12 * TICK, handler);
+        assertEquals(1, wheel.getPending());
+        assertEquals(1, wheel.getPending(handler));
+
+        advanceTo(START + 11 * TICK);
+        assertTrue(expired.isEmpty());
+
+        advanceTo(START + 12 * TICK);
+        assertEquals(Collections.singletonList("a"), expired);
+
+        // Moved earlier, so the later slot left behind must not fire it again
+        wheel.schedule("b", START + 30 * TICK, handler);
+        wheel.schedule("b", START + 14 * TICK, handler);
+        advanceTo(START + 40 * TICK);
+        assertEquals(Arrays.asList("a", "b"), expired);
+    }
+
+    @Test
+    public void catchesUpOnSeveralTicksInOneRun() {
+        wheel.schedule("a", START + TICK, handler);
+        wheel.schedule("b", START + 5 * TICK, handler);
+        wheel.schedule("c", START + 5 * TICK, handler);
+        wheel.schedule("d", START + 19 * TICK, handler);
+        wheel.schedule("e", START + 30 * TICK, handler);
+
+        advanceTo(START + 25 * TICK);
+        assertEquals(Arrays.asList("a", "b", "c", "d"), expired);
+        // Keys due in the same run reach their handler as one batch
+        assertEquals(Collections.singletonList(4), batches);
+        assertEquals(1, wheel.getPending());
+    }
+}